@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the parts of a configuration read on every request, derived once per configuration version.
+ *
+ * @param <C> the configuration type
+ */
+@Getter
+public class CompiledConfig<C extends HavenSearchCapable> {
+    private final C config;
+    private final FieldsInfo fieldsInfo;
+    private final Map<String, FieldInfo<?>> fieldConfigByName;
+    private final List<String> printFields;
+
+    /**
+     * @param config          the configuration to compile
+     * @param hardCodedFields fields which are always printed, ahead of the configured fields
+     */
+    public CompiledConfig(final C config, final Collection<FieldInfo<?>> hardCodedFields) {
+        this.config = config;
+        fieldsInfo = config.getFieldsInfo();
+
+        final Map<String, FieldInfo<?>> fieldConfigByName = fieldsInfo == null ? null : fieldsInfo.getFieldConfigByName();
+        this.fieldConfigByName = fieldConfigByName == null
+                ? Collections.<String, FieldInfo<?>>emptyMap()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(fieldConfigByName));
+
+        final List<String> printFields = new ArrayList<>();
+        addNames(printFields, hardCodedFields);
+
+        final Map<String, FieldInfo<?>> fieldConfig = fieldsInfo == null ? null : fieldsInfo.getFieldConfig();
+        if (fieldConfig != null) {
+            addNames(printFields, fieldConfig.values());
+        }
+
+        this.printFields = Collections.unmodifiableList(printFields);
+    }
+
+    /**
+     * @param config the current configuration
+     * @return true if this was compiled from the given configuration and the parts it was compiled from have not been replaced since
+     */
+    public boolean isCompiledFrom(final HavenSearchCapable config) {
+        return this.config == config && fieldsInfo == config.getFieldsInfo();
+    }
+
+    private static void addNames(final Collection<String> names, final Iterable<FieldInfo<?>> fields) {
+        for (final FieldInfo<?> field : fields) {
+            names.addAll(field.getNames());
+        }
+    }
+}
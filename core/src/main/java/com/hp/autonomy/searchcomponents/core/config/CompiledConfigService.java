@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import com.hp.autonomy.frontend.configuration.ConfigService;
+
+/**
+ * Holds the {@link CompiledConfig} for the current configuration.
+ * <p>
+ * Configuration reloads replace the configuration object, so the snapshot is recompiled the first time a new object
+ * is seen and then swapped in with a single volatile write. Request threads otherwise only read the current
+ * configuration and the snapshot. Threads racing on a reload may each compile a snapshot; they are equivalent, so the
+ * last one written wins.
+ *
+ * @param <C> the configuration type
+ * @param <S> the compiled configuration type
+ */
+public abstract class CompiledConfigService<C extends HavenSearchCapable, S extends CompiledConfig<? extends C>> {
+    private final ConfigService<? extends C> configService;
+
+    private volatile S compiledConfig;
+
+    protected CompiledConfigService(final ConfigService<? extends C> configService) {
+        this.configService = configService;
+    }
+
+    public S getCompiledConfig() {
+        final C config = configService.getConfig();
+        final S current = compiledConfig;
+        if (current != null && current.isCompiledFrom(config)) {
+            return current;
+        }
+
+        final S compiled = compile(config);
+        compiledConfig = compiled;
+        return compiled;
+    }
+
+    protected abstract S compile(final C config);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeParser;
+import org.joda.time.format.DateTimeParserBucket;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Parses the date values returned by IDOL and Haven OnDemand: epoch seconds, epoch milliseconds, ISO-8601 and the
+ * IDOL date formats. Values are checked against each format before they are converted, so unparseable values do not
+ * throw and catch exceptions; they parse to null.
+ */
+final class DateFieldValueParser implements FieldValueParser<DateTime> {
+    // larger epoch values are taken to be milliseconds; as seconds they would be after the year 5000
+    private static final long MIN_EPOCH_MILLIS = 100000000000L;
+    // longer runs of digits could overflow a long
+    private static final int MAX_EPOCH_DIGITS = 18;
+    private static final int DEFAULT_YEAR = 2000;
+
+    private static final DateTimeParser[] PARSERS = {
+            ISODateTimeFormat.dateTimeParser().getParser(),
+            DateTimeFormat.forPattern("HH:mm:ss dd/MM/yyyy").getParser(),
+            DateTimeFormat.forPattern("yyyy/MM/dd HH:mm:ss").getParser(),
+            DateTimeFormat.forPattern("dd/MM/yyyy").getParser()
+    };
+
+    @Override
+    public DateTime parse(final String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        if (isEpoch(value)) {
+            final long epoch = Long.parseLong(value);
+            return new DateTime(Math.abs(epoch) >= MIN_EPOCH_MILLIS ? epoch : epoch * 1000);
+        }
+
+        // values without an offset are in the default time zone, as with new DateTime(value)
+        final Chronology chronology = ISOChronology.getInstance();
+        for (final DateTimeParser parser : PARSERS) {
+            final DateTimeParserBucket bucket = new DateTimeParserBucket(0L, chronology, null, null, DEFAULT_YEAR);
+            if (parser.parseInto(bucket, value, 0) == value.length()) {
+                try {
+                    return new DateTime(bucket.computeMillis(true, value), chronology);
+                } catch (final IllegalArgumentException ignored) {
+                    // the value matched the format but is not a valid date, e.g. 31/02/2015
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isEpoch(final CharSequence value) {
+        final int start = value.charAt(0) == '-' ? 1 : 0;
+        final int length = value.length();
+        if (length == start || length - start > MAX_EPOCH_DIGITS) {
+            return false;
+        }
+
+        for (int i = start; i < length; i++) {
+            final char character = value.charAt(i);
+            if (character < '0' || character > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
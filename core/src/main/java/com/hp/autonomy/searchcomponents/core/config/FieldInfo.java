@@ -7,7 +7,6 @@ package com.hp.autonomy.searchcomponents.core.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
-import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -17,7 +16,6 @@ import java.util.List;
 
 @SuppressWarnings("FieldMayBeFinal")
 @Data
-@NoArgsConstructor
 public class FieldInfo<T> implements Serializable {
     private static final long serialVersionUID = -5649457890413743332L;
     private String id;
@@ -25,7 +23,11 @@ public class FieldInfo<T> implements Serializable {
     @SuppressWarnings({"MismatchedQueryAndUpdateOfCollection", "NonSerializableFieldInSerializableClass", "TypeMayBeWeakened"})
     private final List<String> names = new ArrayList<>();
     @SuppressWarnings({"MismatchedQueryAndUpdateOfCollection", "NonSerializableFieldInSerializableClass", "TypeMayBeWeakened"})
-    private final List<T> values = new ArrayList<>();
+    private final List<T> values;
+
+    public FieldInfo() {
+        values = new ArrayList<>();
+    }
 
     public FieldInfo(final String names, final FieldType type) {
         this(null, Collections.singletonList(names), type, Collections.<T>emptyList());
@@ -40,10 +42,22 @@ public class FieldInfo<T> implements Serializable {
     }
 
     public FieldInfo(final String id, final Collection<String> names, final FieldType type, final Collection<T> values) {
+        this(new ArrayList<>(values), id, names, type);
+    }
+
+    private FieldInfo(final List<T> values, final String id, final Collection<String> names, final FieldType type) {
         this.id = id;
         this.names.addAll(names);
         this.type = type;
-        this.values.addAll(values);
+        this.values = values;
+    }
+
+    /**
+     * Creates a field whose values are stored compactly; see {@link FieldValueLists}. The values cannot be modified, so
+     * this is intended for the values of parsed results.
+     */
+    public static <T> FieldInfo<T> withCompactValues(final String id, final Collection<String> names, final FieldType type, final Collection<T> values) {
+        return new FieldInfo<>(FieldValueLists.compact(type, values), id, names, type);
     }
 
     @JsonProperty("type")
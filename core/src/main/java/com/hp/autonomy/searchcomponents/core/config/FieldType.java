@@ -14,22 +14,7 @@ public enum FieldType {
             return value;
         }
     }),
-    DATE(DateTime.class, new FieldValueParser<DateTime>() {
-        @Override
-        public DateTime parse(final String value) {
-            try {
-                final long epoch = Long.parseLong(value) * 1000;
-                return new DateTime(epoch);
-            } catch (final NumberFormatException ignore) {
-                try {
-                    // HOD handles date fields inconsistently; attempt to detect this here
-                    return new DateTime(value);
-                } catch (final IllegalArgumentException ignored) {
-                    return null;
-                }
-            }
-        }
-    }),
+    DATE(DateTime.class, new DateFieldValueParser()),
     NUMBER(Number.class, new FieldValueParser<Number>() {
         @Override
         public Number parse(final String value) {
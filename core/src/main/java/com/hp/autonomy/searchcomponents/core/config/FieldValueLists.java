@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact storage for the values of document fields. Number, boolean and date values are held in primitive arrays and
+ * only boxed when they are read, which keeps result caches small; other values are held in an {@link ArrayList}.
+ */
+public final class FieldValueLists {
+    private FieldValueLists() {}
+
+    /**
+     * @param type   the type of the field
+     * @param values the values of the field
+     * @param <T>    the type of the values
+     * @return an unmodifiable primitive backed list if all the values can be stored in one, otherwise a modifiable
+     * copy of the values
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> compact(final FieldType type, final Collection<? extends T> values) {
+        if (type != null && !values.isEmpty()) {
+            switch (type) {
+                case NUMBER:
+                    final double[] doubles = toDoubles(values);
+                    if (doubles != null) {
+                        return (List<T>) new DoubleValueList(doubles);
+                    }
+                    break;
+                case BOOLEAN:
+                    final boolean[] booleans = toBooleans(values);
+                    if (booleans != null) {
+                        return (List<T>) new BooleanValueList(booleans);
+                    }
+                    break;
+                case DATE:
+                    final long[] millis = toMillis(values);
+                    if (millis != null) {
+                        return (List<T>) new DateValueList(millis, ((DateTime) values.iterator().next()).getChronology());
+                    }
+                    break;
+            }
+        }
+
+        return new ArrayList<>(values);
+    }
+
+    // only exact Doubles are stored, so that reading a value back gives an equal object
+    private static double[] toDoubles(final Collection<?> values) {
+        final double[] doubles = new double[values.size()];
+        int i = 0;
+        for (final Object value : values) {
+            if (value == null || value.getClass() != Double.class) {
+                return null;
+            }
+
+            doubles[i++] = (Double) value;
+        }
+
+        return doubles;
+    }
+
+    private static boolean[] toBooleans(final Collection<?> values) {
+        final boolean[] booleans = new boolean[values.size()];
+        int i = 0;
+        for (final Object value : values) {
+            if (!(value instanceof Boolean)) {
+                return null;
+            }
+
+            booleans[i++] = (Boolean) value;
+        }
+
+        return booleans;
+    }
+
+    // dates share one chronology, so that reading a value back gives an equal object
+    private static long[] toMillis(final Collection<?> values) {
+        final long[] millis = new long[values.size()];
+        Chronology chronology = null;
+        int i = 0;
+        for (final Object value : values) {
+            if (value == null || value.getClass() != DateTime.class) {
+                return null;
+            }
+
+            final DateTime date = (DateTime) value;
+            if (chronology == null) {
+                chronology = date.getChronology();
+            } else if (!chronology.equals(date.getChronology())) {
+                return null;
+            }
+
+            millis[i++] = date.getMillis();
+        }
+
+        return millis;
+    }
+
+    private static class DoubleValueList extends AbstractList<Double> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 5829541729178823162L;
+
+        private final double[] values;
+
+        private DoubleValueList(final double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static class BooleanValueList extends AbstractList<Boolean> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = -2409467382148836107L;
+
+        private final boolean[] values;
+
+        private BooleanValueList(final boolean[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Boolean get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static class DateValueList extends AbstractList<DateTime> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 7713048950628105245L;
+
+        private final long[] millis;
+        private final Chronology chronology;
+
+        private DateValueList(final long[] millis, final Chronology chronology) {
+            this.millis = millis;
+            this.chronology = chronology;
+        }
+
+        @Override
+        public DateTime get(final int index) {
+            return new DateTime(millis[index], chronology);
+        }
+
+        @Override
+        public int size() {
+            return millis.length;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.export;
+
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.core.search.SearchResult;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes documents to an output stream as CSV rows (RFC 4180) as they are received. The columns are the standard
+ * document properties followed by a projection of the configured fields; multiple values of a field are written to a
+ * single cell.
+ * <p>
+ * Rows are buffered and written to the stream in blocks, so a slow consumer of the stream slows down the thread
+ * producing the documents rather than documents accumulating in memory. Closing the writer flushes it, but does not
+ * close the stream.
+ *
+ * @param <D> The type of the documents
+ */
+public class CsvResultsWriter<D extends SearchResult> implements DocumentSink<D>, Flushable, Closeable {
+    public static final String VALUE_SEPARATOR = "; ";
+
+    private static final String[] STANDARD_COLUMNS = {"reference", "index", "title", "date", "weight", "summary"};
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private final Writer writer;
+    private final List<String> fieldIds;
+    private boolean headerWritten;
+
+    /**
+     * Writes every configured field, in the order of the configuration
+     */
+    public CsvResultsWriter(final OutputStream outputStream, final FieldsInfo fieldsInfo) {
+        this(outputStream, fieldsInfo, fieldsInfo.getFieldConfig().keySet());
+    }
+
+    /**
+     * @param outputStream the stream to write to
+     * @param fieldsInfo   the field configuration
+     * @param fieldIds     the ids of the configured fields to write, in column order
+     */
+    public CsvResultsWriter(final OutputStream outputStream, final FieldsInfo fieldsInfo, final Collection<String> fieldIds) {
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.fieldIds = new ArrayList<>(fieldIds.size());
+
+        for (final String fieldId : fieldIds) {
+            if (!fieldsInfo.getFieldConfig().containsKey(fieldId)) {
+                throw new IllegalArgumentException("Field " + fieldId + " is not configured");
+            }
+
+            this.fieldIds.add(fieldId);
+        }
+    }
+
+    @Override
+    public void write(final D document) throws IOException {
+        writeHeader();
+
+        writeCell(document.getReference(), true);
+        writeCell(document.getIndex(), false);
+        writeCell(document.getTitle(), false);
+        writeCell(document.getDate(), false);
+        writeCell(document.getWeight(), false);
+        writeCell(document.getSummary(), false);
+
+        for (final String fieldId : fieldIds) {
+            final FieldInfo<?> fieldInfo = document.getFieldMap() == null ? null : document.getFieldMap().get(fieldId);
+            writeCell(fieldInfo == null ? null : fieldInfo.getValues(), false);
+        }
+
+        writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeHeader();
+        writer.flush();
+    }
+
+    /**
+     * Flushes the writer; the header is written even if there were no documents
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+
+            for (int i = 0; i < STANDARD_COLUMNS.length; i++) {
+                writeCell(STANDARD_COLUMNS[i], i == 0);
+            }
+
+            for (final String fieldId : fieldIds) {
+                writeCell(fieldId, false);
+            }
+
+            writer.write(LINE_SEPARATOR);
+        }
+    }
+
+    private void writeCell(final Object value, final boolean first) throws IOException {
+        if (!first) {
+            writer.write(',');
+        }
+
+        if (value == null) {
+            return;
+        }
+
+        final String text;
+        if (value instanceof Collection) {
+            final StringBuilder joined = new StringBuilder();
+            for (final Object element : (Collection<?>) value) {
+                if (element != null) {
+                    if (joined.length() > 0) {
+                        joined.append(VALUE_SEPARATOR);
+                    }
+
+                    joined.append(element);
+                }
+            }
+
+            text = joined.toString();
+        } else {
+            text = value.toString();
+        }
+
+        writeEscaped(text);
+    }
+
+    private void writeEscaped(final String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            final char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+
+        writer.write('"');
+
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                writer.write(text, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+
+        writer.write(text, start, text.length() - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes documents to an output stream as newline delimited JSON, one document per line, as they are received.
+ * <p>
+ * Documents are serialized straight into the generator's buffer, which is written to the stream in blocks, so a slow
+ * consumer of the stream slows down the thread producing the documents rather than documents accumulating in memory.
+ * Closing the writer flushes it, but does not close the stream.
+ *
+ * @param <D> The type of the documents
+ */
+public class NdjsonResultsWriter<D> implements DocumentSink<D>, Flushable, Closeable {
+    private final JsonGenerator jsonGenerator;
+    private final ObjectWriter objectWriter;
+
+    /**
+     * @param outputStream the stream to write to
+     * @param objectMapper mapper configured to serialize the documents, e.g. with support for Joda types
+     */
+    public NdjsonResultsWriter(final OutputStream outputStream, final ObjectMapper objectMapper) throws IOException {
+        jsonGenerator = objectMapper.getFactory().createGenerator(outputStream);
+        jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        jsonGenerator.setRootValueSeparator(null);
+
+        // flushing after every document would defeat the buffering
+        objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public void write(final D document) throws IOException {
+        objectWriter.writeValue(jsonGenerator, document);
+        jsonGenerator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        jsonGenerator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonGenerator.close();
+    }
+}
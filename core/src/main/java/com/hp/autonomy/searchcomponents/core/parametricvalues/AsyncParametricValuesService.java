@@ -0,0 +1,29 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.hp.autonomy.types.idol.RecursiveField;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Non blocking counterpart of {@link ParametricValuesService}
+ */
+public interface AsyncParametricValuesService<R extends ParametricRequest<S>, S extends Serializable> {
+
+    ListenableFuture<Set<QueryTagInfo>> getAllParametricValues(R parametricRequest);
+
+    ListenableFuture<List<RecursiveField>> getDependentParametricValues(R parametricRequest);
+
+    ListenableFuture<Set<QueryTagInfo>> getDependentParametricLevel(R parametricRequest, ParametricLevelRequest levelRequest);
+
+    ListenableFuture<List<RangeInfo>> getParametricRanges(R parametricRequest, BucketingParams bucketingParams);
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.types.idol.RecursiveField;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the requests of a {@link ParametricValuesService} on an executor
+ */
+public class AsyncParametricValuesServiceImpl<R extends ParametricRequest<S>, S extends Serializable, E extends Exception> implements AsyncParametricValuesService<R, S> {
+    private final ParametricValuesService<R, S, E> parametricValuesService;
+    private final ListeningExecutorService executorService;
+
+    /**
+     * @param parametricValuesService the service to run requests with
+     * @param executorService         executor to run requests on; this must propagate any thread local state the
+     *                                service depends on, such as the security context
+     */
+    public AsyncParametricValuesServiceImpl(final ParametricValuesService<R, S, E> parametricValuesService, final ListeningExecutorService executorService) {
+        this.parametricValuesService = parametricValuesService;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public ListenableFuture<Set<QueryTagInfo>> getAllParametricValues(final R parametricRequest) {
+        return executorService.submit(new Callable<Set<QueryTagInfo>>() {
+            @Override
+            public Set<QueryTagInfo> call() throws E {
+                return parametricValuesService.getAllParametricValues(parametricRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<List<RecursiveField>> getDependentParametricValues(final R parametricRequest) {
+        return executorService.submit(new Callable<List<RecursiveField>>() {
+            @Override
+            public List<RecursiveField> call() throws E {
+                return parametricValuesService.getDependentParametricValues(parametricRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<Set<QueryTagInfo>> getDependentParametricLevel(final R parametricRequest, final ParametricLevelRequest levelRequest) {
+        return executorService.submit(new Callable<Set<QueryTagInfo>>() {
+            @Override
+            public Set<QueryTagInfo> call() throws E {
+                return parametricValuesService.getDependentParametricLevel(parametricRequest, levelRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<List<RangeInfo>> getParametricRanges(final R parametricRequest, final BucketingParams bucketingParams) {
+        return executorService.submit(new Callable<List<RangeInfo>>() {
+            @Override
+            public List<RangeInfo> call() throws E {
+                return parametricValuesService.getParametricRanges(parametricRequest, bucketingParams);
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Describes how to bucket the values of numeric or date fields.
+ * <p>
+ * If a date period is given, date fields are bucketed by that period. Otherwise numeric fields are split into the given
+ * number of buckets of equal width between min and max; if either bound is not given, the bounds of the values matching
+ * the query are used.
+ */
+@Data
+@NoArgsConstructor
+public class BucketingParams implements Serializable {
+    public static final int NUMBER_OF_BUCKETS_DEFAULT = 10;
+
+    private static final long serialVersionUID = -2712045232370283164L;
+
+    private int numberOfBuckets = NUMBER_OF_BUCKETS_DEFAULT;
+    private Double min;
+    private Double max;
+    private DatePeriod datePeriod;
+
+    public BucketingParams(final int numberOfBuckets, final Double min, final Double max) {
+        this.numberOfBuckets = numberOfBuckets;
+        this.min = min;
+        this.max = max;
+    }
+
+    public BucketingParams(final DatePeriod datePeriod) {
+        this.datePeriod = datePeriod;
+    }
+
+    public boolean hasFixedBounds() {
+        return min != null && max != null;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.hp.autonomy.searchcomponents.core.caching.CacheNames;
+import com.hp.autonomy.searchcomponents.core.requests.RequestExecutors;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.types.idol.RecursiveField;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+import lombok.Data;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of {@link #getAllParametricValues(ParametricRequest)} and
+ * {@link #getDependentParametricLevel(ParametricRequest, ParametricLevelRequest)} from another
+ * {@link ParametricValuesService}; whole trees of dependent parametric values and ranges are not cached.
+ * <p>
+ * Results are keyed on the whole parametric request, including its query restrictions, and the security key of the
+ * current user. Once an entry is older than the refresh interval it continues to be returned while it is reloaded in
+ * the background, using the security context of the request which found it stale. Requests only wait for a load when
+ * there is no entry or it has expired. Levels of dependent values are not refreshed, so that collapsing and expanding
+ * a value again does not send another request until the level expires. Memory use is bounded by the total number of
+ * values held in each cache.
+ */
+public class CachingParametricValuesService<R extends ParametricRequest<S>, S extends Serializable, E extends Exception> implements ParametricValuesService<R, S, E> {
+    public static final long DEFAULT_MAXIMUM_VALUES = 100000L;
+    public static final long DEFAULT_REFRESH_AFTER_SECONDS = 60L;
+    public static final long DEFAULT_EXPIRE_AFTER_SECONDS = 600L;
+
+    private static final int REFRESH_MAX_THREADS = 4;
+    private static final int REFRESH_QUEUE_SIZE = 100;
+
+    private final ParametricValuesService<R, S, E> parametricValuesService;
+    private final QueryResultsCacheKeyProvider cacheKeyProvider;
+    private final Class<E> exceptionType;
+    private final ExecutorService refreshExecutor;
+    private final String cacheName;
+    private final LoadingCache<CacheKey<R>, Set<QueryTagInfo>> cache;
+    private final Cache<LevelCacheKey<R>, Set<QueryTagInfo>> levelCache;
+
+    public CachingParametricValuesService(final ParametricValuesService<R, S, E> parametricValuesService, final QueryResultsCacheKeyProvider cacheKeyProvider, final Class<E> exceptionType) {
+        this(
+                parametricValuesService,
+                cacheKeyProvider,
+                exceptionType,
+                RequestExecutors.newBoundedExecutorService(REFRESH_MAX_THREADS, REFRESH_QUEUE_SIZE, "parametric-values-refresh-%d"),
+                CacheNames.PARAMETRIC_VALUES,
+                DEFAULT_MAXIMUM_VALUES,
+                DEFAULT_REFRESH_AFTER_SECONDS,
+                DEFAULT_EXPIRE_AFTER_SECONDS,
+                TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * @param parametricValuesService the service to cache
+     * @param cacheKeyProvider        provides the security key of the current user
+     * @param exceptionType           the checked exception type thrown by the service
+     * @param refreshExecutor         executor for background refreshes; this must propagate the security context of the
+     *                                submitting thread. Refreshes rejected by the executor are skipped.
+     * @param cacheName               name under which the cache statistics are reported
+     * @param maximumValues           maximum number of parametric values held across all cached results
+     * @param refreshAfter            age after which entries are refreshed in the background
+     * @param expireAfter             age after which requests wait for entries to be reloaded
+     * @param timeUnit                unit of the ages
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public CachingParametricValuesService(
+            final ParametricValuesService<R, S, E> parametricValuesService,
+            final QueryResultsCacheKeyProvider cacheKeyProvider,
+            final Class<E> exceptionType,
+            final ExecutorService refreshExecutor,
+            final String cacheName,
+            final long maximumValues,
+            final long refreshAfter,
+            final long expireAfter,
+            final TimeUnit timeUnit) {
+        this.parametricValuesService = parametricValuesService;
+        this.cacheKeyProvider = cacheKeyProvider;
+        this.exceptionType = exceptionType;
+        this.refreshExecutor = refreshExecutor;
+        this.cacheName = cacheName;
+
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumValues)
+                .weigher(new ValuesWeigher<CacheKey<R>>())
+                .refreshAfterWrite(refreshAfter, timeUnit)
+                .expireAfterWrite(expireAfter, timeUnit)
+                .recordStats()
+                .build(new ParametricValuesLoader());
+
+        levelCache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumValues)
+                .weigher(new ValuesWeigher<LevelCacheKey<R>>())
+                .expireAfterWrite(expireAfter, timeUnit)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Set<QueryTagInfo> getAllParametricValues(final R parametricRequest) throws E {
+        // copy the request so that changes made to it by the caller after the query do not change the key
+        final CacheKey<R> key = new CacheKey<>(SerializationUtils.clone(parametricRequest), cacheKeyProvider.getSecurityKey());
+
+        try {
+            return cache.get(key);
+        } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public List<RecursiveField> getDependentParametricValues(final R parametricRequest) throws E {
+        return parametricValuesService.getDependentParametricValues(parametricRequest);
+    }
+
+    @Override
+    public Set<QueryTagInfo> getDependentParametricLevel(final R parametricRequest, final ParametricLevelRequest levelRequest) throws E {
+        final R requestCopy = SerializationUtils.clone(parametricRequest);
+        final ParametricLevelRequest levelRequestCopy = SerializationUtils.clone(levelRequest);
+        final LevelCacheKey<R> key = new LevelCacheKey<>(requestCopy, levelRequestCopy, cacheKeyProvider.getSecurityKey());
+
+        try {
+            return levelCache.get(key, new Callable<Set<QueryTagInfo>>() {
+                @Override
+                public Set<QueryTagInfo> call() throws E {
+                    return Collections.unmodifiableSet(parametricValuesService.getDependentParametricLevel(requestCopy, levelRequestCopy));
+                }
+            });
+        } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public List<RangeInfo> getParametricRanges(final R parametricRequest, final BucketingParams bucketingParams) throws E {
+        return parametricValuesService.getParametricRanges(parametricRequest, bucketingParams);
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * @return hit, miss, load and refresh statistics for the cache
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return hit, miss and load statistics for the cache of dependent parametric value levels
+     */
+    public CacheStats getLevelStats() {
+        return levelCache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        levelCache.invalidateAll();
+    }
+
+    /**
+     * Stops background refreshes; invoked by Spring when the owning context is closed
+     */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private RuntimeException propagate(final Throwable cause) throws E {
+        Throwables.propagateIfPossible(cause, exceptionType);
+        throw Throwables.propagate(cause);
+    }
+
+    private class ParametricValuesLoader extends CacheLoader<CacheKey<R>, Set<QueryTagInfo>> {
+        @Override
+        public Set<QueryTagInfo> load(final CacheKey<R> key) throws E {
+            // the same set is returned to every caller, so it must not be changed by any of them
+            return Collections.unmodifiableSet(parametricValuesService.getAllParametricValues(key.getParametricRequest()));
+        }
+
+        @Override
+        public ListenableFuture<Set<QueryTagInfo>> reload(final CacheKey<R> key, final Set<QueryTagInfo> oldValue) {
+            // if the refresh fails, the old value continues to be used until it expires
+            final ListenableFutureTask<Set<QueryTagInfo>> task = ListenableFutureTask.create(new Callable<Set<QueryTagInfo>>() {
+                @Override
+                public Set<QueryTagInfo> call() throws E {
+                    return load(key);
+                }
+            });
+
+            try {
+                refreshExecutor.execute(task);
+            } catch (final RejectedExecutionException e) {
+                // skip the refresh rather than running it on the request thread; the entry is refreshed on a later request
+                return Futures.immediateFailedFuture(e);
+            }
+
+            return task;
+        }
+    }
+
+    @Data
+    private static class CacheKey<R extends Serializable> {
+        private final R parametricRequest;
+        private final Serializable securityKey;
+    }
+
+    @Data
+    private static class LevelCacheKey<R extends Serializable> {
+        private final R parametricRequest;
+        private final ParametricLevelRequest levelRequest;
+        private final Serializable securityKey;
+    }
+
+    private static class ValuesWeigher<K> implements Weigher<K, Set<QueryTagInfo>> {
+        @Override
+        public int weigh(final K key, final Set<QueryTagInfo> value) {
+            // count each field as well as its values so that empty results still use some of the capacity
+            int weight = 1;
+
+            for (final QueryTagInfo queryTagInfo : value) {
+                weight += 1 + queryTagInfo.getValues().size();
+            }
+
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import org.joda.time.Period;
+
+/**
+ * Calendar periods which date fields can be bucketed by
+ */
+public enum DatePeriod {
+    YEAR(Period.years(1)),
+    MONTH(Period.months(1)),
+    WEEK(Period.weeks(1)),
+    DAY(Period.days(1)),
+    HOUR(Period.hours(1)),
+    MINUTE(Period.minutes(1)),
+    SECOND(Period.seconds(1));
+
+    private final Period period;
+
+    DatePeriod(final Period period) {
+        this.period = period;
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+}
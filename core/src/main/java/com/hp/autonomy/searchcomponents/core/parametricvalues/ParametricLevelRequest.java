@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Identifies one level of a tree of dependent parametric values, where the fields of the parametric request give the
+ * field for each level
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParametricLevelRequest implements Serializable {
+    private static final long serialVersionUID = 1630768826047627612L;
+
+    /**
+     * The values which were expanded at each level above the requested level, starting from the first field; the number
+     * of values is the depth of the requested level
+     */
+    private List<String> parentValues = Collections.emptyList();
+
+    /**
+     * The maximum number of values to return at each level, starting from the first field
+     */
+    private List<Integer> maxValuesPerLevel = Collections.emptyList();
+
+    public int getDepth() {
+        return parentValues.size();
+    }
+
+    /**
+     * @param defaultMaxValues the maximum to use if none was given for the requested level
+     * @return the maximum number of values to return for the requested level
+     */
+    public Integer getMaxValues(final Integer defaultMaxValues) {
+        final int depth = getDepth();
+        return depth < maxValuesPerLevel.size() && maxValuesPerLevel.get(depth) != null ? maxValuesPerLevel.get(depth) : defaultMaxValues;
+    }
+}
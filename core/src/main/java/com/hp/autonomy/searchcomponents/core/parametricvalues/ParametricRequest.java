@@ -18,4 +18,14 @@ public interface ParametricRequest<S extends Serializable> extends Serializable
     QueryRestrictions<S> getQueryRestrictions();
 
     boolean isModified();
+
+    /**
+     * @return values or wildcard patterns, one of which each returned value must match; if empty, all values are returned
+     */
+    List<String> getValueRestrictions();
+
+    /**
+     * @return the position of the first value to return for each field, starting from 1
+     */
+    Integer getStart();
 }
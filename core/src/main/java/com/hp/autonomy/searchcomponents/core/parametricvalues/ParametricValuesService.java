@@ -18,4 +18,24 @@ public interface ParametricValuesService<R extends ParametricRequest<S>, S exten
 
     List<RecursiveField> getDependentParametricValues(R parametricRequest) throws E;
 
+    /**
+     * Gets one level of a tree of dependent parametric values, so that each level can be fetched when its parent value
+     * is expanded rather than fetching the whole tree at once
+     *
+     * @param parametricRequest the fields for each level of the tree and the query restrictions
+     * @param levelRequest      the values expanded above the requested level and the maximum values for each level
+     * @return the values of the field for the requested level, or an empty set if there is no field at that depth
+     */
+    Set<QueryTagInfo> getDependentParametricLevel(R parametricRequest, ParametricLevelRequest levelRequest) throws E;
+
+    /**
+     * Counts the documents matching the request in buckets of values for each of the requested fields, so that the
+     * size of the response depends on the number of buckets rather than the number of distinct values
+     *
+     * @param parametricRequest the fields and query restrictions; the maximum number of values is ignored
+     * @param bucketingParams   how to divide the values of the fields into buckets
+     * @return the buckets for each field which has values
+     */
+    List<RangeInfo> getParametricRanges(R parametricRequest, BucketingParams bucketingParams) throws E;
+
 }
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * The number of documents with a value in the half open range [min, max); for date fields, the bounds are in seconds
+ * since the epoch
+ */
+@Data
+public class RangeBucket implements Serializable {
+    private static final long serialVersionUID = 7062781474452016815L;
+
+    private final String value;
+    private final double min;
+    private final double max;
+    private final int count;
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utilities for splitting numeric values into buckets of equal width
+ */
+public final class RangeBuckets {
+    private RangeBuckets() {}
+
+    /**
+     * @param min             lower bound of the first bucket
+     * @param max             upper bound of the last bucket
+     * @param numberOfBuckets the number of buckets; if max is not greater than min, a single bucket is used
+     * @return the bounds of each bucket in increasing order, with the upper bound of each bucket being the lower bound
+     * of the next
+     */
+    public static double[] getBoundaries(final double min, final double max, final int numberOfBuckets) {
+        if (max <= min || numberOfBuckets <= 1) {
+            return new double[]{min, max};
+        }
+
+        final double[] boundaries = new double[numberOfBuckets + 1];
+        final double width = (max - min) / numberOfBuckets;
+
+        for (int i = 0; i < numberOfBuckets; i++) {
+            boundaries[i] = min + i * width;
+        }
+
+        // avoid rounding errors excluding the maximum value from the last bucket
+        boundaries[numberOfBuckets] = max;
+        return boundaries;
+    }
+
+    /**
+     * Counts discrete values into buckets, ignoring any which are not numbers or are outside the bounds. The last bucket
+     * includes its upper bound.
+     *
+     * @param values          the values and their document counts
+     * @param bucketingParams the number of buckets and optionally their bounds; if not given, the bounds of the values
+     *                        are used
+     * @return the buckets, in increasing order, or an empty list if there are no numeric values
+     */
+    public static List<RangeBucket> bucketValues(final Collection<QueryTagCountInfo> values, final BucketingParams bucketingParams) {
+        final List<Double> numbers = new ArrayList<>(values.size());
+        final List<Integer> counts = new ArrayList<>(values.size());
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (final QueryTagCountInfo value : values) {
+            if (NumberUtils.isNumber(value.getValue())) {
+                final double number = Double.parseDouble(value.getValue());
+                numbers.add(number);
+                counts.add(value.getCount());
+                min = Math.min(min, number);
+                max = Math.max(max, number);
+            }
+        }
+
+        if (bucketingParams.hasFixedBounds()) {
+            min = bucketingParams.getMin();
+            max = bucketingParams.getMax();
+        } else if (numbers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final double[] boundaries = getBoundaries(min, max, bucketingParams.getNumberOfBuckets());
+        final int[] bucketCounts = new int[boundaries.length - 1];
+
+        for (int i = 0; i < numbers.size(); i++) {
+            final int bucket = findBucket(boundaries, numbers.get(i));
+
+            if (bucket >= 0) {
+                bucketCounts[bucket] += counts.get(i);
+            }
+        }
+
+        final List<RangeBucket> buckets = new ArrayList<>(bucketCounts.length);
+
+        for (int i = 0; i < bucketCounts.length; i++) {
+            buckets.add(new RangeBucket(formatRange(boundaries[i], boundaries[i + 1]), boundaries[i], boundaries[i + 1], bucketCounts[i]));
+        }
+
+        return buckets;
+    }
+
+    /**
+     * @return the name of the range used in IDOL responses
+     */
+    public static String formatRange(final double min, final double max) {
+        return formatBoundary(min) + ',' + formatBoundary(max);
+    }
+
+    public static String formatBoundary(final double boundary) {
+        // print whole numbers without a trailing .0 so that they match IDOL's output
+        return boundary == Math.rint(boundary) && !Double.isInfinite(boundary) ? Long.toString((long) boundary) : Double.toString(boundary);
+    }
+
+    private static int findBucket(final double[] boundaries, final double number) {
+        final int last = boundaries.length - 1;
+
+        if (number < boundaries[0] || number > boundaries[last]) {
+            return -1;
+        }
+
+        for (int i = 0; i < last; i++) {
+            if (number < boundaries[i + 1]) {
+                return i;
+            }
+        }
+
+        return last - 1;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The buckets for one field, in increasing order of their bounds
+ */
+@Data
+@AllArgsConstructor
+public class RangeInfo implements Serializable {
+    private static final long serialVersionUID = -5406839101417530617L;
+
+    private final String name;
+    private final List<RangeBucket> buckets;
+
+    /**
+     * True if the buckets were counted from only some of the values of the field, so their counts may be too low
+     */
+    private final boolean approximate;
+
+    public RangeInfo(final String name, final List<RangeBucket> buckets) {
+        this(name, buckets, false);
+    }
+}
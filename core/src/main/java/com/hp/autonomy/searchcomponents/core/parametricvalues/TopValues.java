@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Merges the values of a parametric field from several sources into the same ordered form as IDOL returns: a
+ * {@link LinkedHashSet} in decreasing order of document count, with ties in alphabetical order
+ */
+public final class TopValues {
+    /**
+     * Orders values from least to most significant, so that the head of a heap is the first value to discard
+     */
+    private static final Comparator<QueryTagCountInfo> LEAST_SIGNIFICANT_FIRST = new Comparator<QueryTagCountInfo>() {
+        @Override
+        public int compare(final QueryTagCountInfo value1, final QueryTagCountInfo value2) {
+            final int countComparison = Integer.compare(value1.getCount(), value2.getCount());
+            return countComparison != 0 ? countComparison : value2.getValue().compareTo(value1.getValue());
+        }
+    };
+
+    private TopValues() {}
+
+    /**
+     * @param valueCollections the values and document counts from each source; counts for the same value are added
+     * @param maxValues        the maximum number of values to return
+     * @return the values with the highest total counts, most significant first
+     */
+    public static Set<QueryTagCountInfo> merge(final Collection<? extends Collection<QueryTagCountInfo>> valueCollections, final int maxValues) {
+        if (maxValues <= 0) {
+            return Collections.emptySet();
+        }
+
+        final Map<String, Integer> counts = new HashMap<>();
+        for (final Collection<QueryTagCountInfo> values : valueCollections) {
+            for (final QueryTagCountInfo value : values) {
+                final Integer count = counts.get(value.getValue());
+                counts.put(value.getValue(), count == null ? value.getCount() : count + value.getCount());
+            }
+        }
+
+        // keep a bounded min-heap of the best values seen so far rather than sorting every value
+        final PriorityQueue<QueryTagCountInfo> heap = new PriorityQueue<>(Math.max(Math.min(maxValues, counts.size()), 1), LEAST_SIGNIFICANT_FIRST);
+        for (final Map.Entry<String, Integer> entry : counts.entrySet()) {
+            final QueryTagCountInfo value = new QueryTagCountInfo(entry.getKey(), entry.getValue());
+
+            if (heap.size() < maxValues) {
+                heap.add(value);
+            } else if (LEAST_SIGNIFICANT_FIRST.compare(value, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+
+        final QueryTagCountInfo[] ordered = new QueryTagCountInfo[heap.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = heap.poll();
+        }
+
+        final Set<QueryTagCountInfo> results = new LinkedHashSet<>(ordered.length);
+        Collections.addAll(results, ordered);
+        return results;
+    }
+}
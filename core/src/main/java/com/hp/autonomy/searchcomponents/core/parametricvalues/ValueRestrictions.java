@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the value restrictions and paging of a {@link ParametricRequest} to values which have already been retrieved,
+ * for back ends which cannot do so themselves. Restrictions match case insensitively, with * matching any sequence of
+ * characters and ? matching any single character, as in IDOL.
+ */
+public final class ValueRestrictions {
+    private ValueRestrictions() {}
+
+    /**
+     * @param values            values in the order they should be returned
+     * @param valueRestrictions values or wildcard patterns, one of which each returned value must match; if empty, all
+     *                          values match
+     * @param start             position of the first matching value to return, starting from 1
+     * @param maxValues         maximum number of values to return; if null, all remaining values are returned
+     * @return the matching values, in their original order
+     */
+    public static Set<QueryTagCountInfo> apply(final Collection<QueryTagCountInfo> values, final List<String> valueRestrictions, final Integer start, final Integer maxValues) {
+        final List<Pattern> patterns = new ArrayList<>(valueRestrictions.size());
+        for (final String valueRestriction : valueRestrictions) {
+            patterns.add(toPattern(valueRestriction));
+        }
+
+        final int skip = start == null ? 0 : Math.max(start - 1, 0);
+        final int limit = maxValues == null ? Integer.MAX_VALUE : maxValues;
+        final Set<QueryTagCountInfo> results = new LinkedHashSet<>();
+        int matched = 0;
+
+        for (final QueryTagCountInfo value : values) {
+            if (results.size() >= limit) {
+                break;
+            }
+
+            if (matches(patterns, value.getValue()) && matched++ >= skip) {
+                results.add(value);
+            }
+        }
+
+        return results;
+    }
+
+    private static boolean matches(final Iterable<Pattern> patterns, final String value) {
+        if (!patterns.iterator().hasNext()) {
+            return true;
+        }
+
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Pattern toPattern(final String valueRestriction) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+
+        for (final char c : valueRestriction.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+/**
+ * Thrown when a batch of parallel requests could not be completed, either because the deadline passed, the calling
+ * thread was interrupted or one of the requests failed with an unexpected checked exception
+ */
+public class ParallelRequestException extends RuntimeException {
+    private static final long serialVersionUID = -3406719487310586542L;
+
+    public ParallelRequestException(final String message) {
+        super(message);
+    }
+
+    public ParallelRequestException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent back end requests (e.g. one per index) in parallel on a bounded pool.
+ * <p>
+ * Results are always returned in the order the requests were supplied. The first failure cancels all outstanding
+ * requests and is rethrown to the caller, as is a timeout if the whole batch does not complete before the deadline.
+ * Requests are never run on the calling thread when the pool is saturated, since they could then overrun the deadline;
+ * the batch fails with a {@link ParallelRequestException} instead. The security context of the calling thread is
+ * propagated to the pool threads.
+ */
+public class ParallelRequestExecutor {
+    private final ExecutorService executorService;
+    private final long timeoutNanos;
+
+    /**
+     * Creates an executor backed by a new bounded thread pool. When both the pool and its queue are full, requests are
+     * rejected.
+     *
+     * @param maxThreads    maximum number of requests in flight, should not exceed the connections per route of the http client
+     * @param queueSize     maximum number of requests waiting for a pool thread
+     * @param timeoutMillis deadline for each batch of requests
+     */
+    public ParallelRequestExecutor(final int maxThreads, final int queueSize, final long timeoutMillis) {
+        this(RequestExecutors.newBoundedExecutorService(maxThreads, queueSize, "parallel-request-%d"), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param executorService executor to run requests on; it is the caller's responsibility to propagate any thread local
+     *                        state the requests depend on
+     * @param timeout         deadline for each batch of requests
+     * @param timeUnit        unit of the timeout
+     */
+    public ParallelRequestExecutor(final ExecutorService executorService, final long timeout, final TimeUnit timeUnit) {
+        this.executorService = executorService;
+        timeoutNanos = timeUnit.toNanos(timeout);
+    }
+
+    /**
+     * @return an executor which runs every request in turn on the calling thread
+     */
+    public static ParallelRequestExecutor serial() {
+        return new ParallelRequestExecutor(null, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the given requests, failing on the first unchecked exception
+     *
+     * @param requests the requests to run
+     * @param <T>      the type of the request results
+     * @return the results, in the same order as the requests
+     */
+    public <T> List<T> invokeAll(final List<? extends Callable<T>> requests) {
+        return invokeAll(requests, RuntimeException.class);
+    }
+
+    /**
+     * Runs the given requests, failing on the first exception
+     *
+     * @param requests      the requests to run
+     * @param exceptionType checked exception type which the requests may throw; this is rethrown as is
+     * @param <T>           the type of the request results
+     * @param <E>           the checked exception type
+     * @return the results, in the same order as the requests
+     * @throws E if any of the requests fails with an exception of this type
+     */
+    public <T, E extends Exception> List<T> invokeAll(final List<? extends Callable<T>> requests, final Class<E> exceptionType) throws E {
+        if (executorService == null || requests.size() <= 1) {
+            return invokeSerially(requests, exceptionType);
+        }
+
+        final CompletionService<T> completionService = new ExecutorCompletionService<>(executorService);
+        final List<Future<T>> futures = new ArrayList<>(requests.size());
+        final long deadline = System.nanoTime() + timeoutNanos;
+
+        try {
+            for (final Callable<T> request : requests) {
+                futures.add(completionService.submit(request));
+            }
+        } catch (final RejectedExecutionException e) {
+            cancelAll(futures);
+            throw new ParallelRequestException("Too many requests waiting, rejected " + (requests.size() - futures.size()) + " of " + requests.size() + " requests", e);
+        }
+
+        try {
+            // wait for completion in whatever order the requests finish so the first failure is seen immediately
+            for (int i = 0; i < futures.size(); i++) {
+                final Future<T> completed = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+                if (completed == null) {
+                    throw new ParallelRequestException("Timed out waiting for " + (futures.size() - i) + " of " + futures.size() + " requests");
+                }
+
+                completed.get();
+            }
+
+            final List<T> results = new ArrayList<>(futures.size());
+
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParallelRequestException("Interrupted waiting for requests", e);
+        } catch (final ExecutionException e) {
+            throw rethrow(e.getCause(), exceptionType);
+        } finally {
+            cancelAll(futures);
+        }
+    }
+
+    /**
+     * Starts a single request without waiting for it to complete. Without a pool, the request is run on the calling
+     * thread before this returns. Fails with a {@link ParallelRequestException} if the pool is saturated.
+     *
+     * @param request the request to run
+     * @param <T>     the type of the request result
+     * @return the pending result, to be read with {@link #get(Future)}
+     */
+    public <T> Future<T> submit(final Callable<T> request) {
+        if (executorService == null) {
+            final FutureTask<T> task = new FutureTask<>(request);
+            task.run();
+            return task;
+        }
+
+        try {
+            return executorService.submit(request);
+        } catch (final RejectedExecutionException e) {
+            throw new ParallelRequestException("Too many requests waiting, rejected request", e);
+        }
+    }
+
+    /**
+     * Waits for a request started by {@link #submit(Callable)}, failing as {@link #invokeAll(List)} does. The request
+     * is cancelled if it does not complete before the deadline.
+     *
+     * @param future the pending result
+     * @param <T>    the type of the request result
+     * @return the result
+     */
+    public <T> T get(final Future<T> future) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ParallelRequestException("Interrupted waiting for request", e);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            throw new ParallelRequestException("Timed out waiting for request", e);
+        } catch (final ExecutionException e) {
+            throw rethrow(e.getCause(), RuntimeException.class);
+        }
+    }
+
+    /**
+     * Shuts down the underlying pool; invoked by Spring when the owning context is closed
+     */
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private <T, E extends Exception> List<T> invokeSerially(final List<? extends Callable<T>> requests, final Class<E> exceptionType) throws E {
+        final List<T> results = new ArrayList<>(requests.size());
+
+        for (final Callable<T> request : requests) {
+            try {
+                results.add(request.call());
+            } catch (final Exception e) {
+                throw rethrow(e, exceptionType);
+            }
+        }
+
+        return results;
+    }
+
+    private <T> void cancelAll(final Iterable<Future<T>> futures) {
+        for (final Future<T> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private <E extends Exception> E rethrow(final Throwable cause, final Class<E> exceptionType) throws E {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        if (exceptionType.isInstance(cause)) {
+            throw exceptionType.cast(cause);
+        }
+
+        throw new ParallelRequestException("Request failed", cause);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates thread pools for running back end requests
+ */
+public final class RequestExecutors {
+    private static final long POOL_KEEP_ALIVE_SECONDS = 60L;
+
+    private RequestExecutors() {
+    }
+
+    /**
+     * Creates a bounded thread pool which propagates the security context of the submitting thread. When both the pool
+     * and its queue are full, requests are rejected with a {@link java.util.concurrent.RejectedExecutionException}
+     * rather than run on the submitting thread, where they could not be held to a deadline.
+     *
+     * @param maxThreads maximum number of requests in flight, should not exceed the connections per route of the http client
+     * @param queueSize  maximum number of requests waiting for a pool thread
+     * @param nameFormat format for the names of the pool threads
+     * @return the pool
+     */
+    public static ExecutorService newBoundedExecutorService(final int maxThreads, final int queueSize, final String nameFormat) {
+        return newBoundedExecutorService(maxThreads, queueSize, nameFormat, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Creates a bounded thread pool which propagates the security context of the submitting thread
+     *
+     * @param maxThreads               maximum number of requests in flight, should not exceed the connections per route of the http client
+     * @param queueSize                maximum number of requests waiting for a pool thread
+     * @param nameFormat               format for the names of the pool threads
+     * @param rejectedExecutionHandler invoked when both the pool and its queue are full
+     * @return the pool
+     */
+    public static ExecutorService newBoundedExecutorService(final int maxThreads, final int queueSize, final String nameFormat, final RejectedExecutionHandler rejectedExecutionHandler) {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                POOL_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+                rejectedExecutionHandler
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        return new DelegatingSecurityContextExecutorService(threadPoolExecutor);
+    }
+}
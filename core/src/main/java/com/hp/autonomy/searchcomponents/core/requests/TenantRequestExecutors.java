@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds a separate bounded pool for each tenant, so that one tenant with many parallel requests cannot use up the
+ * threads or back end connections available to the others.
+ * <p>
+ * Pools are created when a tenant first makes a request. Their threads time out when idle, and a pool which has not
+ * been used for the idle time is shut down once its outstanding requests complete. The executors returned by
+ * {@link #get(String)} look up the pool of their tenant for every request, which counts as a use of the pool, so an
+ * executor held for longer than the idle time (e.g. by a {@link com.hp.autonomy.searchcomponents.core.search.DocumentsIterator})
+ * submits to a new pool rather than to one which has been shut down.
+ */
+public class TenantRequestExecutors {
+    private static final long DEFAULT_POOL_IDLE_MINUTES = 10L;
+
+    private final AtomicInteger poolCount = new AtomicInteger();
+    private final long timeoutMillis;
+    private final LoadingCache<String, ExecutorService> executorServices;
+    private volatile boolean shutdown;
+
+    /**
+     * @param maxThreadsPerTenant maximum number of requests in flight for each tenant
+     * @param queueSizePerTenant  maximum number of requests waiting for a thread for each tenant; when this is full,
+     *                            requests are rejected
+     * @param timeoutMillis       deadline for each batch of requests
+     */
+    public TenantRequestExecutors(final int maxThreadsPerTenant, final int queueSizePerTenant, final long timeoutMillis) {
+        this(maxThreadsPerTenant, queueSizePerTenant, timeoutMillis, DEFAULT_POOL_IDLE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public TenantRequestExecutors(final int maxThreadsPerTenant, final int queueSizePerTenant, final long timeoutMillis, final long poolIdleTime, final TimeUnit poolIdleTimeUnit) {
+        this.timeoutMillis = timeoutMillis;
+
+        executorServices = CacheBuilder.newBuilder()
+                .expireAfterAccess(poolIdleTime, poolIdleTimeUnit)
+                .removalListener(new RemovalListener<String, ExecutorService>() {
+                    @Override
+                    public void onRemoval(final RemovalNotification<String, ExecutorService> notification) {
+                        // let requests which are already running complete
+                        notification.getValue().shutdown();
+                    }
+                })
+                .build(new CacheLoader<String, ExecutorService>() {
+                    @Override
+                    public ExecutorService load(final String tenant) {
+                        return RequestExecutors.newBoundedExecutorService(maxThreadsPerTenant, queueSizePerTenant, "tenant-request-" + poolCount.incrementAndGet() + "-%d");
+                    }
+                });
+    }
+
+    /**
+     * @param tenant identifies the tenant, e.g. the domain of the current application
+     * @return an executor which runs requests on the pool of the given tenant
+     */
+    public ParallelRequestExecutor get(final String tenant) {
+        return new ParallelRequestExecutor(new TenantExecutorService(tenant), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Shuts down the pools of all tenants; invoked by Spring when the owning context is closed
+     */
+    public void shutdown() {
+        shutdown = true;
+        executorServices.invalidateAll();
+        executorServices.cleanUp();
+    }
+
+    private void execute(final String tenant, final Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Tenant request executors have been shut down");
+        }
+
+        final ExecutorService executorService = executorServices.getUnchecked(tenant);
+
+        try {
+            executorService.execute(command);
+        } catch (final RejectedExecutionException e) {
+            // the pool expired between being looked up and the request being submitted; it has already been removed
+            // from the cache, so the request goes to a new pool
+            if (shutdown || !executorService.isShutdown()) {
+                throw e;
+            }
+
+            executorServices.getUnchecked(tenant).execute(command);
+        }
+    }
+
+    /**
+     * Submits each request to the current pool of a tenant. The pools themselves are shut down by
+     * {@link TenantRequestExecutors}, not through this view.
+     */
+    private class TenantExecutorService extends AbstractExecutorService {
+        private final String tenant;
+
+        private TenantExecutorService(final String tenant) {
+            this.tenant = tenant;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            TenantRequestExecutors.this.execute(tenant, command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+            return shutdown;
+        }
+    }
+}
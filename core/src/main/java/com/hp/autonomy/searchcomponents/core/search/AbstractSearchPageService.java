@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricRequest;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestException;
+import com.hp.autonomy.types.requests.Documents;
+import com.hp.autonomy.types.requests.idol.actions.query.QuerySummaryElement;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the requests for each section of a search page in parallel on an executor, sharing one copy of the query
+ * restrictions between them.
+ *
+ * @param <S> the type of database identifiers
+ * @param <D> the type of search results
+ * @param <Q> the type of related concepts
+ * @param <R> the type of parametric requests
+ * @param <E> the checked exception thrown by the back end services
+ */
+public abstract class AbstractSearchPageService<S extends Serializable, D extends SearchResult, Q extends QuerySummaryElement, R extends ParametricRequest<S>, E extends Exception> implements SearchPageService<S, D, Q> {
+    private final DocumentsService<S, D, E> documentsService;
+    private final ParametricValuesService<R, S, E> parametricValuesService;
+    private final RelatedConceptsService<Q, S, E> relatedConceptsService;
+    private final ListeningExecutorService executorService;
+    private final long timeoutNanos;
+
+    /**
+     * @param executorService executor to run the sections on; this must propagate any thread local state the services
+     *                        depend on, such as the security context. Sections rejected by the executor fail.
+     * @param timeout         time after which sections which have not completed are cancelled
+     * @param timeUnit        unit of the timeout
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    protected AbstractSearchPageService(
+            final DocumentsService<S, D, E> documentsService,
+            final ParametricValuesService<R, S, E> parametricValuesService,
+            final RelatedConceptsService<Q, S, E> relatedConceptsService,
+            final ListeningExecutorService executorService,
+            final long timeout,
+            final TimeUnit timeUnit) {
+        this.documentsService = documentsService;
+        this.parametricValuesService = parametricValuesService;
+        this.relatedConceptsService = relatedConceptsService;
+        this.executorService = executorService;
+        timeoutNanos = timeUnit.toNanos(timeout);
+    }
+
+    @Override
+    public SearchPageResult<D, Q> getSearchPage(final SearchPageRequest<S> searchPageRequest) {
+        final long start = System.nanoTime();
+        final Set<SearchPageSection> sections = searchPageRequest.getSections();
+        final QueryRestrictions<S> queryRestrictions = prepareQueryRestrictions(searchPageRequest.getQueryRestrictions());
+
+        final SearchRequest<S> searchRequest = new SearchRequest<>(
+                queryRestrictions,
+                searchPageRequest.getStart(),
+                searchPageRequest.getMaxResults(),
+                searchPageRequest.getSummary(),
+                searchPageRequest.getSummaryCharacters(),
+                searchPageRequest.getSort(),
+                searchPageRequest.isHighlight(),
+                searchPageRequest.isAutoCorrect(),
+                searchPageRequest.getQueryType()
+        );
+
+        final Collection<Future<?>> futures = new ArrayList<>();
+
+        try {
+            final ListenableFuture<SearchPageSectionResult<Documents<D>>> results = sections.contains(SearchPageSection.RESULTS) ? submit(futures, new Callable<Documents<D>>() {
+                @Override
+                public Documents<D> call() throws E {
+                    return documentsService.queryTextIndex(searchRequest);
+                }
+            }) : null;
+
+            final ListenableFuture<SearchPageSectionResult<Documents<D>>> promotions = sections.contains(SearchPageSection.PROMOTIONS) ? submit(futures, new Callable<Documents<D>>() {
+                @Override
+                public Documents<D> call() throws E {
+                    return documentsService.queryTextIndexForPromotions(searchRequest);
+                }
+            }) : null;
+
+            final ListenableFuture<SearchPageSectionResult<Set<QueryTagInfo>>> parametricValues = sections.contains(SearchPageSection.PARAMETRIC_VALUES) ? submit(futures, new Callable<Set<QueryTagInfo>>() {
+                @Override
+                public Set<QueryTagInfo> call() throws E {
+                    return parametricValuesService.getAllParametricValues(createParametricRequest(searchPageRequest, queryRestrictions));
+                }
+            }) : null;
+
+            final ListenableFuture<SearchPageSectionResult<List<Q>>> relatedConcepts = sections.contains(SearchPageSection.RELATED_CONCEPTS) ? submit(futures, new Callable<List<Q>>() {
+                @Override
+                public List<Q> call() throws E {
+                    return relatedConceptsService.findRelatedConcepts(createRelatedConceptsRequest(searchPageRequest, queryRestrictions));
+                }
+            }) : null;
+
+            final long deadline = start + timeoutNanos;
+
+            return new SearchPageResult<>(
+                    getSectionResult(results, start, deadline),
+                    getSectionResult(promotions, start, deadline),
+                    getSectionResult(parametricValues, start, deadline),
+                    getSectionResult(relatedConcepts, start, deadline),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            );
+        } finally {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Prepares the query restrictions once for all sections, e.g. by building any request parameters they require
+     *
+     * @param queryRestrictions the restrictions from the request
+     * @return restrictions to use in the request for each section
+     */
+    protected QueryRestrictions<S> prepareQueryRestrictions(final QueryRestrictions<S> queryRestrictions) {
+        return queryRestrictions;
+    }
+
+    protected abstract R createParametricRequest(SearchPageRequest<S> searchPageRequest, QueryRestrictions<S> queryRestrictions);
+
+    protected abstract RelatedConceptsRequest<S> createRelatedConceptsRequest(SearchPageRequest<S> searchPageRequest, QueryRestrictions<S> queryRestrictions);
+
+    private <T> ListenableFuture<SearchPageSectionResult<T>> submit(final Collection<Future<?>> futures, final Callable<T> request) {
+        final Callable<SearchPageSectionResult<T>> section = new Callable<SearchPageSectionResult<T>>() {
+            @Override
+            public SearchPageSectionResult<T> call() {
+                final long start = System.nanoTime();
+
+                try {
+                    final T value = request.call();
+                    return SearchPageSectionResult.success(value, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                } catch (final Exception e) {
+                    return SearchPageSectionResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            }
+        };
+
+        final ListenableFuture<SearchPageSectionResult<T>> future;
+
+        try {
+            future = executorService.submit(section);
+        } catch (final RejectedExecutionException e) {
+            // a saturated executor fails the section rather than running it on the calling thread past the deadline
+            return Futures.immediateFuture(SearchPageSectionResult.<T>failure(new ParallelRequestException("Too many requests waiting, rejected search page section", e), 0L));
+        }
+
+        futures.add(future);
+        return future;
+    }
+
+    private <T> SearchPageSectionResult<T> getSectionResult(final Future<SearchPageSectionResult<T>> future, final long start, final long deadline) {
+        if (future == null) {
+            return null;
+        }
+
+        try {
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParallelRequestException("Interrupted waiting for search page", e);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            return SearchPageSectionResult.failure(new ParallelRequestException("Timed out waiting for search page section", e), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (final ExecutionException e) {
+            // only possible if the section throws an Error
+            throw new ParallelRequestException("Search page section failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.hp.autonomy.types.requests.Documents;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Non blocking counterpart of {@link DocumentsService}. Each method returns immediately; if the request fails, the
+ * future fails with the exception the synchronous service would have thrown.
+ */
+public interface AsyncDocumentsService<S extends Serializable, D extends SearchResult> {
+
+    ListenableFuture<Documents<D>> queryTextIndex(SearchRequest<S> searchRequest);
+
+    ListenableFuture<Documents<D>> queryTextIndexForPromotions(SearchRequest<S> searchRequest);
+
+    ListenableFuture<Documents<D>> findSimilar(SuggestRequest<S> suggestRequest);
+
+    ListenableFuture<List<D>> getDocumentContent(GetContentRequest<S> request);
+
+    ListenableFuture<String> getStateToken(QueryRestrictions<S> queryRestrictions, int maxResults);
+
+    ListenableFuture<StateTokenAndResultCount> getStateTokenAndResultCount(QueryRestrictions<S> queryRestrictions, int maxResults);
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.types.requests.Documents;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the requests of a {@link DocumentsService} on an executor
+ */
+public class AsyncDocumentsServiceImpl<S extends Serializable, D extends SearchResult, E extends Exception> implements AsyncDocumentsService<S, D> {
+    private final DocumentsService<S, D, E> documentsService;
+    private final ListeningExecutorService executorService;
+
+    /**
+     * @param documentsService the service to run requests with
+     * @param executorService  executor to run requests on; this must propagate any thread local state the service
+     *                         depends on, such as the security context
+     */
+    public AsyncDocumentsServiceImpl(final DocumentsService<S, D, E> documentsService, final ListeningExecutorService executorService) {
+        this.documentsService = documentsService;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public ListenableFuture<Documents<D>> queryTextIndex(final SearchRequest<S> searchRequest) {
+        return executorService.submit(new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws E {
+                return documentsService.queryTextIndex(searchRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<Documents<D>> queryTextIndexForPromotions(final SearchRequest<S> searchRequest) {
+        return executorService.submit(new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws E {
+                return documentsService.queryTextIndexForPromotions(searchRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<Documents<D>> findSimilar(final SuggestRequest<S> suggestRequest) {
+        return executorService.submit(new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws E {
+                return documentsService.findSimilar(suggestRequest);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<List<D>> getDocumentContent(final GetContentRequest<S> request) {
+        return executorService.submit(new Callable<List<D>>() {
+            @Override
+            public List<D> call() throws E {
+                return documentsService.getDocumentContent(request);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<String> getStateToken(final QueryRestrictions<S> queryRestrictions, final int maxResults) {
+        return executorService.submit(new Callable<String>() {
+            @Override
+            public String call() throws E {
+                return documentsService.getStateToken(queryRestrictions, maxResults);
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<StateTokenAndResultCount> getStateTokenAndResultCount(final QueryRestrictions<S> queryRestrictions, final int maxResults) {
+        return executorService.submit(new Callable<StateTokenAndResultCount>() {
+            @Override
+            public StateTokenAndResultCount call() throws E {
+                return documentsService.getStateTokenAndResultCount(queryRestrictions, maxResults);
+            }
+        });
+    }
+}
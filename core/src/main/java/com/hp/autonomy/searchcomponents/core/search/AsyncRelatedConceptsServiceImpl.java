@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.types.requests.idol.actions.query.QuerySummaryElement;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the requests of a {@link RelatedConceptsService} on an executor
+ */
+public class AsyncRelatedConceptsServiceImpl<Q extends QuerySummaryElement, S extends Serializable, E extends Exception> implements AsyncRelatedConceptsService<Q, S> {
+    private final RelatedConceptsService<Q, S, E> relatedConceptsService;
+    private final ListeningExecutorService executorService;
+
+    /**
+     * @param relatedConceptsService the service to run requests with
+     * @param executorService        executor to run requests on; this must propagate any thread local state the
+     *                               service depends on, such as the security context
+     */
+    public AsyncRelatedConceptsServiceImpl(final RelatedConceptsService<Q, S, E> relatedConceptsService, final ListeningExecutorService executorService) {
+        this.relatedConceptsService = relatedConceptsService;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public ListenableFuture<List<Q>> findRelatedConcepts(final RelatedConceptsRequest<S> relatedConceptsRequest) {
+        return executorService.submit(new Callable<List<Q>>() {
+            @Override
+            public List<Q> call() throws E {
+                return relatedConceptsService.findRelatedConcepts(relatedConceptsRequest);
+            }
+        });
+    }
+}
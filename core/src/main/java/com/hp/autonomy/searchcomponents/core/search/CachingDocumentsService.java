@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.hp.autonomy.searchcomponents.core.caching.CacheNames;
+import com.hp.autonomy.types.requests.Documents;
+import lombok.Data;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of {@link #queryTextIndex(SearchRequest)} and {@link #queryTextIndexForPromotions(SearchRequest)}
+ * from another {@link DocumentsService}; all other methods are passed straight through. Use
+ * {@link CachingExportingDocumentsService} to cache an {@link ExportingDocumentsService}.
+ * <p>
+ * Results are keyed on the whole search request, including its query restrictions, and the security key of the current
+ * user, so they are only shared between users who would see the same documents. Concurrent requests for the same key
+ * wait for a single query rather than all querying the delegate.
+ * <p>
+ * Memory use is bounded by the total number of documents held in the cache and entries expire a fixed time after they
+ * were loaded. Spring's {@link org.springframework.cache.annotation.Cacheable} is not used as it cannot make concurrent
+ * callers wait for a single load.
+ * <p>
+ * The same results are returned to every caller, so the list of documents is made unmodifiable before it is cached.
+ * Subclasses of {@link Documents} are cached as they are and must protect their own lists.
+ */
+public class CachingDocumentsService<S extends Serializable, D extends SearchResult, E extends Exception> implements DocumentsService<S, D, E> {
+    public static final long DEFAULT_MAXIMUM_DOCUMENTS = 100000L;
+    public static final long DEFAULT_EXPIRE_AFTER_SECONDS = 60L;
+
+    private final DocumentsService<S, D, E> documentsService;
+    private final QueryResultsCacheKeyProvider cacheKeyProvider;
+    private final Class<E> exceptionType;
+    private final String cacheName;
+    private final Cache<CacheKey<S>, Documents<D>> cache;
+    private final AtomicLong uncountedHits = new AtomicLong();
+
+    public CachingDocumentsService(final DocumentsService<S, D, E> documentsService, final QueryResultsCacheKeyProvider cacheKeyProvider, final Class<E> exceptionType) {
+        this(documentsService, cacheKeyProvider, exceptionType, CacheNames.QUERY_TEXT_INDEX, DEFAULT_MAXIMUM_DOCUMENTS, DEFAULT_EXPIRE_AFTER_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param documentsService  the service to cache
+     * @param cacheKeyProvider  provides the security key of the current user
+     * @param exceptionType     the checked exception type thrown by the service
+     * @param cacheName         name under which the cache statistics are reported
+     * @param maximumDocuments  maximum number of documents held across all cached results
+     * @param expireAfterWrite  time after which cached results expire
+     * @param timeUnit          unit of expireAfterWrite
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public CachingDocumentsService(
+            final DocumentsService<S, D, E> documentsService,
+            final QueryResultsCacheKeyProvider cacheKeyProvider,
+            final Class<E> exceptionType,
+            final String cacheName,
+            final long maximumDocuments,
+            final long expireAfterWrite,
+            final TimeUnit timeUnit) {
+        this.documentsService = documentsService;
+        this.cacheKeyProvider = cacheKeyProvider;
+        this.exceptionType = exceptionType;
+        this.cacheName = cacheName;
+
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumDocuments)
+                .weigher(new DocumentsWeigher<S, D>())
+                .expireAfterWrite(expireAfterWrite, timeUnit)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Documents<D> queryTextIndex(final SearchRequest<S> searchRequest) throws E {
+        return getDocuments(false, searchRequest, new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws E {
+                return documentsService.queryTextIndex(searchRequest);
+            }
+        });
+    }
+
+    @Override
+    public Documents<D> queryTextIndexForPromotions(final SearchRequest<S> searchRequest) throws E {
+        return getDocuments(true, searchRequest, new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws E {
+                return documentsService.queryTextIndexForPromotions(searchRequest);
+            }
+        });
+    }
+
+    @Override
+    public Documents<D> findSimilar(final SuggestRequest<S> suggestRequest) throws E {
+        return documentsService.findSimilar(suggestRequest);
+    }
+
+    @Override
+    public List<D> getDocumentContent(final GetContentRequest<S> request) throws E {
+        return documentsService.getDocumentContent(request);
+    }
+
+    @Override
+    public String getStateToken(final QueryRestrictions<S> queryRestrictions, final int maxResults) throws E {
+        return documentsService.getStateToken(queryRestrictions, maxResults);
+    }
+
+    @Override
+    public StateTokenAndResultCount getStateTokenAndResultCount(final QueryRestrictions<S> queryRestrictions, final int maxResults) throws E {
+        return documentsService.getStateTokenAndResultCount(queryRestrictions, maxResults);
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * @return hit, miss and load statistics for the cache
+     */
+    public CacheStats getStats() {
+        return cache.stats().plus(new CacheStats(uncountedHits.get(), 0L, 0L, 0L, 0L, 0L));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Documents<D> getDocuments(final boolean promotions, final SearchRequest<S> searchRequest, final Callable<Documents<D>> loader) throws E {
+        final Serializable securityKey = cacheKeyProvider.getSecurityKey();
+        // look up the request as it is, so that hits do not have to copy it; the map view does not record statistics
+        final Documents<D> cachedDocuments = cache.asMap().get(new CacheKey<>(promotions, searchRequest, securityKey));
+        if (cachedDocuments != null) {
+            uncountedHits.incrementAndGet();
+            return cachedDocuments;
+        }
+
+        // copy the request before it is stored so that changes made to it by the caller after the query do not change the key
+        final CacheKey<S> key = new CacheKey<>(promotions, SerializationUtils.clone(searchRequest), securityKey);
+
+        try {
+            return cache.get(key, new Callable<Documents<D>>() {
+                @Override
+                public Documents<D> call() throws Exception {
+                    return unmodifiableDocuments(loader.call());
+                }
+            });
+        } catch (final ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            final Throwable cause = e.getCause();
+            Throwables.propagateIfPossible(cause, exceptionType);
+            throw Throwables.propagate(cause);
+        }
+    }
+
+    private Documents<D> unmodifiableDocuments(final Documents<D> documents) {
+        return documents.getClass() == Documents.class && documents.getDocuments() != null ? new UnmodifiableDocuments<>(documents) : documents;
+    }
+
+    @Data
+    private static class CacheKey<S extends Serializable> {
+        private final boolean promotions;
+        private final SearchRequest<S> searchRequest;
+        private final Serializable securityKey;
+    }
+
+    private static class UnmodifiableDocuments<D extends Serializable> extends Documents<D> {
+        private static final long serialVersionUID = 4283542738155284461L;
+
+        // Documents copies the list it is given into a list of its own, so the view is taken of that copy
+        private final List<D> documents;
+
+        private UnmodifiableDocuments(final Documents<D> documents) {
+            super(documents.getDocuments(), documents.getTotalResults(), documents.getExpandedQuery(), documents.getSuggestion(), documents.getAutoCorrection(), documents.getWarnings());
+            this.documents = Collections.unmodifiableList(super.getDocuments());
+        }
+
+        @Override
+        public List<D> getDocuments() {
+            return documents;
+        }
+    }
+
+    private static class DocumentsWeigher<S extends Serializable, D extends SearchResult> implements Weigher<CacheKey<S>, Documents<D>> {
+        @Override
+        public int weigh(final CacheKey<S> key, final Documents<D> value) {
+            // count the result set itself so that empty results still use some of the capacity
+            return 1 + (value.getDocuments() == null ? 0 : value.getDocuments().size());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CachingDocumentsService} for an {@link ExportingDocumentsService}. Exports are passed straight through and
+ * their results are never cached.
+ */
+public class CachingExportingDocumentsService<S extends Serializable, D extends SearchResult, E extends Exception> extends CachingDocumentsService<S, D, E> implements ExportingDocumentsService<S, D, E> {
+    private final ExportingDocumentsService<S, D, E> exportingDocumentsService;
+
+    public CachingExportingDocumentsService(final ExportingDocumentsService<S, D, E> documentsService, final QueryResultsCacheKeyProvider cacheKeyProvider, final Class<E> exceptionType) {
+        super(documentsService, cacheKeyProvider, exceptionType);
+        exportingDocumentsService = documentsService;
+    }
+
+    /**
+     * @see CachingDocumentsService#CachingDocumentsService(DocumentsService, QueryResultsCacheKeyProvider, Class, String, long, long, TimeUnit)
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public CachingExportingDocumentsService(
+            final ExportingDocumentsService<S, D, E> documentsService,
+            final QueryResultsCacheKeyProvider cacheKeyProvider,
+            final Class<E> exceptionType,
+            final String cacheName,
+            final long maximumDocuments,
+            final long expireAfterWrite,
+            final TimeUnit timeUnit) {
+        super(documentsService, cacheKeyProvider, exceptionType, cacheName, maximumDocuments, expireAfterWrite, timeUnit);
+        exportingDocumentsService = documentsService;
+    }
+
+    @Override
+    public DocumentsIterator<D> iterateDocuments(final SearchRequest<S> searchRequest, final int windowSize) throws E {
+        return exportingDocumentsService.iterateDocuments(searchRequest, windowSize);
+    }
+
+    @Override
+    public int exportDocuments(final SearchRequest<S> searchRequest, final int windowSize, final DocumentSink<? super D> sink) throws E, IOException {
+        return exportingDocumentsService.exportDocuments(searchRequest, windowSize, sink);
+    }
+
+    @Override
+    public void writeQueryResults(final SearchRequest<S> searchRequest, final DocumentSink<? super D> sink) throws E, IOException {
+        exportingDocumentsService.writeQueryResults(searchRequest, sink);
+    }
+}
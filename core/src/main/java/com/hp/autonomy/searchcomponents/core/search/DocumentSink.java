@@ -0,0 +1,18 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import java.io.IOException;
+
+/**
+ * Receives the documents of an export one at a time, e.g. to write them to a response, so that the whole result set is
+ * never held in memory
+ *
+ * @param <D> The type of the documents
+ */
+public interface DocumentSink<D> {
+    void write(D document) throws IOException;
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.types.requests.Documents;
+
+import java.io.Serializable;
+
+/**
+ * Supplies the results of a query one window at a time, for a {@link DocumentsIterator}. Windows are requested in
+ * order and never concurrently, though not necessarily on the same thread, so implementations may keep their position
+ * in plain fields.
+ *
+ * @param <D> The type of the documents
+ * @param <E> The checked exception thrown in the event of an error
+ */
+public interface DocumentWindowSource<D extends Serializable, E extends Exception> {
+    /**
+     * @return the next window of results, which may be empty, or null if there are no more results. The total results
+     * of the first window are taken as the total for the whole query.
+     * @throws E if the back end request fails
+     */
+    Documents<D> nextWindow() throws E;
+}
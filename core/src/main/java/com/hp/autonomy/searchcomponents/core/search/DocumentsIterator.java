@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestException;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.types.requests.Documents;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over all the results of a query, requesting them from a {@link DocumentWindowSource} one window at a time.
+ * <p>
+ * The next window is requested as soon as the consumer starts on the current one, so at most two windows are held in
+ * memory. A failed window request is rethrown from {@link #hasNext()} as a {@link ParallelRequestException}, or as is
+ * if it is unchecked. Iterators should be closed if they are abandoned before the end, to cancel any pending request.
+ *
+ * @param <D> The type of the documents
+ */
+public class DocumentsIterator<D extends Serializable> implements Iterator<D>, Closeable {
+    private final ParallelRequestExecutor parallelRequestExecutor;
+    private final Callable<Documents<D>> windowRequest;
+
+    private Iterator<D> currentWindow = Collections.emptyIterator();
+    private Future<Documents<D>> nextWindow;
+    private Integer totalResults;
+    private int returnedCount;
+
+    /**
+     * @param windowSource            supplies the windows of results
+     * @param parallelRequestExecutor runs the window requests; the first one is started immediately
+     */
+    public DocumentsIterator(final DocumentWindowSource<D, ?> windowSource, final ParallelRequestExecutor parallelRequestExecutor) {
+        this.parallelRequestExecutor = parallelRequestExecutor;
+
+        windowRequest = new Callable<Documents<D>>() {
+            @Override
+            public Documents<D> call() throws Exception {
+                return windowSource.nextWindow();
+            }
+        };
+
+        nextWindow = parallelRequestExecutor.submit(windowRequest);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentWindow.hasNext()) {
+            if (nextWindow == null) {
+                return false;
+            }
+
+            final Documents<D> window = parallelRequestExecutor.get(nextWindow);
+
+            if (window == null) {
+                nextWindow = null;
+                return false;
+            }
+
+            if (totalResults == null) {
+                totalResults = window.getTotalResults();
+            }
+
+            currentWindow = window.getDocuments().iterator();
+            nextWindow = parallelRequestExecutor.submit(windowRequest);
+        }
+
+        return true;
+    }
+
+    @Override
+    public D next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        returnedCount++;
+        return currentWindow.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Search results cannot be removed");
+    }
+
+    /**
+     * @return the total results of the query, or null until the first window has been read
+     */
+    public Integer getTotalResults() {
+        return totalResults;
+    }
+
+    /**
+     * @return the number of documents returned by {@link #next()} so far
+     */
+    public int getReturnedCount() {
+        return returnedCount;
+    }
+
+    /**
+     * @return the fraction of the total results returned so far, between 0 and 1
+     */
+    public double getProgress() {
+        if (totalResults == null || totalResults <= 0) {
+            return nextWindow == null ? 1 : 0;
+        }
+
+        return Math.min(1, (double) returnedCount / totalResults);
+    }
+
+    /**
+     * Cancels any pending window request; the iterator has no more results afterwards
+     */
+    @Override
+    public void close() {
+        if (nextWindow != null) {
+            nextWindow.cancel(true);
+            nextWindow = null;
+        }
+
+        currentWindow = Collections.emptyIterator();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A {@link DocumentsService} which can also return all the results of a query, rather than one page of them, without
+ * holding them all in memory.
+ *
+ * @param <S> The type of the database identifier
+ * @param <D> The type of the documents
+ * @param <E> The checked exception thrown in the event of an error
+ */
+public interface ExportingDocumentsService<S extends Serializable, D extends SearchResult, E extends Exception> extends DocumentsService<S, D, E> {
+    /**
+     * Iterates over the results of a query one window at a time. The start of the request is ignored.
+     *
+     * @param searchRequest the query
+     * @param windowSize    the number of results to request at a time
+     * @return an iterator which should be closed if it is abandoned before the end
+     * @throws E if the results cannot be requested
+     */
+    DocumentsIterator<D> iterateDocuments(SearchRequest<S> searchRequest, int windowSize) throws E;
+
+    /**
+     * Writes the results of a query to the given sink one window at a time, each window being written as its response
+     * is read
+     *
+     * @param searchRequest the query
+     * @param windowSize    the number of results to request at a time
+     * @param sink          receives each document in turn
+     * @return the number of documents written
+     * @throws E           if the results cannot be requested
+     * @throws IOException if the sink fails
+     */
+    int exportDocuments(SearchRequest<S> searchRequest, int windowSize, DocumentSink<? super D> sink) throws E, IOException;
+
+    /**
+     * Writes the results of a single query to the given sink as its response is read
+     *
+     * @param searchRequest the query, whose start and max results give the results to write
+     * @param sink          receives each document in turn
+     * @throws E           if the query fails
+     * @throws IOException if the sink fails
+     */
+    void writeQueryResults(SearchRequest<S> searchRequest, DocumentSink<? super D> sink) throws E, IOException;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utilities for retrieving many documents by reference in bulk
+ */
+public final class GetContentReferences {
+    private static final Escaper URL_ESCAPER = UrlEscapers.urlFormParameterEscaper();
+
+    private GetContentReferences() {
+    }
+
+    /**
+     * Splits the references of a single index into chunks which can each be sent in one request.
+     *
+     * @param indexAndReferences index and the references to retrieve from it
+     * @param maxReferences      maximum number of references in each chunk
+     * @param maxEncodedLength   maximum length of the url encoded references in each chunk, including separators
+     * @param <S>                the index type
+     * @return the chunks, in the same order as the references; a single chunk is returned if no split is required
+     */
+    public static <S extends Serializable> List<GetContentRequestIndex<S>> chunk(final GetContentRequestIndex<S> indexAndReferences, final int maxReferences, final int maxEncodedLength) {
+        final Set<String> references = indexAndReferences.getReferences();
+        final List<GetContentRequestIndex<S>> chunks = new ArrayList<>();
+
+        Set<String> chunk = new LinkedHashSet<>();
+        int chunkLength = 0;
+
+        for (final String reference : references) {
+            // one extra character for the separator
+            final int encodedLength = URL_ESCAPER.escape(reference).length() + 1;
+
+            if (!chunk.isEmpty() && (chunk.size() >= maxReferences || chunkLength + encodedLength > maxEncodedLength)) {
+                chunks.add(new GetContentRequestIndex<>(indexAndReferences.getIndex(), chunk));
+                chunk = new LinkedHashSet<>();
+                chunkLength = 0;
+            }
+
+            chunk.add(reference);
+            chunkLength += encodedLength;
+        }
+
+        if (chunks.isEmpty()) {
+            return Collections.singletonList(indexAndReferences);
+        }
+
+        chunks.add(new GetContentRequestIndex<>(indexAndReferences.getIndex(), chunk));
+        return chunks;
+    }
+
+    /**
+     * Sorts results into the order their references were requested in. Results with references which were not
+     * requested are placed at the end, in their original order.
+     *
+     * @param references the requested references, in order
+     * @param results    the results to sort in place
+     * @param <R>        the result type
+     */
+    public static <R extends SearchResult> void sortByReferenceOrder(final Collection<String> references, final List<R> results) {
+        final Map<String, Integer> referenceOrder = new HashMap<>(references.size());
+
+        for (final String reference : references) {
+            if (!referenceOrder.containsKey(reference)) {
+                referenceOrder.put(reference, referenceOrder.size());
+            }
+        }
+
+        // sort is stable, so duplicate and unknown references keep their relative order
+        Collections.sort(results, new Comparator<R>() {
+            @Override
+            public int compare(final R first, final R second) {
+                return Integer.compare(position(first), position(second));
+            }
+
+            private int position(final R result) {
+                final Integer position = referenceOrder.get(result.getReference());
+                return position == null ? Integer.MAX_VALUE : position;
+            }
+        });
+    }
+}
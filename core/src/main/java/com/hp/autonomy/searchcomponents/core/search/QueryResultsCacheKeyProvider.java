@@ -0,0 +1,19 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import java.io.Serializable;
+
+/**
+ * Identifies which cached query results the current user may see; see {@link CachingDocumentsService}
+ */
+public interface QueryResultsCacheKeyProvider {
+    /**
+     * @return a value which is equal for two users only if the same query returns the same documents for both of them,
+     * or null if results do not depend on the user
+     */
+    Serializable getSecurityKey();
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Request for several sections of a search page, all restricted by the same query restrictions
+ */
+@Data
+@NoArgsConstructor
+public class SearchPageRequest<S extends Serializable> implements Serializable {
+    private static final long serialVersionUID = -3853658371744307014L;
+
+    private QueryRestrictions<S> queryRestrictions;
+    private Set<SearchPageSection> sections = EnumSet.allOf(SearchPageSection.class);
+
+    // results and promotions
+    private int start = AciSearchRequest.DEFAULT_START;
+    private int maxResults = AciSearchRequest.DEFAULT_MAX_RESULTS;
+    private String summary;
+    private Integer summaryCharacters;
+    private String sort;
+    private boolean highlight;
+    private boolean autoCorrect;
+    private SearchRequest.QueryType queryType = SearchRequest.QueryType.MODIFIED;
+
+    // parametric values; an empty list requests all parametric fields and null uses the default maximum
+    private List<String> parametricFieldNames = Collections.emptyList();
+    private Integer parametricMaxValues;
+
+    // related concepts
+    private int querySummaryLength;
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.types.requests.Documents;
+import com.hp.autonomy.types.requests.idol.actions.query.QuerySummaryElement;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The sections of a search page returned by a {@link SearchPageService}; sections which were not requested are null
+ */
+@Data
+public class SearchPageResult<D extends SearchResult, Q extends QuerySummaryElement> implements Serializable {
+    private static final long serialVersionUID = 2906330187813826335L;
+
+    private final SearchPageSectionResult<Documents<D>> results;
+    private final SearchPageSectionResult<Documents<D>> promotions;
+    private final SearchPageSectionResult<Set<QueryTagInfo>> parametricValues;
+    private final SearchPageSectionResult<List<Q>> relatedConcepts;
+    private final long durationMillis;
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+/**
+ * The parts of a search page which can be requested from a {@link SearchPageService}
+ */
+public enum SearchPageSection {
+    RESULTS,
+    PROMOTIONS,
+    PARAMETRIC_VALUES,
+    RELATED_CONCEPTS
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of one section of a search page. Exactly one of the value and the error is set, unless the section
+ * legitimately returned null.
+ *
+ * @param <T> type of the section value
+ */
+@Data
+public class SearchPageSectionResult<T> implements Serializable {
+    private static final long serialVersionUID = 6152296071823437512L;
+
+    private final T value;
+    private final Exception error;
+    private final long durationMillis;
+
+    public static <T> SearchPageSectionResult<T> success(final T value, final long durationMillis) {
+        return new SearchPageSectionResult<>(value, null, durationMillis);
+    }
+
+    public static <T> SearchPageSectionResult<T> failure(final Exception error, final long durationMillis) {
+        return new SearchPageSectionResult<>(null, error, durationMillis);
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
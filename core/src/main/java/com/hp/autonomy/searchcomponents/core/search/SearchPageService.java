@@ -0,0 +1,26 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.types.requests.idol.actions.query.QuerySummaryElement;
+
+import java.io.Serializable;
+
+/**
+ * Retrieves all the sections of a search page for one set of query restrictions at once
+ */
+public interface SearchPageService<S extends Serializable, D extends SearchResult, Q extends QuerySummaryElement> {
+
+    /**
+     * Requests the sections in parallel. A failing or timed out section does not fail the others; its error is
+     * returned in its section result instead.
+     *
+     * @param searchPageRequest the restrictions and the sections to retrieve
+     * @return the requested sections
+     */
+    SearchPageResult<D, Q> getSearchPage(SearchPageRequest<S> searchPageRequest);
+
+}
@@ -5,10 +5,12 @@
 
 package com.hp.autonomy.searchcomponents.core.search;
 
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
 import org.joda.time.DateTime;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 public interface SearchResult extends Serializable {
     String getReference();
@@ -24,4 +26,6 @@ public interface SearchResult extends Serializable {
     DateTime getDate();
 
     PromotionCategory getPromotionCategory();
+
+    Map<String, FieldInfo<?>> getFieldMap();
 }
@@ -6,40 +6,36 @@
 package com.hp.autonomy.searchcomponents.core.search.fields;
 
 import com.hp.autonomy.frontend.configuration.ConfigService;
-import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
-import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfig;
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfigService;
 import com.hp.autonomy.searchcomponents.core.config.HavenSearchCapable;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 public abstract class AbstractDocumentFieldsService implements DocumentFieldsService {
     protected final ConfigService<? extends HavenSearchCapable> configService;
 
+    // the print fields are only rebuilt when the configuration changes
+    private final CompiledConfigService<HavenSearchCapable, CompiledConfig<HavenSearchCapable>> compiledConfigService;
+
     protected AbstractDocumentFieldsService(final ConfigService<? extends HavenSearchCapable> configService) {
         this.configService = configService;
+
+        compiledConfigService = new CompiledConfigService<HavenSearchCapable, CompiledConfig<HavenSearchCapable>>(configService) {
+            @Override
+            protected CompiledConfig<HavenSearchCapable> compile(final HavenSearchCapable config) {
+                return new CompiledConfig<>(config, getHardCodedFields());
+            }
+        };
     }
 
+    /**
+     * @return the hard coded fields followed by the names of the configured fields
+     */
     @Override
     public List<String> getPrintFields() {
-        final FieldsInfo fieldsInfo = configService.getConfig().getFieldsInfo();
-
-        final List<String> fields = new ArrayList<>();
-
-        for (final FieldInfo<?> field : getHardCodedFields()) {
-            for (final String name : field.getNames()) {
-                fields.add(name);
-            }
-        }
-
-        final Collection<FieldInfo<?>> fieldConfig = fieldsInfo.getFieldConfig().values();
-        for (final FieldInfo<?> field : fieldConfig) {
-            for (final String name : field.getNames()) {
-                fields.add(name);
-            }
-        }
-
-        return fields;
+        // the compiled list is shared, so callers are given their own copy
+        return new ArrayList<>(compiledConfigService.getCompiledConfig().getPrintFields());
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import com.hp.autonomy.frontend.configuration.ConfigService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledConfigServiceTest {
+    @Mock
+    private ConfigService<HavenSearchCapable> configService;
+
+    @Mock
+    private HavenSearchCapable config;
+
+    @Mock
+    private HavenSearchCapable newConfig;
+
+    private int compilations;
+    private CompiledConfigService<HavenSearchCapable, CompiledConfig<HavenSearchCapable>> compiledConfigService;
+
+    @Before
+    public void setUp() {
+        when(config.getFieldsInfo()).thenReturn(new FieldsInfo.Builder()
+                .populateResponseMap("Author", new FieldInfo<String>("Author", Arrays.asList("AUTHOR", "CREATOR"), FieldType.STRING))
+                .build());
+        when(configService.getConfig()).thenReturn(config);
+
+        compiledConfigService = new CompiledConfigService<HavenSearchCapable, CompiledConfig<HavenSearchCapable>>(configService) {
+            @Override
+            protected CompiledConfig<HavenSearchCapable> compile(final HavenSearchCapable config) {
+                compilations++;
+                return new CompiledConfig<>(config, Collections.<FieldInfo<?>>singletonList(new FieldInfo<>("qmsid", FieldType.STRING)));
+            }
+        };
+    }
+
+    @Test
+    public void compile() {
+        final CompiledConfig<HavenSearchCapable> compiledConfig = compiledConfigService.getCompiledConfig();
+        assertThat(compiledConfig.getPrintFields(), contains("qmsid", "AUTHOR", "CREATOR"));
+        assertThat(compiledConfig.getFieldConfigByName().get("CREATOR").getId(), is("Author"));
+    }
+
+    @Test
+    public void reuseForSameConfig() {
+        final CompiledConfig<HavenSearchCapable> compiledConfig = compiledConfigService.getCompiledConfig();
+        assertThat(compiledConfigService.getCompiledConfig(), sameInstance(compiledConfig));
+        assertThat(compilations, is(1));
+    }
+
+    @Test
+    public void recompileWhenConfigReplaced() {
+        final CompiledConfig<HavenSearchCapable> compiledConfig = compiledConfigService.getCompiledConfig();
+
+        when(newConfig.getFieldsInfo()).thenReturn(new FieldsInfo.Builder().build());
+        when(configService.getConfig()).thenReturn(newConfig);
+
+        final CompiledConfig<HavenSearchCapable> newCompiledConfig = compiledConfigService.getCompiledConfig();
+        assertThat(newCompiledConfig, not(sameInstance(compiledConfig)));
+        assertThat(newCompiledConfig.getPrintFields(), contains("qmsid"));
+        assertThat(compilations, is(2));
+    }
+
+    @Test
+    public void recompileWhenFieldsInfoReplaced() {
+        compiledConfigService.getCompiledConfig();
+
+        when(config.getFieldsInfo()).thenReturn(new FieldsInfo.Builder().build());
+
+        assertThat(compiledConfigService.getCompiledConfig().getPrintFields(), contains("qmsid"));
+        assertThat(compilations, is(2));
+    }
+}
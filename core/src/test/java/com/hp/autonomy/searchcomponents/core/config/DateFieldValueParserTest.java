@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DateFieldValueParserTest {
+    private final FieldValueParser<DateTime> parser = new DateFieldValueParser();
+
+    @Test
+    public void epochSeconds() {
+        assertThat(parser.parse("1400000000"), is(new DateTime(1400000000000L)));
+    }
+
+    @Test
+    public void epochMillis() {
+        assertThat(parser.parse("1400000000123"), is(new DateTime(1400000000123L)));
+    }
+
+    @Test
+    public void iso8601() {
+        assertThat(parser.parse("2014-05-13T16:53:20Z").getMillis(), is(1400000000000L));
+        assertThat(parser.parse("2014-05-13"), is(new DateTime(2014, 5, 13, 0, 0)));
+    }
+
+    @Test
+    public void idolFormats() {
+        assertThat(parser.parse("16:53:20 13/05/2014"), is(new DateTime(2014, 5, 13, 16, 53, 20)));
+        assertThat(parser.parse("2014/05/13 16:53:20"), is(new DateTime(2014, 5, 13, 16, 53, 20)));
+        assertThat(parser.parse("13/05/2014"), is(new DateTime(2014, 5, 13, 0, 0)));
+    }
+
+    @Test
+    public void invalidValues() {
+        assertThat(parser.parse("not a date"), is(nullValue()));
+        assertThat(parser.parse("31/02/2014"), is(nullValue()));
+        assertThat(parser.parse("12345678901234567890"), is(nullValue()));
+        assertThat(parser.parse(""), is(nullValue()));
+        assertThat(parser.parse(null), is(nullValue()));
+    }
+}
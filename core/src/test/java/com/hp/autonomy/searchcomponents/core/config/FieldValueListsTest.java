@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.config;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class FieldValueListsTest {
+    @Test
+    public void numbers() {
+        final List<Number> values = Arrays.<Number>asList(1.5, 2.0);
+        final List<Number> compact = FieldValueLists.compact(FieldType.NUMBER, values);
+
+        assertThat(compact, is(values));
+        assertThat(compact, is(not(instanceOf(ArrayList.class))));
+    }
+
+    @Test
+    public void booleans() {
+        final List<Boolean> values = Arrays.asList(true, false);
+        assertThat(FieldValueLists.compact(FieldType.BOOLEAN, values), is(values));
+    }
+
+    @Test
+    public void dates() {
+        final List<DateTime> values = Arrays.asList(new DateTime(1400000000000L), new DateTime(1300000000000L));
+        final List<DateTime> compact = FieldValueLists.compact(FieldType.DATE, values);
+
+        assertThat(compact, is(values));
+        assertThat(compact, is(not(instanceOf(ArrayList.class))));
+        assertThat(SerializationUtils.clone((Serializable) compact), is((Object) values));
+    }
+
+    @Test
+    public void mixedValuesAreCopied() {
+        final List<DateTime> zones = Arrays.asList(new DateTime(1400000000000L, DateTimeZone.UTC), new DateTime(1400000000000L, DateTimeZone.forOffsetHours(1)));
+        assertThat(FieldValueLists.compact(FieldType.DATE, zones), is(instanceOf(ArrayList.class)));
+        assertThat(FieldValueLists.compact(FieldType.DATE, zones), is(zones));
+
+        final List<Number> nulls = Arrays.<Number>asList(1.5, null);
+        assertThat(FieldValueLists.compact(FieldType.NUMBER, nulls), is(instanceOf(ArrayList.class)));
+
+        final List<Number> integers = Collections.<Number>singletonList(1);
+        assertThat(FieldValueLists.compact(FieldType.NUMBER, integers), is(instanceOf(ArrayList.class)));
+    }
+
+    @Test
+    public void fieldInfoValuesAreOnlyCompactFromFactory() {
+        final List<Number> values = Arrays.<Number>asList(1.5, 2.0);
+
+        final FieldInfo<Number> fieldInfo = new FieldInfo<>("pages", Collections.singletonList("PAGES"), FieldType.NUMBER, values);
+        fieldInfo.getValues().add(3.0);
+        assertThat(fieldInfo.getValues(), is(Arrays.<Number>asList(1.5, 2.0, 3.0)));
+
+        final FieldInfo<Number> compactFieldInfo = FieldInfo.withCompactValues("pages", Collections.singletonList("PAGES"), FieldType.NUMBER, values);
+        assertThat(compactFieldInfo.getValues(), is(values));
+        assertThat(compactFieldInfo.getValues(), is(not(instanceOf(ArrayList.class))));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.export;
+
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.config.FieldType;
+import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
+import com.hp.autonomy.searchcomponents.core.search.SearchResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CsvResultsWriterTest {
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private FieldsInfo fieldsInfo;
+
+    @Before
+    public void setUp() {
+        fieldsInfo = new FieldsInfo.Builder()
+                .populateResponseMap("author", new FieldInfo<String>("author", Collections.singletonList("AUTHOR"), FieldType.STRING))
+                .populateResponseMap("pages", new FieldInfo<Double>("pages", Collections.singletonList("PAGES"), FieldType.NUMBER))
+                .build();
+    }
+
+    @Test
+    public void writesProjectedFields() throws IOException {
+        final Map<String, FieldInfo<?>> fieldMap = new HashMap<>();
+        fieldMap.put("author", new FieldInfo<>("author", Collections.singletonList("AUTHOR"), FieldType.STRING, Arrays.asList("Felix", "Tom")));
+        fieldMap.put("pages", new FieldInfo<>("pages", Collections.singletonList("PAGES"), FieldType.NUMBER, Collections.singletonList(12.0)));
+
+        try (final CsvResultsWriter<SearchResult> writer = new CsvResultsWriter<>(outputStream, fieldsInfo, Collections.singletonList("author"))) {
+            writer.write(mockResult("cats.html", "Tabby, \"the\" cat", fieldMap));
+        }
+
+        assertThat(outputStream.toString("UTF-8"), is("reference,index,title,date,weight,summary,author\r\n" +
+                "cats.html,Database,\"Tabby, \"\"the\"\" cat\",,0.5,,Felix; Tom\r\n"));
+    }
+
+    @Test
+    public void writesHeaderWithoutDocuments() throws IOException {
+        new CsvResultsWriter<>(outputStream, fieldsInfo).close();
+
+        assertThat(outputStream.toString("UTF-8"), is("reference,index,title,date,weight,summary,author,pages\r\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unconfiguredField() {
+        new CsvResultsWriter<>(outputStream, fieldsInfo, Collections.singletonList("unknown"));
+    }
+
+    private SearchResult mockResult(final String reference, final String title, final Map<String, FieldInfo<?>> fieldMap) {
+        final SearchResult result = mock(SearchResult.class);
+        when(result.getReference()).thenReturn(reference);
+        when(result.getIndex()).thenReturn("Database");
+        when(result.getTitle()).thenReturn(title);
+        when(result.getWeight()).thenReturn(0.5);
+        when(result.getFieldMap()).thenReturn(fieldMap);
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class NdjsonResultsWriterTest {
+    @Test
+    public void writesOneDocumentPerLine() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (final NdjsonResultsWriter<Map<String, String>> writer = new NdjsonResultsWriter<>(outputStream, new ObjectMapper())) {
+            writer.write(Collections.singletonMap("reference", "cats.html"));
+            writer.write(Collections.singletonMap("title", "Tabby\nand friends"));
+        }
+
+        assertThat(outputStream.toString("UTF-8"), is("{\"reference\":\"cats.html\"}\n{\"title\":\"Tabby\\nand friends\"}\n"));
+    }
+
+    @Test
+    public void streamIsNotClosed() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new AssertionError("The stream should not be closed");
+            }
+        };
+
+        new NdjsonResultsWriter<>(outputStream, new ObjectMapper()).close();
+    }
+}
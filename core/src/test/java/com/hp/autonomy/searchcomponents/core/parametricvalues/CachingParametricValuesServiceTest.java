@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+import lombok.Data;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingParametricValuesServiceTest {
+    @Mock
+    private ParametricValuesService<TestParametricRequest, String, IOException> parametricValuesService;
+
+    @Mock
+    private QueryResultsCacheKeyProvider cacheKeyProvider;
+
+    private final Set<QueryTagInfo> values = Collections.singleton(new QueryTagInfo("CATEGORY", Collections.singleton(new QueryTagCountInfo("news", 3))));
+    private final Set<QueryTagInfo> refreshedValues = Collections.singleton(new QueryTagInfo("CATEGORY", Collections.singleton(new QueryTagCountInfo("news", 4))));
+
+    @Before
+    public void setUp() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenReturn(values);
+        when(cacheKeyProvider.getSecurityKey()).thenReturn("security info");
+    }
+
+    @Test
+    public void getAllParametricValuesIsCached() throws IOException {
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.MINUTES);
+
+        final Set<QueryTagInfo> cachedValues = cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+        assertThat(cachedValues, is(values));
+        assertThat(cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY")), sameInstance(cachedValues));
+
+        verify(parametricValuesService).getAllParametricValues(any(TestParametricRequest.class));
+    }
+
+    @Test
+    public void differentSecurityKeysAreNotShared() throws IOException {
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.MINUTES);
+
+        cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+        when(cacheKeyProvider.getSecurityKey()).thenReturn((Serializable) "other security info");
+        cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+
+        verify(parametricValuesService, times(2)).getAllParametricValues(any(TestParametricRequest.class));
+    }
+
+    @Test
+    public void staleValuesAreRefreshed() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenReturn(values).thenReturn(refreshedValues);
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.NANOSECONDS);
+
+        cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+        assertThat(cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY")), is(refreshedValues));
+    }
+
+    @Test
+    public void staleValueIsUsedIfRefreshFails() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenReturn(values).thenThrow(new IOException());
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.NANOSECONDS);
+
+        cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+        assertThat(cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY")), is(values));
+    }
+
+    @Test
+    public void staleValueIsUsedIfRefreshIsRejected() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenReturn(values).thenReturn(refreshedValues);
+        final ExecutorService refreshExecutor = MoreExecutors.newDirectExecutorService();
+        refreshExecutor.shutdown();
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = new CachingParametricValuesService<>(parametricValuesService, cacheKeyProvider, IOException.class, refreshExecutor, "test", 100L, 1L, TimeUnit.MINUTES.toNanos(1L), TimeUnit.NANOSECONDS);
+
+        cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY"));
+        assertThat(cachingService.getAllParametricValues(new TestParametricRequest("CATEGORY")), is(values));
+        verify(parametricValuesService).getAllParametricValues(any(TestParametricRequest.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedValuesCannotBeChanged() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenReturn(new HashSet<>(values));
+        createService(1L, TimeUnit.MINUTES).getAllParametricValues(new TestParametricRequest("CATEGORY")).clear();
+    }
+
+    @Test(expected = IOException.class)
+    public void checkedExceptionIsRethrown() throws IOException {
+        when(parametricValuesService.getAllParametricValues(any(TestParametricRequest.class))).thenThrow(new IOException());
+        createService(1L, TimeUnit.MINUTES).getAllParametricValues(new TestParametricRequest("CATEGORY"));
+    }
+
+    @Test
+    public void dependentParametricValuesAreNotCached() throws IOException {
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.MINUTES);
+
+        cachingService.getDependentParametricValues(new TestParametricRequest("CATEGORY"));
+        cachingService.getDependentParametricValues(new TestParametricRequest("CATEGORY"));
+
+        verify(parametricValuesService, times(2)).getDependentParametricValues(any(TestParametricRequest.class));
+    }
+
+    @Test
+    public void dependentParametricLevelsAreCached() throws IOException {
+        when(parametricValuesService.getDependentParametricLevel(any(TestParametricRequest.class), any(ParametricLevelRequest.class))).thenReturn(values);
+        final ParametricValuesService<TestParametricRequest, String, IOException> cachingService = createService(1L, TimeUnit.MINUTES);
+
+        final ParametricLevelRequest levelRequest = new ParametricLevelRequest(Collections.singletonList("news"), Collections.<Integer>emptyList());
+        cachingService.getDependentParametricLevel(new TestParametricRequest("CATEGORY"), levelRequest);
+        assertThat(cachingService.getDependentParametricLevel(new TestParametricRequest("CATEGORY"), levelRequest), is(values));
+        cachingService.getDependentParametricLevel(new TestParametricRequest("CATEGORY"), new ParametricLevelRequest(Collections.singletonList("sport"), Collections.<Integer>emptyList()));
+
+        verify(parametricValuesService, times(2)).getDependentParametricLevel(any(TestParametricRequest.class), any(ParametricLevelRequest.class));
+    }
+
+    private ParametricValuesService<TestParametricRequest, String, IOException> createService(final long refreshAfter, final TimeUnit timeUnit) {
+        return new CachingParametricValuesService<>(parametricValuesService, cacheKeyProvider, IOException.class, MoreExecutors.newDirectExecutorService(), "test", 100L, refreshAfter, timeUnit.convert(1L, TimeUnit.MINUTES), timeUnit);
+    }
+
+    @Data
+    private static class TestParametricRequest implements ParametricRequest<String> {
+        private static final long serialVersionUID = -3410628539727612465L;
+
+        private final String fieldName;
+        private Integer maxValues = 10;
+        private boolean modified;
+        private List<String> valueRestrictions = Collections.emptyList();
+        private Integer start = 1;
+
+        @Override
+        public List<String> getFieldNames() {
+            return Collections.singletonList(fieldName);
+        }
+
+        @Override
+        public QueryRestrictions<String> getQueryRestrictions() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class RangeBucketsTest {
+    @Test
+    public void getBoundaries() {
+        assertThat(RangeBuckets.getBoundaries(0, 1, 4), is(new double[]{0, 0.25, 0.5, 0.75, 1}));
+    }
+
+    @Test
+    public void getBoundariesForSingleValue() {
+        assertThat(RangeBuckets.getBoundaries(3, 3, 4), is(new double[]{3, 3}));
+    }
+
+    @Test
+    public void bucketValuesWithAutomaticBounds() {
+        final BucketingParams bucketingParams = new BucketingParams(2, null, null);
+
+        assertThat(RangeBuckets.bucketValues(Arrays.asList(
+                new QueryTagCountInfo("10", 1),
+                new QueryTagCountInfo("14", 2),
+                new QueryTagCountInfo("20", 3),
+                new QueryTagCountInfo("abc", 4)
+        ), bucketingParams), contains(
+                new RangeBucket("10,15", 10, 15, 3),
+                new RangeBucket("15,20", 15, 20, 3)
+        ));
+    }
+
+    @Test
+    public void bucketValuesIgnoresValuesOutsideBounds() {
+        final BucketingParams bucketingParams = new BucketingParams(1, 0.0, 1.5);
+
+        assertThat(RangeBuckets.bucketValues(Arrays.asList(
+                new QueryTagCountInfo("-1", 1),
+                new QueryTagCountInfo("1", 2),
+                new QueryTagCountInfo("2", 3)
+        ), bucketingParams), contains(new RangeBucket("0,1.5", 0, 1.5, 2)));
+    }
+
+    @Test
+    public void bucketNoValues() {
+        assertThat(RangeBuckets.bucketValues(Collections.<QueryTagCountInfo>emptyList(), new BucketingParams()), is(empty()));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class TopValuesTest {
+    @Test
+    public void mergesCountsInOrder() {
+        final List<List<QueryTagCountInfo>> values = Arrays.asList(
+                Arrays.asList(new QueryTagCountInfo("cats", 10), new QueryTagCountInfo("dogs", 4)),
+                Arrays.asList(new QueryTagCountInfo("dogs", 7), new QueryTagCountInfo("birds", 2))
+        );
+
+        assertThat(TopValues.merge(values, 10), contains(
+                new QueryTagCountInfo("dogs", 11),
+                new QueryTagCountInfo("cats", 10),
+                new QueryTagCountInfo("birds", 2)
+        ));
+    }
+
+    @Test
+    public void keepsTopValues() {
+        final List<List<QueryTagCountInfo>> values = Collections.singletonList(Arrays.asList(
+                new QueryTagCountInfo("a", 1),
+                new QueryTagCountInfo("d", 5),
+                new QueryTagCountInfo("c", 5),
+                new QueryTagCountInfo("b", 3)
+        ));
+
+        assertThat(TopValues.merge(values, 2), contains(new QueryTagCountInfo("c", 5), new QueryTagCountInfo("d", 5)));
+    }
+
+    @Test
+    public void zeroMaxValues() {
+        assertThat(TopValues.merge(Collections.singletonList(Collections.singletonList(new QueryTagCountInfo("a", 1))), 0), is(empty()));
+    }
+}
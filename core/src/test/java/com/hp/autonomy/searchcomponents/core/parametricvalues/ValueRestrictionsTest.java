@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.parametricvalues;
+
+import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class ValueRestrictionsTest {
+    private final List<QueryTagCountInfo> values = Arrays.asList(
+            new QueryTagCountInfo("Smith, John", 10),
+            new QueryTagCountInfo("Jones, Ann", 8),
+            new QueryTagCountInfo("smithson, Kate", 5),
+            new QueryTagCountInfo("Smyth, Tom", 3)
+    );
+
+    @Test
+    public void prefixRestriction() {
+        assertThat(ValueRestrictions.apply(values, Collections.singletonList("smith*"), 1, 10), contains(values.get(0), values.get(2)));
+    }
+
+    @Test
+    public void singleCharacterWildcard() {
+        assertThat(ValueRestrictions.apply(values, Collections.singletonList("Sm?th, *"), 1, 10), contains(values.get(0), values.get(3)));
+    }
+
+    @Test
+    public void literalCharactersAreNotRegularExpressions() {
+        assertThat(ValueRestrictions.apply(values, Collections.singletonList("Jones, Ann"), 1, 10), contains(values.get(1)));
+    }
+
+    @Test
+    public void paging() {
+        assertThat(ValueRestrictions.apply(values, Collections.<String>emptyList(), 2, 2), contains(values.get(1), values.get(2)));
+    }
+
+    @Test
+    public void pagingAppliesToMatchingValues() {
+        assertThat(ValueRestrictions.apply(values, Arrays.asList("S*", "s*"), 2, null), contains(values.get(2), values.get(3)));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class ParallelRequestExecutorTest {
+    private ParallelRequestExecutor parallelRequestExecutor;
+
+    @Before
+    public void setUp() {
+        parallelRequestExecutor = new ParallelRequestExecutor(Executors.newFixedThreadPool(3), 5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        parallelRequestExecutor.shutdown();
+    }
+
+    @Test
+    public void resultsInRequestOrder() {
+        final List<String> results = parallelRequestExecutor.invokeAll(Arrays.asList(delayed("a", 200), delayed("b", 100), delayed("c", 0)));
+        assertThat(results, contains("a", "b", "c"));
+    }
+
+    @Test
+    public void serialResultsInRequestOrder() {
+        final List<String> results = ParallelRequestExecutor.serial().invokeAll(Arrays.asList(delayed("a", 0), delayed("b", 0)));
+        assertThat(results, contains("a", "b"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void firstFailureRethrown() {
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+
+        parallelRequestExecutor.invokeAll(Arrays.asList(blocking(neverReleased), new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException();
+            }
+        }));
+    }
+
+    @Test(expected = IOException.class)
+    public void checkedExceptionRethrown() throws IOException {
+        parallelRequestExecutor.invokeAll(Arrays.asList(delayed("a", 0), new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new IOException();
+            }
+        }), IOException.class);
+    }
+
+    @Test
+    public void outstandingRequestsCancelledOnTimeout() throws InterruptedException {
+        final ParallelRequestExecutor shortTimeoutExecutor = new ParallelRequestExecutor(Executors.newFixedThreadPool(2), 100, TimeUnit.MILLISECONDS);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        try {
+            shortTimeoutExecutor.invokeAll(Arrays.asList(delayed("a", 0), new Callable<String>() {
+                @Override
+                public String call() {
+                    try {
+                        neverReleased.await();
+                    } catch (final InterruptedException ignored) {
+                        interrupted.countDown();
+                    }
+
+                    return "b";
+                }
+            }));
+        } catch (final ParallelRequestException ignored) {
+            // expected
+        }
+
+        try {
+            assertThat(interrupted.await(5, TimeUnit.SECONDS), is(true));
+        } finally {
+            shortTimeoutExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void saturatedPoolRejectsRequestsAndCancelsBatch() throws InterruptedException {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1), new ThreadPoolExecutor.AbortPolicy());
+        final ParallelRequestExecutor boundedExecutor = new ParallelRequestExecutor(threadPoolExecutor, 5, TimeUnit.SECONDS);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+
+        try {
+            boundedExecutor.invokeAll(Arrays.asList(blocking(neverReleased), blocking(neverReleased), blocking(neverReleased)));
+            fail("Expected the third request to be rejected");
+        } catch (final ParallelRequestException e) {
+            assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+
+        // the requests which were accepted never complete unless they have been cancelled
+        threadPoolExecutor.shutdown();
+        assertThat(threadPoolExecutor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test(expected = ParallelRequestException.class)
+    public void saturatedPoolRejectsSubmit() {
+        final ParallelRequestExecutor boundedExecutor = new ParallelRequestExecutor(1, 1, 5000L);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+
+        try {
+            boundedExecutor.submit(blocking(neverReleased));
+            boundedExecutor.submit(blocking(neverReleased));
+            boundedExecutor.submit(blocking(neverReleased));
+        } finally {
+            boundedExecutor.shutdown();
+        }
+    }
+
+    private Callable<String> delayed(final String result, final long delayMillis) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                Thread.sleep(delayMillis);
+                return result;
+            }
+        };
+    }
+
+    private Callable<String> blocking(final CountDownLatch latch) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                latch.await();
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.requests;
+
+import com.hp.autonomy.searchcomponents.core.search.DocumentWindowSource;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsIterator;
+import com.hp.autonomy.types.requests.Documents;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class TenantRequestExecutorsTest {
+    private TenantRequestExecutors tenantRequestExecutors;
+
+    @Before
+    public void setUp() {
+        tenantRequestExecutors = new TenantRequestExecutors(2, 10, 5000L);
+    }
+
+    @After
+    public void tearDown() {
+        tenantRequestExecutors.shutdown();
+    }
+
+    @Test
+    public void resultsInRequestOrder() {
+        final List<String> results = tenantRequestExecutors.get("tenant").invokeAll(Arrays.asList(delayed("a", 100), delayed("b", 0)));
+        assertThat(results, contains("a", "b"));
+    }
+
+    @Test
+    public void threadsAreBoundedPerTenant() {
+        final ConcurrentMap<String, Boolean> threadNames = new ConcurrentHashMap<>();
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+
+        final Callable<String> request = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                threadNames.put(Thread.currentThread().getName(), true);
+                neverReleased.await(50L, TimeUnit.MILLISECONDS);
+                return "";
+            }
+        };
+
+        tenantRequestExecutors.get("tenant").invokeAll(Arrays.asList(request, request, request, request));
+
+        // requests beyond the size of the pool wait in its queue
+        assertThat(threadNames.keySet(), hasSize(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failuresAreRethrown() {
+        tenantRequestExecutors.get("tenant").invokeAll(Arrays.asList(delayed("a", 100), new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException();
+            }
+        }));
+    }
+
+    @Test
+    public void tenantsHaveSeparatePools() {
+        final String thread1 = tenantRequestExecutors.get("tenant1").invokeAll(Arrays.asList(threadName(), threadName())).get(0);
+        final String thread2 = tenantRequestExecutors.get("tenant2").invokeAll(Arrays.asList(threadName(), threadName())).get(0);
+        assertThat(thread1.equals(thread2), is(false));
+    }
+
+    @Test
+    public void poolExpiringMidIterationIsReplaced() {
+        final TenantRequestExecutors expiringExecutors = new TenantRequestExecutors(2, 10, 5000L, 20L, TimeUnit.MILLISECONDS);
+
+        try {
+            final DocumentsIterator<String> iterator = new DocumentsIterator<>(new DocumentWindowSource<String, RuntimeException>() {
+                private int windowCount;
+
+                @Override
+                public Documents<String> nextWindow() {
+                    return windowCount++ < 3 ? new Documents<>(Collections.singletonList(Thread.currentThread().getName()), 3, null, null, null, null) : null;
+                }
+            }, expiringExecutors.get("tenant"));
+
+            final List<String> threadNames = new ArrayList<>();
+            while (iterator.hasNext()) {
+                threadNames.add(iterator.next());
+                sleep(100L);
+
+                // another request from the tenant expires the pool the previous window was requested on
+                expiringExecutors.get("tenant").invokeAll(Arrays.asList(threadName(), threadName()));
+            }
+
+            // each window was requested after the pool of the previous one had been shut down
+            assertThat(threadNames, hasSize(3));
+            assertThat(threadNames.get(0).equals(threadNames.get(2)), is(false));
+        } finally {
+            expiringExecutors.shutdown();
+        }
+    }
+
+    @Test
+    public void expiredPoolCompletesQueuedRequests() throws InterruptedException {
+        final TenantRequestExecutors expiringExecutors = new TenantRequestExecutors(1, 10, 5000L, 20L, TimeUnit.MILLISECONDS);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        try {
+            final ParallelRequestExecutor executor = expiringExecutors.get("tenant");
+            final Future<String> running = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    released.await();
+                    return "running";
+                }
+            });
+            final Future<String> queued = executor.submit(delayed("queued", 0));
+
+            sleep(100L);
+
+            // expires and shuts down the first pool
+            assertThat(executor.get(executor.submit(delayed("next", 0))), is("next"));
+
+            released.countDown();
+            assertThat(executor.get(running), is("running"));
+            assertThat(executor.get(queued), is("queued"));
+        } finally {
+            released.countDown();
+            expiringExecutors.shutdown();
+        }
+    }
+
+    private void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Callable<String> delayed(final String result, final long delayMillis) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                Thread.sleep(delayMillis);
+                return result;
+            }
+        };
+    }
+
+    private Callable<String> threadName() {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricRequest;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestException;
+import com.hp.autonomy.types.requests.Documents;
+import com.hp.autonomy.types.requests.idol.actions.query.QuerySummaryElement;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AbstractSearchPageServiceTest {
+    @Mock
+    private DocumentsService<String, SearchResult, IOException> documentsService;
+
+    @Mock
+    private ParametricValuesService<ParametricRequest<String>, String, IOException> parametricValuesService;
+
+    @Mock
+    private RelatedConceptsService<QuerySummaryElement, String, IOException> relatedConceptsService;
+
+    @Mock
+    private QueryRestrictions<String> queryRestrictions;
+
+    @Mock
+    private ParametricRequest<String> parametricRequest;
+
+    @Mock
+    private RelatedConceptsRequest<String> relatedConceptsRequest;
+
+    private SearchPageService<String, SearchResult, QuerySummaryElement> searchPageService;
+
+    @Before
+    public void setUp() {
+        searchPageService = new AbstractSearchPageService<String, SearchResult, QuerySummaryElement, ParametricRequest<String>, IOException>(documentsService, parametricValuesService, relatedConceptsService, MoreExecutors.listeningDecorator(Executors.newCachedThreadPool()), 10L, TimeUnit.SECONDS) {
+            @Override
+            protected ParametricRequest<String> createParametricRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+                return parametricRequest;
+            }
+
+            @Override
+            protected RelatedConceptsRequest<String> createRelatedConceptsRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+                return relatedConceptsRequest;
+            }
+        };
+    }
+
+    @Test
+    public void getSearchPage() throws IOException {
+        final Documents<SearchResult> documents = new Documents<>(Collections.<SearchResult>emptyList(), 0, null, null, null, null);
+        when(documentsService.queryTextIndex(any(SearchRequest.class))).thenReturn(documents);
+        when(documentsService.queryTextIndexForPromotions(any(SearchRequest.class))).thenThrow(new IOException());
+        when(relatedConceptsService.findRelatedConcepts(relatedConceptsRequest)).thenReturn(Collections.<QuerySummaryElement>emptyList());
+
+        final SearchPageRequest<String> searchPageRequest = new SearchPageRequest<>();
+        searchPageRequest.setQueryRestrictions(queryRestrictions);
+        searchPageRequest.setSections(EnumSet.of(SearchPageSection.RESULTS, SearchPageSection.PROMOTIONS, SearchPageSection.RELATED_CONCEPTS));
+
+        final SearchPageResult<SearchResult, QuerySummaryElement> result = searchPageService.getSearchPage(searchPageRequest);
+        assertThat(result.getResults().getValue(), is(documents));
+        assertThat(result.getPromotions().isSuccessful(), is(false));
+        assertThat(result.getPromotions().getError(), instanceOf(IOException.class));
+        assertThat(result.getRelatedConcepts().isSuccessful(), is(true));
+        assertThat(result.getParametricValues(), is(nullValue()));
+
+        verifyZeroInteractions(parametricValuesService);
+    }
+
+    @Test
+    public void rejectedSectionsFail() throws IOException {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.AbortPolicy());
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        try {
+            final SearchPageService<String, SearchResult, QuerySummaryElement> rejectingSearchPageService = new AbstractSearchPageService<String, SearchResult, QuerySummaryElement, ParametricRequest<String>, IOException>(documentsService, parametricValuesService, relatedConceptsService, MoreExecutors.listeningDecorator(executor), 10L, TimeUnit.SECONDS) {
+                @Override
+                protected ParametricRequest<String> createParametricRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+                    return parametricRequest;
+                }
+
+                @Override
+                protected RelatedConceptsRequest<String> createRelatedConceptsRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+                    return relatedConceptsRequest;
+                }
+            };
+
+            // occupy the only thread so that the section is rejected
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (final InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            final SearchPageRequest<String> searchPageRequest = new SearchPageRequest<>();
+            searchPageRequest.setQueryRestrictions(queryRestrictions);
+            searchPageRequest.setSections(EnumSet.of(SearchPageSection.RESULTS));
+
+            final SearchPageResult<SearchResult, QuerySummaryElement> result = rejectingSearchPageService.getSearchPage(searchPageRequest);
+            assertThat(result.getResults().isSuccessful(), is(false));
+            assertThat(result.getResults().getError(), instanceOf(ParallelRequestException.class));
+
+            verifyZeroInteractions(documentsService);
+        } finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+}
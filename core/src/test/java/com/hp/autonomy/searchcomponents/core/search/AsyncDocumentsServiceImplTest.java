@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hp.autonomy.types.requests.Documents;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncDocumentsServiceImplTest {
+    @Mock
+    private DocumentsService<String, SearchResult, IOException> documentsService;
+
+    @Mock
+    private SearchRequest<String> searchRequest;
+
+    private AsyncDocumentsService<String, SearchResult> asyncDocumentsService;
+
+    @Before
+    public void setUp() {
+        asyncDocumentsService = new AsyncDocumentsServiceImpl<>(documentsService, MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    public void queryTextIndex() throws IOException, ExecutionException, InterruptedException {
+        final Documents<SearchResult> documents = new Documents<>(Collections.<SearchResult>emptyList(), 0, null, null, null, null);
+        when(documentsService.queryTextIndex(searchRequest)).thenReturn(documents);
+
+        assertThat(asyncDocumentsService.queryTextIndex(searchRequest).get(), is(documents));
+    }
+
+    @Test(expected = IOException.class)
+    public void queryTextIndexFailure() throws IOException, InterruptedException {
+        when(documentsService.queryTextIndex(searchRequest)).thenThrow(new IOException());
+
+        try {
+            asyncDocumentsService.queryTextIndex(searchRequest).get();
+        } catch (final ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.types.requests.Documents;
+import lombok.Data;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingDocumentsServiceTest {
+    @Mock
+    private DocumentsService<String, SearchResult, IOException> documentsService;
+
+    @Mock
+    private QueryResultsCacheKeyProvider cacheKeyProvider;
+
+    private CachingDocumentsService<String, SearchResult, IOException> cachingDocumentsService;
+
+    @Before
+    public void setUp() throws IOException {
+        when(documentsService.queryTextIndex(any(SearchRequest.class))).thenReturn(new Documents<>(Collections.<SearchResult>emptyList(), 0, null, null, null, null));
+        when(documentsService.queryTextIndexForPromotions(any(SearchRequest.class))).thenReturn(new Documents<>(Collections.<SearchResult>emptyList(), 0, null, null, null, null));
+        when(cacheKeyProvider.getSecurityKey()).thenReturn("security info");
+
+        cachingDocumentsService = new CachingDocumentsService<>(documentsService, cacheKeyProvider, IOException.class, "test", 100L, 1L, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void queryTextIndexIsCached() throws IOException {
+        final Documents<SearchResult> documents = cachingDocumentsService.queryTextIndex(searchRequest(1));
+        assertThat(cachingDocumentsService.queryTextIndex(searchRequest(1)), sameInstance(documents));
+
+        verify(documentsService).queryTextIndex(any(SearchRequest.class));
+        assertThat(cachingDocumentsService.getStats().hitCount(), is(1L));
+        assertThat(cachingDocumentsService.getStats().missCount(), is(1L));
+    }
+
+    @Test
+    public void differentRequestsAreNotShared() throws IOException {
+        cachingDocumentsService.queryTextIndex(searchRequest(1));
+        cachingDocumentsService.queryTextIndex(searchRequest(31));
+        cachingDocumentsService.queryTextIndexForPromotions(searchRequest(1));
+
+        verify(documentsService, times(2)).queryTextIndex(any(SearchRequest.class));
+        verify(documentsService).queryTextIndexForPromotions(any(SearchRequest.class));
+    }
+
+    @Test
+    public void differentSecurityKeysAreNotShared() throws IOException {
+        cachingDocumentsService.queryTextIndex(searchRequest(1));
+        when(cacheKeyProvider.getSecurityKey()).thenReturn((Serializable) "other security info");
+        cachingDocumentsService.queryTextIndex(searchRequest(1));
+
+        verify(documentsService, times(2)).queryTextIndex(any(SearchRequest.class));
+    }
+
+    @Test
+    public void changesToRequestAfterQueryDoNotAffectCache() throws IOException {
+        final SearchRequest<String> searchRequest = searchRequest(1);
+        cachingDocumentsService.queryTextIndex(searchRequest);
+        searchRequest.setStart(31);
+        cachingDocumentsService.queryTextIndex(searchRequest(1));
+
+        verify(documentsService).queryTextIndex(any(SearchRequest.class));
+    }
+
+    @Test(expected = IOException.class)
+    public void checkedExceptionIsRethrown() throws IOException {
+        when(documentsService.queryTextIndex(any(SearchRequest.class))).thenThrow(new IOException());
+        cachingDocumentsService.queryTextIndex(searchRequest(1));
+    }
+
+    @Test
+    public void failuresAreNotCached() throws IOException {
+        when(documentsService.queryTextIndex(any(SearchRequest.class))).thenThrow(new IOException()).thenReturn(new Documents<>(Collections.<SearchResult>emptyList(), 0, null, null, null, null));
+
+        try {
+            cachingDocumentsService.queryTextIndex(searchRequest(1));
+        } catch (final IOException ignored) {
+        }
+
+        assertThat(cachingDocumentsService.queryTextIndex(searchRequest(1)).getTotalResults(), is(0));
+        verify(documentsService, times(2)).queryTextIndex(any(SearchRequest.class));
+    }
+
+    @Test
+    public void exportsArePassedThrough() throws IOException {
+        @SuppressWarnings("unchecked")
+        final ExportingDocumentsService<String, SearchResult, IOException> exportingDocumentsService = mock(ExportingDocumentsService.class);
+        @SuppressWarnings("unchecked")
+        final DocumentSink<SearchResult> sink = mock(DocumentSink.class);
+        when(exportingDocumentsService.exportDocuments(any(SearchRequest.class), eq(10), eq(sink))).thenReturn(3);
+
+        final CachingExportingDocumentsService<String, SearchResult, IOException> cachingExportingService = new CachingExportingDocumentsService<>(exportingDocumentsService, cacheKeyProvider, IOException.class);
+        assertThat(cachingExportingService.exportDocuments(searchRequest(1), 10, sink), is(3));
+        cachingExportingService.exportDocuments(searchRequest(1), 10, sink);
+
+        verify(exportingDocumentsService, times(2)).exportDocuments(any(SearchRequest.class), eq(10), eq(sink));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedDocumentsAreUnmodifiable() throws IOException {
+        when(documentsService.queryTextIndex(any(SearchRequest.class))).thenReturn(new Documents<>(new ArrayList<>(Collections.singletonList(mock(SearchResult.class))), 1, null, null, null, null));
+
+        cachingDocumentsService.queryTextIndex(searchRequest(1)).getDocuments().clear();
+    }
+
+    private SearchRequest<String> searchRequest(final int start) {
+        final SearchRequest<String> searchRequest = new SearchRequest<>();
+        searchRequest.setQueryRestrictions(new TestQueryRestrictions("*"));
+        searchRequest.setStart(start);
+        return searchRequest;
+    }
+
+    @Data
+    private static class TestQueryRestrictions implements QueryRestrictions<String> {
+        private static final long serialVersionUID = 2862618329312549327L;
+
+        private final String queryText;
+        private String fieldText;
+        private List<String> databases = Collections.singletonList("Database1");
+        private DateTime minDate;
+        private DateTime maxDate;
+        private String languageType;
+        private List<String> stateMatchId;
+        private List<String> stateDontMatchId;
+        private boolean anyLanguage;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestException;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.types.requests.Documents;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DocumentsIteratorTest {
+    private ParallelRequestExecutor parallelRequestExecutor;
+
+    @Before
+    public void setUp() {
+        parallelRequestExecutor = new ParallelRequestExecutor(2, 10, 5000L);
+    }
+
+    @After
+    public void tearDown() {
+        parallelRequestExecutor.shutdown();
+    }
+
+    @Test
+    public void iteratesOverAllWindows() {
+        final DocumentsIterator<String> iterator = new DocumentsIterator<>(new TestWindowSource(Arrays.asList("a", "b"), Collections.<String>emptyList(), Collections.singletonList("c")), parallelRequestExecutor);
+
+        final List<String> documents = new ArrayList<>();
+        while (iterator.hasNext()) {
+            documents.add(iterator.next());
+        }
+
+        assertThat(documents, contains("a", "b", "c"));
+        assertThat(iterator.getTotalResults(), is(3));
+        assertThat(iterator.getReturnedCount(), is(3));
+        assertThat(iterator.getProgress(), is(1.0));
+    }
+
+    @Test
+    public void prefetchesOneWindow() {
+        final TestWindowSource windowSource = new TestWindowSource(Collections.singletonList("a"), Collections.singletonList("b"), Collections.singletonList("c"), Collections.singletonList("d"));
+        final DocumentsIterator<String> iterator = new DocumentsIterator<>(windowSource, parallelRequestExecutor);
+
+        assertThat(iterator.getTotalResults(), is(nullValue()));
+        assertThat(iterator.next(), is("a"));
+        assertThat(iterator.getProgress(), is(0.25));
+
+        // the first window and the one after it
+        assertThat(windowSource.requestCount.get(), lessThanOrEqualTo(2));
+        iterator.close();
+    }
+
+    @Test
+    public void serialExecutorRequestsWindowsInTurn() {
+        final DocumentsIterator<String> iterator = new DocumentsIterator<>(new TestWindowSource(Collections.singletonList("a"), Collections.singletonList("b")), ParallelRequestExecutor.serial());
+
+        assertThat(iterator.next(), is("a"));
+        assertThat(iterator.next(), is("b"));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test(expected = ParallelRequestException.class)
+    public void failedWindowIsRethrown() {
+        final DocumentsIterator<String> iterator = new DocumentsIterator<>(new DocumentWindowSource<String, IOException>() {
+            @Override
+            public Documents<String> nextWindow() throws IOException {
+                throw new IOException();
+            }
+        }, parallelRequestExecutor);
+
+        iterator.hasNext();
+    }
+
+    private static class TestWindowSource implements DocumentWindowSource<String, RuntimeException> {
+        private final List<List<String>> windows;
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private final int totalResults;
+
+        @SafeVarargs
+        private TestWindowSource(final List<String>... windows) {
+            this.windows = Arrays.asList(windows);
+
+            int totalResults = 0;
+            for (final List<String> window : windows) {
+                totalResults += window.size();
+            }
+
+            this.totalResults = totalResults;
+        }
+
+        @Override
+        public Documents<String> nextWindow() {
+            final int window = requestCount.getAndIncrement();
+            return window < windows.size() ? new Documents<>(windows.get(window), totalResults, null, null, null, null) : null;
+        }
+    }
+}
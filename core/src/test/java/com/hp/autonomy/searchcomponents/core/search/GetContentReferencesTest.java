@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.core.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GetContentReferencesTest {
+    @Test
+    public void noChunkingRequired() {
+        final GetContentRequestIndex<String> indexAndReferences = new GetContentRequestIndex<>("Database1", new LinkedHashSet<>(Arrays.asList("a", "b", "c")));
+        final List<GetContentRequestIndex<String>> chunks = GetContentReferences.chunk(indexAndReferences, 10, 100);
+        assertThat(chunks, hasSize(1));
+        assertThat(chunks.get(0), sameInstance(indexAndReferences));
+    }
+
+    @Test
+    public void chunkByCount() {
+        final GetContentRequestIndex<String> indexAndReferences = new GetContentRequestIndex<>("Database1", new LinkedHashSet<>(Arrays.asList("a", "b", "c", "d", "e")));
+        final List<GetContentRequestIndex<String>> chunks = GetContentReferences.chunk(indexAndReferences, 2, 100);
+        assertThat(chunks, hasSize(3));
+        assertThat(chunks.get(0).getReferences(), contains("a", "b"));
+        assertThat(chunks.get(1).getReferences(), contains("c", "d"));
+        assertThat(chunks.get(2).getReferences(), contains("e"));
+        assertThat(chunks.get(2).getIndex(), sameInstance("Database1"));
+    }
+
+    @Test
+    public void chunkByEncodedLength() {
+        // "a b" encodes to "a+b", so each reference costs four characters including the separator
+        final GetContentRequestIndex<String> indexAndReferences = new GetContentRequestIndex<>("Database1", new LinkedHashSet<>(Arrays.asList("a b", "c d", "e f")));
+        final List<GetContentRequestIndex<String>> chunks = GetContentReferences.chunk(indexAndReferences, 10, 8);
+        assertThat(chunks, hasSize(2));
+        assertThat(chunks.get(0).getReferences(), contains("a b", "c d"));
+        assertThat(chunks.get(1).getReferences(), contains("e f"));
+    }
+
+    @Test
+    public void sortByReferenceOrder() {
+        final SearchResult first = mockResult("first");
+        final SearchResult second = mockResult("second");
+        final SearchResult unknown = mockResult("unknown");
+
+        final List<SearchResult> results = new ArrayList<>(Arrays.asList(unknown, second, first));
+        GetContentReferences.sortByReferenceOrder(Arrays.asList("first", "second"), results);
+        assertThat(results, contains(first, second, unknown));
+    }
+
+    private SearchResult mockResult(final String reference) {
+        final SearchResult result = mock(SearchResult.class);
+        when(result.getReference()).thenReturn(reference);
+        return result;
+    }
+}
@@ -50,4 +50,13 @@ public abstract class AbstractDocumentFieldsServiceTest {
         when(configService.getConfig()).thenReturn(config);
         assertThat(documentFieldsService.getPrintFields(), hasSize(numberOfHardCodedFields + 1));
     }
+
+    @Test
+    public void getPrintFieldsCanBeModified() {
+        fieldsInfo = new FieldsInfo.Builder().build();
+        when(config.getFieldsInfo()).thenReturn(fieldsInfo);
+        when(configService.getConfig()).thenReturn(config);
+        documentFieldsService.getPrintFields().add("SomeOtherField");
+        assertThat(documentFieldsService.getPrintFields(), hasSize(numberOfHardCodedFields));
+    }
 }
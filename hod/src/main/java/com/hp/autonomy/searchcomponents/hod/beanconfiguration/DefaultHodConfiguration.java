@@ -7,11 +7,13 @@ package com.hp.autonomy.searchcomponents.hod.beanconfiguration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
 import com.hp.autonomy.hod.client.api.resource.ResourcesService;
 import com.hp.autonomy.hod.client.api.textindex.query.content.GetContentService;
 import com.hp.autonomy.hod.client.api.textindex.query.parametric.GetParametricValuesService;
+import com.hp.autonomy.hod.client.api.textindex.query.search.Entity;
 import com.hp.autonomy.hod.client.api.textindex.query.search.FindSimilarService;
 import com.hp.autonomy.hod.client.api.textindex.query.search.QueryTextIndexService;
 import com.hp.autonomy.hod.client.error.HodErrorException;
@@ -20,8 +22,21 @@ import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInform
 import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
 import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
 import com.hp.autonomy.searchcomponents.core.languages.LanguagesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.AsyncParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.AsyncParametricValuesServiceImpl;
 import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.requests.TenantRequestExecutors;
+import com.hp.autonomy.searchcomponents.core.search.AsyncDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.AsyncDocumentsServiceImpl;
+import com.hp.autonomy.searchcomponents.core.search.AsyncRelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.AsyncRelatedConceptsServiceImpl;
+import com.hp.autonomy.searchcomponents.core.search.CachingExportingDocumentsService;
 import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.ExportingDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.SearchPageService;
 import com.hp.autonomy.searchcomponents.core.search.fields.DocumentFieldsService;
 import com.hp.autonomy.searchcomponents.hod.configuration.HodSearchCapable;
 import com.hp.autonomy.searchcomponents.hod.databases.Database;
@@ -32,14 +47,21 @@ import com.hp.autonomy.searchcomponents.hod.languages.HodLanguagesService;
 import com.hp.autonomy.searchcomponents.hod.parametricvalues.HodParametricRequest;
 import com.hp.autonomy.searchcomponents.hod.parametricvalues.HodParametricValuesService;
 import com.hp.autonomy.searchcomponents.hod.search.HodDocumentsService;
+import com.hp.autonomy.searchcomponents.hod.search.HodSearchPageService;
 import com.hp.autonomy.searchcomponents.hod.search.HodSearchResult;
+import com.hp.autonomy.searchcomponents.hod.search.IndexDomainResolver;
 import com.hp.autonomy.searchcomponents.hod.search.fields.HodSearchResultDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 class DefaultHodConfiguration {
+    private static final long SEARCH_PAGE_TIMEOUT_MILLIS = 90000L;
+
     @Bean
     public ObjectMapper hodSearchResultObjectMapper(final HodSearchResultDeserializer searchResultDeserializer) {
         final ObjectMapper objectMapper = new ObjectMapper();
@@ -47,6 +69,9 @@ class DefaultHodConfiguration {
         customModule.addDeserializer(HodSearchResult.class, searchResultDeserializer);
         objectMapper.registerModule(customModule);
 
+        // the HOD client reads with this mapper on the requesting thread, without attributes for each call
+        objectMapper.setConfig(objectMapper.getDeserializationConfig().with(IndexDomainResolver.withBoundResolver(objectMapper.getDeserializationConfig().getAttributes())));
+
         return objectMapper;
     }
 
@@ -62,17 +87,71 @@ class DefaultHodConfiguration {
         return new HodDatabasesService(resourcesService, authenticationInformationRetriever);
     }
 
+    /**
+     * Also injectable as an {@link ExportingDocumentsService}, including when query results are cached
+     */
     @SuppressWarnings("MethodWithTooManyParameters")
     @Bean
     @ConditionalOnMissingBean(DocumentsService.class)
-    public DocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService(final FindSimilarService<HodSearchResult> findSimilarService, final ConfigService<? extends HodSearchCapable> configService, final QueryTextIndexService<HodSearchResult> queryTextIndexService, final GetContentService<HodSearchResult> getContentService, final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever, final DocumentFieldsService documentFieldsService) {
-        return new HodDocumentsService(findSimilarService, configService, queryTextIndexService, getContentService, authenticationInformationRetriever, documentFieldsService);
+    public ExportingDocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService(
+            final FindSimilarService<HodSearchResult> findSimilarService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final QueryTextIndexService<HodSearchResult> queryTextIndexService,
+            final GetContentService<HodSearchResult> getContentService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever,
+            final DocumentFieldsService documentFieldsService,
+            final TenantRequestExecutors tenantRequestExecutors,
+            @Value("${" + HavenSearchHodConfiguration.PARALLEL_GET_CONTENT_PROPERTY + ":false}") final boolean parallelGetContent,
+            @Value("${" + HavenSearchHodConfiguration.PREFETCH_DOCUMENT_WINDOWS_PROPERTY + ":true}") final boolean prefetchDocumentWindows,
+            final QueryResultsCacheKeyProvider queryResultsCacheKeyProvider,
+            @Value("${" + HavenSearchHodConfiguration.QUERY_RESULTS_CACHE_PROPERTY + ":false}") final boolean queryResultsCache) {
+        final ExportingDocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService = new HodDocumentsService(findSimilarService, configService, queryTextIndexService, getContentService, authenticationInformationRetriever, documentFieldsService, parallelGetContent ? tenantRequestExecutors : null, prefetchDocumentWindows ? tenantRequestExecutors : null);
+        return queryResultsCache ? new CachingExportingDocumentsService<>(documentsService, queryResultsCacheKeyProvider, HodErrorException.class) : documentsService;
     }
 
+    @SuppressWarnings("MethodWithTooManyParameters")
     @Bean
     @ConditionalOnMissingBean(ParametricValuesService.class)
-    public ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> parametricValuesService(final FieldsService<HodFieldsRequest, HodErrorException> fieldsService, final GetParametricValuesService getParametricValuesService, final ConfigService<? extends HodSearchCapable> configService, final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever) {
-        return new HodParametricValuesService(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever);
+    public ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> parametricValuesService(
+            final FieldsService<HodFieldsRequest, HodErrorException> fieldsService,
+            final GetParametricValuesService getParametricValuesService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            @Value("${" + HavenSearchHodConfiguration.PARAMETRIC_VALUES_MERGE_INDEXES_PROPERTY + ":false}") final boolean mergeIndexes,
+            @Lazy final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> cachedParametricValuesService) {
+        // the lazy reference resolves to this bean once it is created, so ranges use its cached values
+        return new HodParametricValuesService(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, mergeIndexes ? parallelRequestExecutor : null, cachedParametricValuesService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncDocumentsService.class)
+    public AsyncDocumentsService<ResourceIdentifier, HodSearchResult> asyncDocumentsService(final DocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncDocumentsServiceImpl<>(documentsService, executorService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncParametricValuesService.class)
+    public AsyncParametricValuesService<HodParametricRequest, ResourceIdentifier> asyncParametricValuesService(final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> parametricValuesService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncParametricValuesServiceImpl<>(parametricValuesService, executorService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncRelatedConceptsService.class)
+    public AsyncRelatedConceptsService<Entity, ResourceIdentifier> asyncRelatedConceptsService(final RelatedConceptsService<Entity, ResourceIdentifier, HodErrorException> relatedConceptsService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncRelatedConceptsServiceImpl<>(relatedConceptsService, executorService);
+    }
+
+    @SuppressWarnings("MethodWithTooManyParameters")
+    @Bean
+    @ConditionalOnMissingBean(SearchPageService.class)
+    public SearchPageService<ResourceIdentifier, HodSearchResult, Entity> searchPageService(
+            final DocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService,
+            final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> parametricValuesService,
+            final RelatedConceptsService<Entity, ResourceIdentifier, HodErrorException> relatedConceptsService,
+            @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService,
+            @Value("${" + HavenSearchHodConfiguration.SEARCH_PAGE_TIMEOUT_PROPERTY + ":" + SEARCH_PAGE_TIMEOUT_MILLIS + "}") final long timeoutMillis) {
+        return new HodSearchPageService(documentsService, parametricValuesService, relatedConceptsService, executorService, timeoutMillis);
     }
 
     private static class CustomModule extends SimpleModule {
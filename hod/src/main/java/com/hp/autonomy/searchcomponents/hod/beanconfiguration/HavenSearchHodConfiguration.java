@@ -5,6 +5,8 @@
 
 package com.hp.autonomy.searchcomponents.hod.beanconfiguration;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hp.autonomy.hod.client.api.analysis.viewdocument.ViewDocumentService;
 import com.hp.autonomy.hod.client.api.analysis.viewdocument.ViewDocumentServiceImpl;
 import com.hp.autonomy.hod.client.api.authentication.EntityType;
@@ -25,8 +27,19 @@ import com.hp.autonomy.hod.client.api.textindex.query.search.FindSimilarServiceI
 import com.hp.autonomy.hod.client.api.textindex.query.search.QueryTextIndexService;
 import com.hp.autonomy.hod.client.api.textindex.query.search.QueryTextIndexServiceImpl;
 import com.hp.autonomy.hod.client.config.HodServiceConfig;
+import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
+import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.requests.RequestExecutors;
+import com.hp.autonomy.searchcomponents.core.requests.TenantRequestExecutors;
+import com.hp.autonomy.searchcomponents.core.search.CachingDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.searchcomponents.hod.search.HodDocumentsService;
+import com.hp.autonomy.searchcomponents.hod.search.HodQueryResultsCacheKeyProvider;
 import com.hp.autonomy.searchcomponents.hod.search.HodSearchResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -37,6 +50,80 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ComponentScan("com.hp.autonomy.searchcomponents.hod")
 public class HavenSearchHodConfiguration {
+    /**
+     * Set this property to true to cache query results; see {@link CachingDocumentsService}
+     */
+    public static final String QUERY_RESULTS_CACHE_PROPERTY = "haven-search.hod.query-results-cache";
+
+    /**
+     * Set this property to true to request the content of documents in different indexes in parallel, on a bounded
+     * pool for each domain; see {@link TenantRequestExecutors}
+     */
+    public static final String PARALLEL_GET_CONTENT_PROPERTY = "haven-search.hod.parallel-get-content";
+
+    /**
+     * Set this property to false to stop {@link HodDocumentsService#iterateDocuments} requesting the next window of
+     * results while the current one is read. Prefetching is on by default and runs on the same pool for each domain as
+     * parallel get content requests, independently of {@link #PARALLEL_GET_CONTENT_PROPERTY}.
+     */
+    public static final String PREFETCH_DOCUMENT_WINDOWS_PROPERTY = "haven-search.hod.prefetch-document-windows";
+
+    /**
+     * Set this property to true to request parametric values from each index in parallel and merge the top values of
+     * each, rather than making one request across all the indexes. Merged counts omit values outside the top values
+     * fetched from an index, so they may be lower than the exact counts.
+     */
+    public static final String PARAMETRIC_VALUES_MERGE_INDEXES_PROPERTY = "haven-search.hod.parametric-values.merge-indexes";
+
+    /**
+     * Maximum number of requests in flight in the pool shared by requests which are split across indexes
+     */
+    public static final String PARALLEL_REQUEST_MAX_THREADS_PROPERTY = "haven-search.hod.parallel-requests.max-threads";
+
+    /**
+     * Maximum number of split requests waiting for a thread; beyond this, requests are rejected
+     */
+    public static final String PARALLEL_REQUEST_QUEUE_SIZE_PROPERTY = "haven-search.hod.parallel-requests.queue-size";
+
+    /**
+     * Deadline in milliseconds for each batch of split requests, shared with the pools of each domain
+     */
+    public static final String PARALLEL_REQUEST_TIMEOUT_PROPERTY = "haven-search.hod.parallel-requests.timeout-millis";
+
+    /**
+     * Maximum number of requests in flight for each domain; see {@link TenantRequestExecutors}
+     */
+    public static final String TENANT_REQUEST_MAX_THREADS_PROPERTY = "haven-search.hod.tenant-requests.max-threads";
+
+    /**
+     * Maximum number of requests waiting for a thread for each domain; beyond this, requests are rejected
+     */
+    public static final String TENANT_REQUEST_QUEUE_SIZE_PROPERTY = "haven-search.hod.tenant-requests.queue-size";
+
+    /**
+     * Maximum number of requests in flight for the async services
+     */
+    public static final String ASYNC_REQUEST_MAX_THREADS_PROPERTY = "haven-search.hod.async-requests.max-threads";
+
+    /**
+     * Maximum number of requests waiting for a thread for the async services and search page sections; beyond this,
+     * requests are rejected
+     */
+    public static final String ASYNC_REQUEST_QUEUE_SIZE_PROPERTY = "haven-search.hod.async-requests.queue-size";
+
+    /**
+     * Time in milliseconds after which search page sections which have not completed are cancelled
+     */
+    public static final String SEARCH_PAGE_TIMEOUT_PROPERTY = "haven-search.hod.search-page.timeout-millis";
+
+    private static final int ASYNC_REQUEST_MAX_THREADS = 20;
+    private static final int ASYNC_REQUEST_QUEUE_SIZE = 100;
+    private static final int PARALLEL_REQUEST_MAX_THREADS = 20;
+    private static final int PARALLEL_REQUEST_QUEUE_SIZE = 100;
+    private static final long PARALLEL_REQUEST_TIMEOUT_MILLIS = 90000L;
+    private static final int TENANT_REQUEST_MAX_THREADS = 4;
+    private static final int TENANT_REQUEST_QUEUE_SIZE = 20;
+
     @Autowired
     private HodServiceConfig<EntityType.Combined, TokenType.Simple> hodServiceConfig;
 
@@ -89,4 +176,42 @@ public class HavenSearchHodConfiguration {
     public ResourcesService resourcesService() {
         return new ResourcesServiceImpl(hodServiceConfig);
     }
+
+    /**
+     * Executor for requests which are split across indexes; define a bean with this name to configure it
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "parallelRequestExecutor")
+    public ParallelRequestExecutor parallelRequestExecutor(
+            @Value("${" + PARALLEL_REQUEST_MAX_THREADS_PROPERTY + ":" + PARALLEL_REQUEST_MAX_THREADS + "}") final int maxThreads,
+            @Value("${" + PARALLEL_REQUEST_QUEUE_SIZE_PROPERTY + ":" + PARALLEL_REQUEST_QUEUE_SIZE + "}") final int queueSize,
+            @Value("${" + PARALLEL_REQUEST_TIMEOUT_PROPERTY + ":" + PARALLEL_REQUEST_TIMEOUT_MILLIS + "}") final long timeoutMillis) {
+        return new ParallelRequestExecutor(maxThreads, queueSize, timeoutMillis);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(TenantRequestExecutors.class)
+    public TenantRequestExecutors tenantRequestExecutors(
+            @Value("${" + TENANT_REQUEST_MAX_THREADS_PROPERTY + ":" + TENANT_REQUEST_MAX_THREADS + "}") final int maxThreadsPerTenant,
+            @Value("${" + TENANT_REQUEST_QUEUE_SIZE_PROPERTY + ":" + TENANT_REQUEST_QUEUE_SIZE + "}") final int queueSizePerTenant,
+            @Value("${" + PARALLEL_REQUEST_TIMEOUT_PROPERTY + ":" + PARALLEL_REQUEST_TIMEOUT_MILLIS + "}") final long timeoutMillis) {
+        return new TenantRequestExecutors(maxThreadsPerTenant, queueSizePerTenant, timeoutMillis);
+    }
+
+    /**
+     * Executor for the async services; define a bean with this name to configure it
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "asyncRequestExecutorService")
+    public ListeningExecutorService asyncRequestExecutorService(
+            @Value("${" + ASYNC_REQUEST_MAX_THREADS_PROPERTY + ":" + ASYNC_REQUEST_MAX_THREADS + "}") final int maxThreads,
+            @Value("${" + ASYNC_REQUEST_QUEUE_SIZE_PROPERTY + ":" + ASYNC_REQUEST_QUEUE_SIZE + "}") final int queueSize) {
+        return MoreExecutors.listeningDecorator(RequestExecutors.newBoundedExecutorService(maxThreads, queueSize, "async-request-%d"));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(QueryResultsCacheKeyProvider.class)
+    public QueryResultsCacheKeyProvider queryResultsCacheKeyProvider(final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever) {
+        return new HodQueryResultsCacheKeyProvider(authenticationInformationRetriever);
+    }
 }
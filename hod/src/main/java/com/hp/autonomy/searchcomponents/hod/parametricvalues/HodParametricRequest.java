@@ -25,11 +25,14 @@ public class HodParametricRequest implements ParametricRequest<ResourceIdentifie
     private static final long serialVersionUID = 2235023046934181036L;
 
     public static final int MAX_VALUES_DEFAULT = 5;
+    public static final int START_DEFAULT = 1;
 
     private List<String> fieldNames = Collections.emptyList();
     private Integer maxValues = MAX_VALUES_DEFAULT;
     private QueryRestrictions<ResourceIdentifier> queryRestrictions;
     private boolean modified = true;
+    private List<String> valueRestrictions = Collections.emptyList();
+    private Integer start = START_DEFAULT;
 
     @JsonPOJOBuilder(withPrefix = "set")
     @Setter
@@ -40,16 +43,20 @@ public class HodParametricRequest implements ParametricRequest<ResourceIdentifie
         private Integer maxValues = MAX_VALUES_DEFAULT;
         private QueryRestrictions<ResourceIdentifier> queryRestrictions;
         private boolean modified = true;
+        private List<String> valueRestrictions = Collections.emptyList();
+        private Integer start = START_DEFAULT;
 
         public Builder(final ParametricRequest<ResourceIdentifier> hodParametricRequest) {
             fieldNames = hodParametricRequest.getFieldNames();
             maxValues = hodParametricRequest.getMaxValues();
             queryRestrictions = hodParametricRequest.getQueryRestrictions();
             modified = hodParametricRequest.isModified();
+            valueRestrictions = hodParametricRequest.getValueRestrictions();
+            start = hodParametricRequest.getStart();
         }
 
         public HodParametricRequest build() {
-            return new HodParametricRequest(fieldNames, maxValues, queryRestrictions, modified);
+            return new HodParametricRequest(fieldNames, maxValues, queryRestrictions, modified, valueRestrictions, start);
         }
     }
 }
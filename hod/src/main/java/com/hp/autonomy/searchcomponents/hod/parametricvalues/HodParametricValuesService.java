@@ -16,39 +16,100 @@ import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
 import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
 import com.hp.autonomy.searchcomponents.core.caching.CacheNames;
 import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.BucketingParams;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricLevelRequest;
 import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBucket;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBuckets;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeInfo;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.TopValues;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ValueRestrictions;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.hod.configuration.HodSearchCapable;
 import com.hp.autonomy.searchcomponents.hod.fields.HodFieldsRequest;
 import com.hp.autonomy.types.idol.RecursiveField;
 import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
 import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.NotImplementedException;
 import org.springframework.cache.annotation.Cacheable;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
+@Slf4j
 public class HodParametricValuesService implements ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> {
+    static final int ALL_VALUES_MAX_VALUES = 10000;
+    // fetch extra values from each index so that values just outside the top of every index are still counted
+    private static final int PER_INDEX_MAX_VALUES_MARGIN = 10;
+
     private final FieldsService<HodFieldsRequest, HodErrorException> fieldsService;
     private final GetParametricValuesService getParametricValuesService;
     private final ConfigService<? extends HodSearchCapable> configService;
     private final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever;
+    private final ParallelRequestExecutor parallelRequestExecutor;
+    private final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> valuesService;
 
     public HodParametricValuesService(final FieldsService<HodFieldsRequest, HodErrorException> fieldsService, final GetParametricValuesService getParametricValuesService, final ConfigService<? extends HodSearchCapable> configService, final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever) {
+        this(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, null);
+    }
+
+    /**
+     * @param parallelRequestExecutor if not null, values are requested from each index in parallel and merged here
+     *                                rather than requested from all the indexes at once; merged counts may be lower
+     *                                than the exact counts
+     */
+    public HodParametricValuesService(
+            final FieldsService<HodFieldsRequest, HodErrorException> fieldsService,
+            final GetParametricValuesService getParametricValuesService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever,
+            final ParallelRequestExecutor parallelRequestExecutor) {
+        this(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, parallelRequestExecutor, null);
+    }
+
+    /**
+     * @param parallelRequestExecutor if not null, values are requested from each index in parallel and merged here
+     *                                rather than requested from all the indexes at once; merged counts may be lower
+     *                                than the exact counts
+     * @param valuesService           if not null, used to fetch the values to bucket for ranges; pass the bean for
+     *                                this service so that the values are cached
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public HodParametricValuesService(
+            final FieldsService<HodFieldsRequest, HodErrorException> fieldsService,
+            final GetParametricValuesService getParametricValuesService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> valuesService) {
         this.fieldsService = fieldsService;
         this.getParametricValuesService = getParametricValuesService;
         this.configService = configService;
         this.authenticationInformationRetriever = authenticationInformationRetriever;
+        this.parallelRequestExecutor = parallelRequestExecutor;
+        this.valuesService = valuesService == null ? this : valuesService;
     }
 
+    /**
+     * Values for each field are returned in decreasing order of document count, as for IDOL. When a request spans
+     * several indexes and a {@link ParallelRequestExecutor} is configured, the top values of each index are merged here;
+     * the counts of values which fall outside the values fetched for an index are then not included, so the counts are
+     * approximate. Requests with value restrictions or paging are always made across all the indexes at once.
+     * <p>
+     * Haven OnDemand cannot restrict or page values, so when the request has value restrictions or starts after the
+     * first value, the top 10000 values of each field are fetched and restricted and paged here. Matching values outside
+     * those 10000 are not returned; a warning is logged when a field reaches the limit.
+     */
     @Override
     @Cacheable(CacheNames.PARAMETRIC_VALUES)
     public Set<QueryTagInfo> getAllParametricValues(final HodParametricRequest parametricRequest) throws HodErrorException {
-        final Collection<String> fieldNames = new HashSet<>();
+        final Collection<String> fieldNames = new LinkedHashSet<>();
         fieldNames.addAll(parametricRequest.getFieldNames());
         if (fieldNames.isEmpty()) {
             fieldNames.addAll(fieldsService.getParametricFields(new HodFieldsRequest.Builder().setDatabases(parametricRequest.getQueryRestrictions().getDatabases()).build()));
@@ -60,20 +121,49 @@ public class HodParametricValuesService implements ParametricValuesService<HodPa
         } else {
             final ResourceIdentifier queryProfile = parametricRequest.isModified() ? getQueryProfile() : null;
 
+            // Haven OnDemand cannot restrict or page the values, so fetch as many as allowed and do so here
+            final boolean filterValues = !parametricRequest.getValueRestrictions().isEmpty() || parametricRequest.getStart() != null && parametricRequest.getStart() > 1;
+            final List<ResourceIdentifier> indexes = new ArrayList<>(parametricRequest.getQueryRestrictions().getDatabases());
+            // values to be filtered are fetched in one request, as merging would fetch the maximum from every index
+            final boolean mergeIndexes = parallelRequestExecutor != null && indexes.size() > 1 && !filterValues;
+            final int requestedMaxValues = parametricRequest.getMaxValues() == null ? HodParametricRequest.MAX_VALUES_DEFAULT : parametricRequest.getMaxValues();
+
+            final int maxValues;
+            if (filterValues) {
+                maxValues = ALL_VALUES_MAX_VALUES;
+            } else if (mergeIndexes) {
+                maxValues = Math.min(requestedMaxValues + requestedMaxValues / 2 + PER_INDEX_MAX_VALUES_MARGIN, ALL_VALUES_MAX_VALUES);
+            } else {
+                maxValues = requestedMaxValues;
+            }
+
             final GetParametricValuesRequestBuilder parametricParams = new GetParametricValuesRequestBuilder()
                     .setQueryProfile(queryProfile)
                     .setSort(ParametricSort.document_count)
                     .setText(parametricRequest.getQueryRestrictions().getQueryText())
                     .setFieldText(parametricRequest.getQueryRestrictions().getFieldText())
-                    .setMaxValues(parametricRequest.getMaxValues());
+                    .setMaxValues(maxValues);
+
+            final List<FieldNames> indexFieldNames = mergeIndexes
+                    ? getParametricValuesPerIndex(fieldNames, indexes, parametricParams)
+                    : Collections.singletonList(getParametricValuesService.getParametricValues(fieldNames, indexes, parametricParams));
+
+            // combine the fields returned for each index, as an index need not have values for every field
+            final Collection<String> returnedFieldNames = new LinkedHashSet<>();
+            for (final FieldNames parametricFieldNames : indexFieldNames) {
+                returnedFieldNames.addAll(parametricFieldNames.getFieldNames());
+            }
 
-            final FieldNames parametricFieldNames = getParametricValuesService.getParametricValues(fieldNames,
-                    new ArrayList<>(parametricRequest.getQueryRestrictions().getDatabases()), parametricParams);
-            final Set<String> fieldNamesSet = parametricFieldNames.getFieldNames();
+            results = new LinkedHashSet<>();
+            for (final String name : returnedFieldNames) {
+                final Collection<QueryTagCountInfo> fieldValues = getFieldValues(name, indexFieldNames, filterValues ? ALL_VALUES_MAX_VALUES : requestedMaxValues);
+                if (filterValues && fieldValues.size() >= ALL_VALUES_MAX_VALUES) {
+                    log.warn("Only the top {} values of field {} were restricted and paged; matching values outside these were not returned", ALL_VALUES_MAX_VALUES, name);
+                }
 
-            results = new HashSet<>();
-            for (final String name : fieldNamesSet) {
-                final Set<QueryTagCountInfo> values = new HashSet<>(parametricFieldNames.getValuesAndCountsForFieldName(name));
+                final Set<QueryTagCountInfo> values = filterValues
+                        ? ValueRestrictions.apply(fieldValues, parametricRequest.getValueRestrictions(), parametricRequest.getStart(), parametricRequest.getMaxValues())
+                        : new LinkedHashSet<>(fieldValues);
                 if (!values.isEmpty()) {
                     results.add(new QueryTagInfo(name, values));
                 }
@@ -88,6 +178,75 @@ public class HodParametricValuesService implements ParametricValuesService<HodPa
         throw new NotImplementedException();
     }
 
+    @Override
+    public Set<QueryTagInfo> getDependentParametricLevel(final HodParametricRequest parametricRequest, final ParametricLevelRequest levelRequest) throws HodErrorException {
+        throw new NotImplementedException();
+    }
+
+    /**
+     * Haven OnDemand cannot count documents in ranges, so the values are fetched and bucketed here so that only the
+     * buckets are returned to the client. Date periods are not supported.
+     * <p>
+     * At most {@value #ALL_VALUES_MAX_VALUES} values, those with the most documents, can be fetched for each field. If a
+     * field has more values than that, the buckets only count the documents of the values fetched and the range is
+     * marked as {@link RangeInfo#isApproximate() approximate}.
+     */
+    @Override
+    public List<RangeInfo> getParametricRanges(final HodParametricRequest parametricRequest, final BucketingParams bucketingParams) throws HodErrorException {
+        if (bucketingParams.getDatePeriod() != null) {
+            throw new NotImplementedException("Date periods are not supported by Haven OnDemand");
+        }
+
+        if (parametricRequest.getFieldNames().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final HodParametricRequest valuesRequest = new HodParametricRequest.Builder(parametricRequest)
+                .setMaxValues(ALL_VALUES_MAX_VALUES)
+                .setStart(HodParametricRequest.START_DEFAULT)
+                .build();
+
+        final List<RangeInfo> results = new ArrayList<>();
+        for (final QueryTagInfo queryTagInfo : valuesService.getAllParametricValues(valuesRequest)) {
+            final List<RangeBucket> buckets = RangeBuckets.bucketValues(queryTagInfo.getValues(), bucketingParams);
+            if (!buckets.isEmpty()) {
+                results.add(new RangeInfo(queryTagInfo.getName(), buckets, queryTagInfo.getValues().size() >= ALL_VALUES_MAX_VALUES));
+            }
+        }
+
+        return results;
+    }
+
+    private List<FieldNames> getParametricValuesPerIndex(final Collection<String> fieldNames, final Iterable<ResourceIdentifier> indexes, final GetParametricValuesRequestBuilder parametricParams) throws HodErrorException {
+        final List<Callable<FieldNames>> requests = new ArrayList<>();
+        for (final ResourceIdentifier index : indexes) {
+            requests.add(new Callable<FieldNames>() {
+                @Override
+                public FieldNames call() throws HodErrorException {
+                    return getParametricValuesService.getParametricValues(fieldNames, Collections.singletonList(index), parametricParams);
+                }
+            });
+        }
+
+        return parallelRequestExecutor.invokeAll(requests, HodErrorException.class);
+    }
+
+    private Collection<QueryTagCountInfo> getFieldValues(final String name, final List<FieldNames> indexFieldNames, final int maxValues) {
+        if (indexFieldNames.size() == 1) {
+            return indexFieldNames.get(0).getValuesAndCountsForFieldName(name);
+        }
+
+        final Collection<Collection<QueryTagCountInfo>> valueCollections = new ArrayList<>(indexFieldNames.size());
+        for (final FieldNames parametricFieldNames : indexFieldNames) {
+            final Collection<QueryTagCountInfo> values = parametricFieldNames.getValuesAndCountsForFieldName(name);
+            if (values != null) {
+                valueCollections.add(values);
+            }
+        }
+
+        return TopValues.merge(valueCollections, maxValues);
+    }
+
     private ResourceIdentifier getQueryProfile() {
         final String profileName = configService.getConfig().getQueryManipulation().getProfile();
         final String domain = authenticationInformationRetriever.getPrincipal().getApplication().getDomain();
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.hod.search;
+
+import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
+import com.hp.autonomy.hod.client.api.textindex.query.search.Sort;
+import com.hp.autonomy.hod.client.error.HodErrorException;
+import com.hp.autonomy.searchcomponents.core.search.DocumentWindowSource;
+import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.types.requests.Documents;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pages through all the results of a query, beyond the {@link HodDocumentsService#HOD_MAX_RESULTS} which Haven
+ * OnDemand will return for a single query.
+ * <p>
+ * Results are requested in date order, in segments of up to HOD_MAX_RESULTS. Each segment after the first repeats the
+ * query with a max date of the last document returned, so that it continues where the previous segment stopped. The max
+ * date is inclusive, so the documents with that date which were already returned are skipped. Documents without a date
+ * are sorted last by Haven OnDemand and cannot be paged beyond the first segment in which they appear, so iteration fails
+ * with an {@link IllegalStateException} rather than silently returning incomplete results if there may be more of them.
+ */
+class HodDocumentWindowSource implements DocumentWindowSource<HodSearchResult, HodErrorException> {
+    private final HodDocumentsService documentsService;
+    private final SearchRequest<ResourceIdentifier> searchRequest;
+    private final int windowSize;
+
+    private DateTime segmentMaxDate;
+    private int segmentStart = 1;
+    private boolean segmentHasNewDocuments;
+    private int windowRequestedCount;
+    private boolean exhausted;
+    private Integer totalResults;
+
+    // the latest date returned and the documents with that date, which are returned again by the next segment
+    private DateTime lastDate;
+    private final Set<String> lastDateDocuments = new HashSet<>();
+
+    HodDocumentWindowSource(final HodDocumentsService documentsService, final SearchRequest<ResourceIdentifier> searchRequest, final int windowSize) {
+        this.documentsService = documentsService;
+        this.searchRequest = searchRequest;
+        this.windowSize = Math.max(1, Math.min(windowSize, HodDocumentsService.HOD_MAX_RESULTS));
+
+        segmentMaxDate = searchRequest.getQueryRestrictions().getMaxDate();
+    }
+
+    @Override
+    public Documents<HodSearchResult> nextWindow() throws HodErrorException {
+        final SearchRequest<ResourceIdentifier> windowRequest = nextWindowRequest();
+        if (windowRequest == null) {
+            return null;
+        }
+
+        final Documents<HodSearchResult> results = documentsService.queryTextIndex(windowRequest, false);
+
+        if (totalResults == null) {
+            totalResults = results.getTotalResults();
+        }
+
+        final List<HodSearchResult> documents = results.getDocuments();
+        final List<HodSearchResult> newDocuments = new ArrayList<>(documents.size());
+        for (final HodSearchResult document : documents) {
+            if (accept(document)) {
+                newDocuments.add(document);
+            }
+        }
+
+        windowRead(documents.size());
+
+        return new Documents<>(newDocuments, totalResults, results.getExpandedQuery(), null, results.getAutoCorrection(), null);
+    }
+
+    /**
+     * @return the request for the next window, or null if there are no more documents
+     */
+    private SearchRequest<ResourceIdentifier> nextWindowRequest() {
+        if (exhausted) {
+            return null;
+        }
+
+        if (segmentStart > HodDocumentsService.HOD_MAX_RESULTS) {
+            if (lastDate == null) {
+                throw new IllegalStateException("The results beyond the first " + HodDocumentsService.HOD_MAX_RESULTS + " documents without a date cannot be retrieved");
+            }
+
+            if (!segmentHasNewDocuments) {
+                throw new IllegalStateException("More than " + HodDocumentsService.HOD_MAX_RESULTS + " documents have the date " + lastDate + " so the results beyond them cannot be retrieved");
+            }
+
+            segmentMaxDate = lastDate;
+            segmentStart = 1;
+            segmentHasNewDocuments = false;
+        }
+
+        final int maxResults = Math.min(segmentStart + windowSize - 1, HodDocumentsService.HOD_MAX_RESULTS);
+        final SearchRequest<ResourceIdentifier> windowRequest = createWindowRequest(maxResults);
+
+        windowRequestedCount = maxResults - segmentStart + 1;
+        segmentStart = maxResults + 1;
+        return windowRequest;
+    }
+
+    /**
+     * Called for each document of the window in turn
+     *
+     * @return false if the document was already returned by the previous segment
+     */
+    private boolean accept(final HodSearchResult document) {
+        final DateTime date = document.getDate();
+        final boolean isNew;
+
+        if (date != null && lastDate != null && date.isEqual(lastDate)) {
+            isNew = lastDateDocuments.add(getDocumentKey(document));
+        } else {
+            lastDate = date;
+            lastDateDocuments.clear();
+            lastDateDocuments.add(getDocumentKey(document));
+            isNew = true;
+        }
+
+        segmentHasNewDocuments |= isNew;
+        return isNew;
+    }
+
+    /**
+     * @param documentCount the number of documents returned for the last window requested, including those which
+     *                      were not accepted
+     */
+    private void windowRead(final int documentCount) {
+        exhausted = documentCount < windowRequestedCount;
+    }
+
+    private SearchRequest<ResourceIdentifier> createWindowRequest(final int maxResults) {
+        final QueryRestrictions<ResourceIdentifier> queryRestrictions = searchRequest.getQueryRestrictions();
+
+        final HodQueryRestrictions windowQueryRestrictions = new HodQueryRestrictions.Builder()
+                .setQueryText(queryRestrictions.getQueryText())
+                .setFieldText(queryRestrictions.getFieldText())
+                .setDatabases(queryRestrictions.getDatabases())
+                .setMinDate(queryRestrictions.getMinDate())
+                .setMaxDate(segmentMaxDate)
+                .setLanguageType(queryRestrictions.getLanguageType())
+                .setAnyLanguage(queryRestrictions.isAnyLanguage())
+                .build();
+
+        // auto correction is not used, so that every window runs the same query
+        return new SearchRequest<>(windowQueryRestrictions, segmentStart, maxResults, searchRequest.getSummary(), searchRequest.getSummaryCharacters(), Sort.date.name(), searchRequest.isHighlight(), false, searchRequest.getQueryType());
+    }
+
+    private String getDocumentKey(final HodSearchResult document) {
+        return document.getIndex() + '/' + document.getReference();
+    }
+}
@@ -5,7 +5,6 @@
 
 package com.hp.autonomy.searchcomponents.hod.search;
 
-import com.google.common.collect.ImmutableSet;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
 import com.hp.autonomy.hod.client.api.textindex.query.content.GetContentRequestBuilder;
@@ -22,8 +21,12 @@ import com.hp.autonomy.hod.client.error.HodErrorException;
 import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
 import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
 import com.hp.autonomy.searchcomponents.core.caching.CacheNames;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.requests.TenantRequestExecutors;
 import com.hp.autonomy.searchcomponents.core.search.AciSearchRequest;
-import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsIterator;
+import com.hp.autonomy.searchcomponents.core.search.ExportingDocumentsService;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequest;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequestIndex;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
@@ -36,41 +39,66 @@ import com.hp.autonomy.types.requests.Documents;
 import org.apache.commons.lang.NotImplementedException;
 import org.springframework.cache.annotation.Cacheable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
-public class HodDocumentsService implements DocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> {
+public class HodDocumentsService implements ExportingDocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> {
     // IOD limits max results to 2500
     public static final int HOD_MAX_RESULTS = 2500;
 
-    private static final ImmutableSet<String> PUBLIC_INDEX_NAMES = ImmutableSet.of(
-            ResourceIdentifier.WIKI_CHI.getName(),
-            ResourceIdentifier.WIKI_ENG.getName(),
-            ResourceIdentifier.WIKI_FRA.getName(),
-            ResourceIdentifier.WIKI_GER.getName(),
-            ResourceIdentifier.WIKI_ITA.getName(),
-            ResourceIdentifier.WIKI_SPA.getName(),
-            ResourceIdentifier.WORLD_FACTBOOK.getName(),
-            ResourceIdentifier.NEWS_ENG.getName(),
-            ResourceIdentifier.NEWS_FRA.getName(),
-            ResourceIdentifier.NEWS_GER.getName(),
-            ResourceIdentifier.NEWS_ITA.getName(),
-            ResourceIdentifier.ARXIV.getName(),
-            ResourceIdentifier.PATENTS.getName()
-    );
-
     private final FindSimilarService<HodSearchResult> findSimilarService;
     private final ConfigService<? extends HodSearchCapable> configService;
     private final QueryTextIndexService<HodSearchResult> queryTextIndexService;
     private final GetContentService<HodSearchResult> getContentService;
     private final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationRetriever;
     private final DocumentFieldsService documentFieldsService;
+    private final TenantRequestExecutors tenantRequestExecutors;
+    private final TenantRequestExecutors windowRequestExecutors;
 
     @SuppressWarnings("ConstructorWithTooManyParameters")
     public HodDocumentsService(final FindSimilarService<HodSearchResult> findSimilarService, final ConfigService<? extends HodSearchCapable> configService, final QueryTextIndexService<HodSearchResult> queryTextIndexService, final GetContentService<HodSearchResult> getContentService, final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationRetriever, final DocumentFieldsService documentFieldsService) {
+        this(findSimilarService, configService, queryTextIndexService, getContentService, authenticationRetriever, documentFieldsService, null);
+    }
+
+    /**
+     * @param tenantRequestExecutors if not null, the content of documents in different indexes is requested in
+     *                               parallel, and the windows of {@link #iterateDocuments} are prefetched, on a pool
+     *                               for the domain of the current application
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public HodDocumentsService(
+            final FindSimilarService<HodSearchResult> findSimilarService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final QueryTextIndexService<HodSearchResult> queryTextIndexService,
+            final GetContentService<HodSearchResult> getContentService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationRetriever,
+            final DocumentFieldsService documentFieldsService,
+            final TenantRequestExecutors tenantRequestExecutors) {
+        this(findSimilarService, configService, queryTextIndexService, getContentService, authenticationRetriever, documentFieldsService, tenantRequestExecutors, tenantRequestExecutors);
+    }
+
+    /**
+     * @param tenantRequestExecutors if not null, the content of documents in different indexes is requested in
+     *                               parallel, on a pool for the domain of the current application
+     * @param windowRequestExecutors if not null, the next window of {@link #iterateDocuments} is requested on a pool for
+     *                               the domain of the current application while the current one is read
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public HodDocumentsService(
+            final FindSimilarService<HodSearchResult> findSimilarService,
+            final ConfigService<? extends HodSearchCapable> configService,
+            final QueryTextIndexService<HodSearchResult> queryTextIndexService,
+            final GetContentService<HodSearchResult> getContentService,
+            final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationRetriever,
+            final DocumentFieldsService documentFieldsService,
+            final TenantRequestExecutors tenantRequestExecutors,
+            final TenantRequestExecutors windowRequestExecutors) {
+        this.tenantRequestExecutors = tenantRequestExecutors;
+        this.windowRequestExecutors = windowRequestExecutors;
         this.findSimilarService = findSimilarService;
         this.configService = configService;
         this.queryTextIndexService = queryTextIndexService;
@@ -93,10 +121,16 @@ public class HodDocumentsService implements DocumentsService<ResourceIdentifier,
     public Documents<HodSearchResult> findSimilar(final SuggestRequest<ResourceIdentifier> suggestRequest) throws HodErrorException {
         final QueryRequestBuilder requestBuilder = setQueryParams(suggestRequest, true);
 
-        final Documents<HodSearchResult> results = findSimilarService.findSimilarDocumentsToIndexReference(suggestRequest.getReference(), requestBuilder);
+        final IndexDomainResolver domainResolver = createDomainResolver(suggestRequest.getQueryRestrictions().getDatabases());
+        final Documents<HodSearchResult> results = readResponse(domainResolver, new ResponseReader<Documents<HodSearchResult>>() {
+            @Override
+            public Documents<HodSearchResult> read() throws HodErrorException {
+                return findSimilarService.findSimilarDocumentsToIndexReference(suggestRequest.getReference(), requestBuilder);
+            }
+        });
 
-        final List<HodSearchResult> documentList = new LinkedList<>();
-        addDomainToSearchResults(documentList, suggestRequest.getQueryRestrictions().getDatabases(), results.getDocuments());
+        final List<HodSearchResult> documentList = new ArrayList<>(results.getDocuments().size());
+        addDomainToSearchResults(documentList, domainResolver, results.getDocuments());
 
         return new Documents<>(documentList, results.getTotalResults(), results.getExpandedQuery(), results.getSuggestion(), results.getAutoCorrection(), results.getWarnings());
     }
@@ -104,20 +138,89 @@ public class HodDocumentsService implements DocumentsService<ResourceIdentifier,
     @Cacheable(CacheNames.GET_DOCUMENT_CONTENT)
     @Override
     public List<HodSearchResult> getDocumentContent(final GetContentRequest<ResourceIdentifier> request) throws HodErrorException {
-        final List<HodSearchResult> contentResults = new ArrayList<>();
+        final Collection<GetContentRequestIndex<ResourceIdentifier>> indexesAndReferences = request.getIndexesAndReferences();
+        final String domain = getDomain();
+
+        final List<Callable<List<HodSearchResult>>> contentRequests = new ArrayList<>(indexesAndReferences.size());
+        for (final GetContentRequestIndex<ResourceIdentifier> indexAndReferences : indexesAndReferences) {
+            contentRequests.add(new Callable<List<HodSearchResult>>() {
+                @Override
+                public List<HodSearchResult> call() throws HodErrorException {
+                    return getContent(indexAndReferences, domain);
+                }
+            });
+        }
+
+        // the first failure cancels the requests for the other indexes
+        final ParallelRequestExecutor parallelRequestExecutor = tenantRequestExecutors == null ? ParallelRequestExecutor.serial() : tenantRequestExecutors.get(domain);
+        final List<List<HodSearchResult>> indexResults = parallelRequestExecutor.invokeAll(contentRequests, HodErrorException.class);
 
-        for (final GetContentRequestIndex<ResourceIdentifier> indexAndReferences : request.getIndexesAndReferences()) {
-            final GetContentRequestBuilder builder = new GetContentRequestBuilder()
-                    .setPrintFields(documentFieldsService.getPrintFields())
-                    .setSummary(Summary.concept);
+        int resultCount = 0;
+        for (final List<HodSearchResult> documents : indexResults) {
+            resultCount += documents.size();
+        }
 
-            final List<HodSearchResult> documents = getContentService.getContent(new ArrayList<>(indexAndReferences.getReferences()), indexAndReferences.getIndex(), builder).getDocuments();
-            addDomainToSearchResults(contentResults, Collections.singleton(indexAndReferences.getIndex()), documents);
+        final List<HodSearchResult> contentResults = new ArrayList<>(resultCount);
+        for (final List<HodSearchResult> documents : indexResults) {
+            contentResults.addAll(documents);
         }
 
         return contentResults;
     }
 
+    /**
+     * Iterates over all the results of a query, including those beyond {@link #HOD_MAX_RESULTS}, in date order. The
+     * requested sort, start and max results are ignored. If window request executors are configured, the next window of
+     * results is requested on the pool of the current application while the current one is read; otherwise each window
+     * is requested on the calling thread when the previous one has been read.
+     *
+     * @param searchRequest the query
+     * @param windowSize    the number of results to request at a time
+     * @return an iterator which should be closed if it is abandoned before the end
+     */
+    @Override
+    public DocumentsIterator<HodSearchResult> iterateDocuments(final SearchRequest<ResourceIdentifier> searchRequest, final int windowSize) {
+        final ParallelRequestExecutor parallelRequestExecutor = windowRequestExecutors == null ? ParallelRequestExecutor.serial() : windowRequestExecutors.get(getDomain());
+        return new DocumentsIterator<>(new HodDocumentWindowSource(this, searchRequest, windowSize), parallelRequestExecutor);
+    }
+
+    /**
+     * Writes all the results of a query, including those beyond {@link #HOD_MAX_RESULTS}, to the given sink in date
+     * order. Each window is written to the sink once its response has been read, so at most one window of documents is
+     * held in memory at a time.
+     *
+     * @param searchRequest the query; its sort, start and max results are ignored
+     * @param windowSize    the number of results to request at a time
+     * @param sink          receives each document in turn
+     * @return the number of documents written
+     * @throws IOException if the sink fails
+     */
+    @Override
+    public int exportDocuments(final SearchRequest<ResourceIdentifier> searchRequest, final int windowSize, final DocumentSink<? super HodSearchResult> sink) throws HodErrorException, IOException {
+        final HodDocumentWindowSource windowSource = new HodDocumentWindowSource(this, searchRequest, windowSize);
+        int writtenCount = 0;
+
+        for (Documents<HodSearchResult> window = windowSource.nextWindow(); window != null; window = windowSource.nextWindow()) {
+            for (final HodSearchResult document : window.getDocuments()) {
+                sink.write(document);
+                writtenCount++;
+            }
+        }
+
+        return writtenCount;
+    }
+
+    /**
+     * Writes the results of a single query to the given sink once its response has been read. At most
+     * {@link #HOD_MAX_RESULTS} results are returned; use {@link #exportDocuments} to write all of them.
+     */
+    @Override
+    public void writeQueryResults(final SearchRequest<ResourceIdentifier> searchRequest, final DocumentSink<? super HodSearchResult> sink) throws HodErrorException, IOException {
+        for (final HodSearchResult document : queryTextIndex(searchRequest, false).getDocuments()) {
+            sink.write(document);
+        }
+    }
+
     @Override
     public String getStateToken(final QueryRestrictions<ResourceIdentifier> queryRestrictions, final int maxResults) throws HodErrorException {
         throw new NotImplementedException("State tokens are not yet retrievable from Haven OnDemand");
@@ -141,10 +244,16 @@ public class HodDocumentsService implements DocumentsService<ResourceIdentifier,
             params.setIndexes(Collections.singletonList(ResourceIdentifier.WIKI_ENG));
         }
 
-        final Documents<HodSearchResult> hodDocuments = queryTextIndexService.queryTextIndexWithText(searchRequest.getQueryRestrictions().getQueryText(), params);
+        final IndexDomainResolver domainResolver = createDomainResolver(searchRequest.getQueryRestrictions().getDatabases());
+        final Documents<HodSearchResult> hodDocuments = readResponse(domainResolver, new ResponseReader<Documents<HodSearchResult>>() {
+            @Override
+            public Documents<HodSearchResult> read() throws HodErrorException {
+                return queryTextIndexService.queryTextIndexWithText(searchRequest.getQueryRestrictions().getQueryText(), params);
+            }
+        });
 
-        final List<HodSearchResult> documentList = new LinkedList<>();
-        addDomainToSearchResults(documentList, searchRequest.getQueryRestrictions().getDatabases(), hodDocuments.getDocuments());
+        final List<HodSearchResult> documentList = new ArrayList<>(hodDocuments.getDocuments().size());
+        addDomainToSearchResults(documentList, domainResolver, hodDocuments.getDocuments());
 
         final Integer totalResults = hodDocuments.getTotalResults() != null ? hodDocuments.getTotalResults() : 0;
         return new Documents<>(documentList, totalResults, hodDocuments.getExpandedQuery(), null, hodDocuments.getAutoCorrection(), null);
@@ -181,38 +290,58 @@ public class HodDocumentsService implements DocumentsService<ResourceIdentifier,
         return queryRequestBuilder;
     }
 
-    private void addDomainToSearchResults(final Collection<HodSearchResult> documentList, final Iterable<ResourceIdentifier> indexIdentifiers, final Iterable<HodSearchResult> documents) {
-        for (final HodSearchResult hodSearchResult : documents) {
-            documentList.add(addDomain(indexIdentifiers, hodSearchResult));
-        }
-    }
+    private List<HodSearchResult> getContent(final GetContentRequestIndex<ResourceIdentifier> indexAndReferences, final String domain) throws HodErrorException {
+        final GetContentRequestBuilder builder = new GetContentRequestBuilder()
+                .setPrintFields(documentFieldsService.getPrintFields())
+                .setSummary(Summary.concept);
+
+        // bound on the thread making the request, which may be a pool thread
+        final IndexDomainResolver domainResolver = new IndexDomainResolver(Collections.singleton(indexAndReferences.getIndex()), domain);
+        final List<HodSearchResult> documents = readResponse(domainResolver, new ResponseReader<Documents<HodSearchResult>>() {
+            @Override
+            public Documents<HodSearchResult> read() throws HodErrorException {
+                return getContentService.getContent(new ArrayList<>(indexAndReferences.getReferences()), indexAndReferences.getIndex(), builder);
+            }
+        }).getDocuments();
 
-    // Add a domain to a FindDocument, given the collection of indexes which were queried against to return it from HOD
-    private HodSearchResult addDomain(final Iterable<ResourceIdentifier> indexIdentifiers, final HodSearchResult document) {
-        // HOD does not return the domain for documents yet, but it does return the index
-        final String index = document.getIndex();
-        String domain = null;
+        final List<HodSearchResult> contentResults = new ArrayList<>(documents.size());
+        addDomainToSearchResults(contentResults, domainResolver, documents);
+        return contentResults;
+    }
 
-        // It's most likely that the returned documents will be in one of the indexes we are querying (hopefully the
-        // names are unique between the domains...)
-        for (final ResourceIdentifier indexIdentifier : indexIdentifiers) {
-            if (index.equals(indexIdentifier.getName())) {
-                domain = indexIdentifier.getDomain();
-                break;
-            }
+    /**
+     * Binds the resolver to the current thread while a response is read by the HOD client, for
+     * {@link com.hp.autonomy.searchcomponents.hod.search.fields.HodSearchResultDeserializer}
+     */
+    private <T> T readResponse(final IndexDomainResolver domainResolver, final ResponseReader<T> reader) throws HodErrorException {
+        final IndexDomainResolver previousDomainResolver = IndexDomainResolver.setCurrent(domainResolver);
+
+        try {
+            return reader.read();
+        } finally {
+            IndexDomainResolver.setCurrent(previousDomainResolver);
         }
+    }
 
-        if (domain == null) {
-            // If not, it might be a public index
-            domain = PUBLIC_INDEX_NAMES.contains(index) ? ResourceIdentifier.PUBLIC_INDEXES_DOMAIN : getDomain();
-        }
+    private IndexDomainResolver createDomainResolver(final Iterable<ResourceIdentifier> indexIdentifiers) {
+        return new IndexDomainResolver(indexIdentifiers, getDomain());
+    }
 
-        return new HodSearchResult.Builder(document)
-                .setDomain(domain)
-                .build();
+    private void addDomainToSearchResults(final Collection<HodSearchResult> documentList, final IndexDomainResolver domainResolver, final Iterable<HodSearchResult> documents) {
+        for (final HodSearchResult hodSearchResult : documents) {
+            // the domain is normally set as the document is deserialized, so it only needs to be added here if the
+            // response was read on another thread or by another deserializer
+            documentList.add(hodSearchResult.getDomain() != null ? hodSearchResult : new HodSearchResult.Builder(hodSearchResult)
+                    .setDomain(domainResolver.getDomain(hodSearchResult.getIndex()))
+                    .build());
+        }
     }
 
     private String getDomain() {
         return authenticationRetriever.getPrincipal().getApplication().getDomain();
     }
+
+    private interface ResponseReader<T> {
+        T read() throws HodErrorException;
+    }
 }
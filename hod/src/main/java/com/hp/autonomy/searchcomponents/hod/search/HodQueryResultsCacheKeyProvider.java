@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.hod.search;
+
+import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
+import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+
+import java.io.Serializable;
+
+/**
+ * Shares cached query results between users of applications in the same domain
+ */
+public class HodQueryResultsCacheKeyProvider implements QueryResultsCacheKeyProvider {
+    private final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever;
+
+    public HodQueryResultsCacheKeyProvider(final AuthenticationInformationRetriever<HodAuthenticationPrincipal> authenticationInformationRetriever) {
+        this.authenticationInformationRetriever = authenticationInformationRetriever;
+    }
+
+    @Override
+    public Serializable getSecurityKey() {
+        return authenticationInformationRetriever.getPrincipal().getApplication().getDomain();
+    }
+}
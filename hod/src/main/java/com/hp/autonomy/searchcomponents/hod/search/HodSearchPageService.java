@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.hod.search;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
+import com.hp.autonomy.hod.client.api.textindex.query.search.Entity;
+import com.hp.autonomy.hod.client.error.HodErrorException;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.search.AbstractSearchPageService;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsRequest;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.SearchPageRequest;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.searchcomponents.hod.parametricvalues.HodParametricRequest;
+
+import java.util.concurrent.TimeUnit;
+
+public class HodSearchPageService extends AbstractSearchPageService<ResourceIdentifier, HodSearchResult, Entity, HodParametricRequest, HodErrorException> {
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public HodSearchPageService(
+            final DocumentsService<ResourceIdentifier, HodSearchResult, HodErrorException> documentsService,
+            final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> parametricValuesService,
+            final RelatedConceptsService<Entity, ResourceIdentifier, HodErrorException> relatedConceptsService,
+            final ListeningExecutorService executorService,
+            final long timeoutMillis) {
+        super(documentsService, parametricValuesService, relatedConceptsService, executorService, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected HodParametricRequest createParametricRequest(final SearchPageRequest<ResourceIdentifier> searchPageRequest, final QueryRestrictions<ResourceIdentifier> queryRestrictions) {
+        final HodParametricRequest.Builder builder = new HodParametricRequest.Builder()
+                .setFieldNames(searchPageRequest.getParametricFieldNames())
+                .setQueryRestrictions(queryRestrictions)
+                .setModified(searchPageRequest.getQueryType() != SearchRequest.QueryType.RAW);
+
+        if (searchPageRequest.getParametricMaxValues() != null) {
+            builder.setMaxValues(searchPageRequest.getParametricMaxValues());
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    protected RelatedConceptsRequest<ResourceIdentifier> createRelatedConceptsRequest(final SearchPageRequest<ResourceIdentifier> searchPageRequest, final QueryRestrictions<ResourceIdentifier> queryRestrictions) {
+        return new HodRelatedConceptsRequest.Builder()
+                .setQuerySummaryLength(searchPageRequest.getQuerySummaryLength())
+                .setQueryRestrictions(queryRestrictions)
+                .build();
+    }
+}
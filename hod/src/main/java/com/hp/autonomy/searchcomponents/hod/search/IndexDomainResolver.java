@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.hod.search;
+
+import com.fasterxml.jackson.databind.cfg.ContextAttributes;
+import com.google.common.collect.ImmutableSet;
+import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves the domain of documents returned by Haven OnDemand, which returns the index name of each document but not
+ * its domain. Built once for each request from the indexes which were queried.
+ * <p>
+ * {@link com.hp.autonomy.searchcomponents.hod.search.fields.HodSearchResultDeserializer} sets the domain of each
+ * document as it is deserialized, using the resolver passed as the {@code IndexDomainResolver.class} attribute of the
+ * read, e.g. with {@code objectMapper.reader(HodSearchResult.class).withAttribute(IndexDomainResolver.class, resolver)}.
+ * Attributes are carried by the read itself, so this works whichever thread reads the response.
+ * <p>
+ * The HOD client reads responses with its own mapper and cannot be given attributes for each call, so requests made
+ * through it bind the resolver to the requesting thread instead; a mapper configured with
+ * {@link #withBoundResolver(ContextAttributes)} falls back to that resolver when none is passed to the read.
+ */
+public class IndexDomainResolver {
+    private static final ImmutableSet<String> PUBLIC_INDEX_NAMES = ImmutableSet.of(
+            ResourceIdentifier.WIKI_CHI.getName(),
+            ResourceIdentifier.WIKI_ENG.getName(),
+            ResourceIdentifier.WIKI_FRA.getName(),
+            ResourceIdentifier.WIKI_GER.getName(),
+            ResourceIdentifier.WIKI_ITA.getName(),
+            ResourceIdentifier.WIKI_SPA.getName(),
+            ResourceIdentifier.WORLD_FACTBOOK.getName(),
+            ResourceIdentifier.NEWS_ENG.getName(),
+            ResourceIdentifier.NEWS_FRA.getName(),
+            ResourceIdentifier.NEWS_GER.getName(),
+            ResourceIdentifier.NEWS_ITA.getName(),
+            ResourceIdentifier.ARXIV.getName(),
+            ResourceIdentifier.PATENTS.getName()
+    );
+
+    private static final ThreadLocal<IndexDomainResolver> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, String> domainsByIndexName = new HashMap<>();
+    private final String defaultDomain;
+
+    /**
+     * @param indexes       the indexes which were queried
+     * @param defaultDomain domain of documents in indexes which were not queried and are not public, usually the
+     *                      domain of the current application
+     */
+    public IndexDomainResolver(final Iterable<ResourceIdentifier> indexes, final String defaultDomain) {
+        this.defaultDomain = defaultDomain;
+
+        for (final String publicIndexName : PUBLIC_INDEX_NAMES) {
+            domainsByIndexName.put(publicIndexName, ResourceIdentifier.PUBLIC_INDEXES_DOMAIN);
+        }
+
+        // queried indexes take precedence over public indexes with the same name; hopefully names are unique between
+        // the queried domains, otherwise the first one wins
+        final Map<String, String> queriedDomains = new HashMap<>();
+        for (final ResourceIdentifier index : indexes) {
+            if (!queriedDomains.containsKey(index.getName())) {
+                queriedDomains.put(index.getName(), index.getDomain());
+            }
+        }
+
+        domainsByIndexName.putAll(queriedDomains);
+    }
+
+    /**
+     * Binds a resolver to the current thread
+     *
+     * @param resolver the resolver, or null to unbind the current resolver
+     * @return the previously bound resolver, which should be restored once the request completes
+     */
+    public static IndexDomainResolver setCurrent(final IndexDomainResolver resolver) {
+        final IndexDomainResolver previous = CURRENT.get();
+
+        if (resolver == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(resolver);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Wraps the attributes of a mapper so that reads without an {@code IndexDomainResolver.class} attribute use the
+     * resolver bound to the reading thread. Reads on other threads without the attribute leave the domain unset.
+     *
+     * @param attributes the attributes of the mapper
+     * @return the wrapped attributes
+     */
+    public static ContextAttributes withBoundResolver(final ContextAttributes attributes) {
+        return attributes instanceof BoundResolverAttributes ? attributes : new BoundResolverAttributes(attributes);
+    }
+
+    public String getDomain(final String indexName) {
+        final String domain = domainsByIndexName.get(indexName);
+        return domain != null ? domain : defaultDomain;
+    }
+
+    private static class BoundResolverAttributes extends ContextAttributes {
+        private final ContextAttributes delegate;
+
+        private BoundResolverAttributes(final ContextAttributes delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ContextAttributes withSharedAttribute(final Object key, final Object value) {
+            return withBoundResolver(delegate.withSharedAttribute(key, value));
+        }
+
+        @Override
+        public ContextAttributes withSharedAttributes(final Map<Object, Object> attributes) {
+            return withBoundResolver(delegate.withSharedAttributes(attributes));
+        }
+
+        @Override
+        public ContextAttributes withoutSharedAttribute(final Object key) {
+            return withBoundResolver(delegate.withoutSharedAttribute(key));
+        }
+
+        @Override
+        public Object getAttribute(final Object key) {
+            final Object value = delegate.getAttribute(key);
+            return value == null && key == IndexDomainResolver.class ? CURRENT.get() : value;
+        }
+
+        @Override
+        public ContextAttributes withPerCallAttribute(final Object key, final Object value) {
+            // per call attributes are set on a copy made for each read, so keep the copy rather than wrapping it again
+            final ContextAttributes attributes = delegate.withPerCallAttribute(key, value);
+            return attributes == delegate ? this : withBoundResolver(attributes);
+        }
+    }
+}
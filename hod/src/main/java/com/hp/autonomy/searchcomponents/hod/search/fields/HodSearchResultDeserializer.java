@@ -6,20 +6,19 @@
 package com.hp.autonomy.searchcomponents.hod.search.fields;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.hod.client.api.textindex.query.search.PromotionType;
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfig;
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfigService;
 import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
 import com.hp.autonomy.searchcomponents.core.config.FieldType;
-import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
 import com.hp.autonomy.searchcomponents.core.search.PromotionCategory;
 import com.hp.autonomy.searchcomponents.hod.configuration.HodSearchCapable;
 import com.hp.autonomy.searchcomponents.hod.search.HodSearchResult;
-import org.apache.commons.lang.ArrayUtils;
+import com.hp.autonomy.searchcomponents.hod.search.IndexDomainResolver;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -30,82 +29,181 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Reads each document in a single pass over the tokens of its JSON object. Each JSON field name is resolved with one
+ * lookup in a table compiled from the field configuration; unconfigured fields are skipped without being read. If an
+ * {@link IndexDomainResolver} is passed as the {@code IndexDomainResolver.class} attribute of the read, it is used to
+ * set the domain of each document.
+ */
 @Component
 public class HodSearchResultDeserializer extends JsonDeserializer<HodSearchResult> {
-    private final ConfigService<? extends HodSearchCapable> configService;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CompiledConfigService<HodSearchCapable, FieldTable> compiledConfigService;
 
     @Autowired
     public HodSearchResultDeserializer(final ConfigService<? extends HodSearchCapable> configService) {
-        this.configService = configService;
+        compiledConfigService = new CompiledConfigService<HodSearchCapable, FieldTable>(configService) {
+            @Override
+            protected FieldTable compile(final HodSearchCapable config) {
+                return new FieldTable(config);
+            }
+        };
     }
 
     @Override
     public HodSearchResult deserialize(final JsonParser jsonParser, final DeserializationContext deserializationContext) throws IOException {
-        final FieldsInfo fieldsInfo = configService.getConfig().getFieldsInfo();
-        final Map<String, FieldInfo<?>> fieldConfig = fieldsInfo.getFieldConfigByName();
+        final FieldTable fieldTable = compiledConfigService.getCompiledConfig();
+        final IndexDomainResolver domainResolver = (IndexDomainResolver) deserializationContext.getAttribute(IndexDomainResolver.class);
+        final HodSearchResult.Builder builder = new HodSearchResult.Builder();
+
+        // values of configured fields, by position of the name in the configuration
+        List<Object>[] configuredValues = null;
 
-        final JsonNode node = jsonParser.getCodec().readTree(jsonParser);
+        JsonToken token = jsonParser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jsonParser.nextToken();
+        }
 
-        final Map<String, FieldInfo<?>> fieldMap = new HashMap<>(fieldConfig.size());
-        for (final FieldInfo<?> fieldInfo : fieldConfig.values()) {
-            for (final String name : fieldInfo.getNames()) {
-                final String[] stringValues = parseAsStringArray(node, name);
+        for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+            final FieldEntry entry = fieldTable.get(jsonParser.getCurrentName());
+            jsonParser.nextToken();
 
-                if (ArrayUtils.isNotEmpty(stringValues)) {
-                    final List<Object> values = new ArrayList<>(stringValues.length);
-                    for (final String stringValue : stringValues) {
-                        final Object value = fieldInfo.getType().parseValue(fieldInfo.getType().getType(), stringValue);
-                        values.add(value);
+            if (entry == null) {
+                jsonParser.skipChildren();
+            } else if (entry.fieldInfo == null) {
+                readStandardField(jsonParser, entry.standardField, builder, domainResolver);
+            } else if (entry.standardField == null) {
+                final List<Object> values = readValues(jsonParser, entry.fieldInfo.getType());
+                if (!values.isEmpty()) {
+                    if (configuredValues == null) {
+                        configuredValues = fieldTable.newValuesArray();
                     }
 
-                    fieldMap.put(fieldInfo.getId(), new FieldInfo<>(fieldInfo.getId(), Collections.singleton(name), fieldInfo.getType(), values));
+                    configuredValues[entry.position] = values;
+                }
+            } else {
+                // a configured field which is also a standard field; this is rare, so read the values as strings
+                final List<Object> values = readValues(jsonParser, FieldType.STRING);
+                if (!values.isEmpty()) {
+                    setStandardField(entry.standardField, (String) values.get(0), builder, domainResolver);
+
+                    if (configuredValues == null) {
+                        configuredValues = fieldTable.newValuesArray();
+                    }
+
+                    configuredValues[entry.position] = parseValues(values, entry.fieldInfo.getType());
                 }
             }
         }
 
-        return new HodSearchResult.Builder()
-                .setReference(parseAsString(node, "reference"))
-                .setIndex(parseAsString(node, "index"))
-                .setTitle(parseAsString(node, "title"))
-                .setSummary(parseAsString(node, "summary"))
-                .setWeight(parseAsDouble(node, "weight"))
-                .setFieldMap(fieldMap)
-                .setDate(parseAsDateFromArray(node, "date"))
-                .setPromotionCategory(parsePromotionCategory(node, "promotion"))
+        return builder
+                .setFieldMap(fieldTable.createFieldMap(configuredValues))
                 .build();
     }
 
-    private String parseAsString(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final JsonNode jsonNode = node.get(fieldName);
-        return jsonNode != null ? objectMapper.treeToValue(jsonNode, String.class) : null;
-    }
+    private void readStandardField(final JsonParser jsonParser, final StandardField standardField, final HodSearchResult.Builder builder, final IndexDomainResolver domainResolver) throws IOException {
+        final JsonToken token = jsonParser.getCurrentToken();
 
-    private String[] parseAsStringArray(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final JsonNode jsonNode = node.get(fieldName);
-        return jsonNode != null ? objectMapper.treeToValue(jsonNode, String[].class) : null;
+        if (standardField == StandardField.WEIGHT && token.isNumeric()) {
+            builder.setWeight(jsonParser.getDoubleValue());
+        } else if (standardField == StandardField.DATE) {
+            // dates are returned as arrays, of which only the first value is used
+            final List<Object> values = readValues(jsonParser, FieldType.STRING);
+            setStandardField(standardField, values.isEmpty() ? null : (String) values.get(0), builder, domainResolver);
+        } else if (token.isScalarValue()) {
+            setStandardField(standardField, token == JsonToken.VALUE_NULL ? null : jsonParser.getText(), builder, domainResolver);
+        } else {
+            jsonParser.skipChildren();
+        }
     }
 
-    private String parseAsStringFromArray(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final String[] values = parseAsStringArray(node, fieldName);
-        return ArrayUtils.isNotEmpty(values) ? values[0] : null;
+    private void setStandardField(final StandardField standardField, final String value, final HodSearchResult.Builder builder, final IndexDomainResolver domainResolver) {
+        switch (standardField) {
+            case REFERENCE:
+                builder.setReference(value);
+                break;
+            case INDEX:
+                builder.setIndex(value);
+                if (domainResolver != null && value != null) {
+                    builder.setDomain(domainResolver.getDomain(value));
+                }
+                break;
+            case TITLE:
+                builder.setTitle(value);
+                break;
+            case SUMMARY:
+                builder.setSummary(value);
+                break;
+            case WEIGHT:
+                builder.setWeight(value != null ? Double.parseDouble(value) : null);
+                break;
+            case DATE:
+                builder.setDate(value != null ? FieldType.DATE.parseValue(DateTime.class, value) : null);
+                break;
+            case PROMOTION:
+                builder.setPromotionCategory(parsePromotionCategory(value));
+                break;
+        }
     }
 
-    private Double parseAsDouble(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final String value = parseAsString(node, fieldName);
-        return value != null ? Double.parseDouble(value) : null;
+    /**
+     * Reads an array of scalar values, or a single scalar value, converting each value to the given type as it is read
+     */
+    private List<Object> readValues(final JsonParser jsonParser, final FieldType fieldType) throws IOException {
+        final JsonToken token = jsonParser.getCurrentToken();
+
+        if (token == JsonToken.START_ARRAY) {
+            final List<Object> values = new ArrayList<>();
+
+            for (JsonToken elementToken = jsonParser.nextToken(); elementToken != JsonToken.END_ARRAY; elementToken = jsonParser.nextToken()) {
+                if (elementToken.isScalarValue()) {
+                    values.add(readValue(jsonParser, elementToken, fieldType));
+                } else {
+                    jsonParser.skipChildren();
+                }
+            }
+
+            return values;
+        } else if (token == JsonToken.VALUE_NULL) {
+            return Collections.emptyList();
+        } else if (token.isScalarValue()) {
+            final List<Object> values = new ArrayList<>(1);
+            values.add(readValue(jsonParser, token, fieldType));
+            return values;
+        } else {
+            jsonParser.skipChildren();
+            return Collections.emptyList();
+        }
     }
 
-    private DateTime parseAsDateFromArray(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final String value = parseAsStringFromArray(node, fieldName);
-        return value != null ? FieldType.DATE.parseValue(DateTime.class, value) : null;
+    private Object readValue(final JsonParser jsonParser, final JsonToken token, final FieldType fieldType) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        // use the parsed JSON value where it already has the right type, rather than going through its text
+        if (fieldType == FieldType.NUMBER && token.isNumeric()) {
+            return jsonParser.getDoubleValue();
+        }
+
+        if (fieldType == FieldType.BOOLEAN && (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE)) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+
+        return fieldType.parseValue(fieldType.getType(), jsonParser.getText());
     }
 
-    private PromotionCategory parsePromotionCategory(@SuppressWarnings("TypeMayBeWeakened") final JsonNode node, final String fieldName) throws JsonProcessingException {
-        final String value = parseAsString(node, fieldName);
+    private List<Object> parseValues(final Iterable<Object> stringValues, final FieldType fieldType) {
+        final List<Object> values = new ArrayList<>();
+        for (final Object stringValue : stringValues) {
+            values.add(stringValue == null ? null : fieldType.parseValue(fieldType.getType(), (String) stringValue));
+        }
 
+        return values;
+    }
+
+    private PromotionCategory parsePromotionCategory(final String value) {
         PromotionCategory promotionCategory = null;
         if (value != null) {
             final PromotionType promotionType = PromotionType.valueOf(value);
@@ -128,4 +226,89 @@ public class HodSearchResultDeserializer extends JsonDeserializer<HodSearchResul
 
         return promotionCategory;
     }
+
+    private enum StandardField {
+        REFERENCE("reference"),
+        INDEX("index"),
+        TITLE("title"),
+        SUMMARY("summary"),
+        WEIGHT("weight"),
+        DATE("date"),
+        PROMOTION("promotion");
+
+        private final String name;
+
+        StandardField(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static class FieldEntry {
+        private final StandardField standardField;
+        private final FieldInfo<?> fieldInfo;
+        private final Set<String> names;
+        private final int position;
+
+        private FieldEntry(final StandardField standardField, final FieldInfo<?> fieldInfo, final String name, final int position) {
+            this.standardField = standardField;
+            this.fieldInfo = fieldInfo;
+            this.position = position;
+            names = Collections.singleton(name);
+        }
+    }
+
+    /**
+     * Resolves JSON field names to standard document properties and configured fields, compiled once per configuration
+     */
+    private static class FieldTable extends CompiledConfig<HodSearchCapable> {
+        private final Map<String, FieldEntry> entries = new HashMap<>();
+        private final FieldEntry[] configuredEntries;
+
+        private FieldTable(final HodSearchCapable config) {
+            super(config, Collections.<FieldInfo<?>>emptyList());
+
+            final Map<String, StandardField> standardFields = new HashMap<>();
+            for (final StandardField standardField : StandardField.values()) {
+                standardFields.put(standardField.name, standardField);
+                entries.put(standardField.name, new FieldEntry(standardField, null, standardField.name, -1));
+            }
+
+            final Map<String, FieldInfo<?>> fieldConfigByName = getFieldConfigByName();
+            configuredEntries = new FieldEntry[fieldConfigByName.size()];
+
+            int position = 0;
+            for (final Map.Entry<String, FieldInfo<?>> fieldConfig : fieldConfigByName.entrySet()) {
+                final String name = fieldConfig.getKey();
+                final FieldEntry entry = new FieldEntry(standardFields.get(name), fieldConfig.getValue(), name, position);
+                entries.put(name, entry);
+                configuredEntries[position] = entry;
+                position++;
+            }
+        }
+
+        private FieldEntry get(final String name) {
+            return entries.get(name);
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<Object>[] newValuesArray() {
+            return new List[configuredEntries.length];
+        }
+
+        private Map<String, FieldInfo<?>> createFieldMap(final List<Object>[] configuredValues) {
+            final Map<String, FieldInfo<?>> fieldMap = new HashMap<>();
+
+            if (configuredValues != null) {
+                // a later name of the same field replaces the values of an earlier one, whatever the order in the document
+                for (int i = 0; i < configuredEntries.length; i++) {
+                    if (configuredValues[i] != null) {
+                        final FieldInfo<?> fieldInfo = configuredEntries[i].fieldInfo;
+                        fieldMap.put(fieldInfo.getId(), FieldInfo.withCompactValues(fieldInfo.getId(), configuredEntries[i].names, fieldInfo.getType(), configuredValues[i]));
+                    }
+                }
+            }
+
+            return fieldMap;
+        }
+    }
 }
@@ -15,6 +15,11 @@ import com.hp.autonomy.hod.client.error.HodErrorException;
 import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
 import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
 import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.BucketingParams;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBucket;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeInfo;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
 import com.hp.autonomy.searchcomponents.hod.configuration.HodSearchCapable;
 import com.hp.autonomy.searchcomponents.hod.configuration.QueryManipulationConfig;
@@ -41,6 +46,9 @@ import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -128,6 +136,124 @@ public class HodParametricValuesServiceTest {
         assertThat(fieldNamesSet, is(not(empty())));
     }
 
+    @Test
+    public void restrictsAndPagesValues() throws HodErrorException {
+        final List<ResourceIdentifier> indexes = Collections.singletonList(ResourceIdentifier.WIKI_ENG);
+        final HodParametricRequest testRequest = new HodParametricRequest.Builder()
+                .setFieldNames(Collections.singletonList("grassy field"))
+                .setQueryRestrictions(new HodQueryRestrictions.Builder().setDatabases(indexes).build())
+                .setValueRestrictions(Collections.singletonList("*s"))
+                .setStart(2)
+                .build();
+
+        final Map<String, QueryTagInfo> fieldNamesMap = new HashMap<>();
+        for (final QueryTagInfo parametricFieldName : parametricValuesService.getAllParametricValues(testRequest)) {
+            fieldNamesMap.put(parametricFieldName.getName(), parametricFieldName);
+        }
+
+        assertThat(fieldNamesMap.get("grassy field").getValues(), contains(new QueryTagCountInfo("snakes", 33)));
+    }
+
+    @Test
+    public void mergesValuesFromEachIndex() throws HodErrorException {
+        final Map<String, Integer> wikiValues = new LinkedHashMap<>();
+        wikiValues.put("birds", 65);
+        wikiValues.put("snakes", 33);
+        wikiValues.put("frogs", 2);
+
+        final Map<String, Integer> patentsValues = new LinkedHashMap<>();
+        patentsValues.put("snakes", 40);
+        patentsValues.put("frogs", 30);
+
+        when(getParametricValuesService.getParametricValues(anyCollectionOf(String.class), eq(Collections.singletonList(ResourceIdentifier.WIKI_ENG)), any(GetParametricValuesRequestBuilder.class)))
+                .thenReturn(new FieldNames.Builder().addParametricValue("grassy field", wikiValues).build());
+        when(getParametricValuesService.getParametricValues(anyCollectionOf(String.class), eq(Collections.singletonList(ResourceIdentifier.PATENTS)), any(GetParametricValuesRequestBuilder.class)))
+                .thenReturn(new FieldNames.Builder().addParametricValue("grassy field", patentsValues).build());
+
+        final HodParametricValuesService mergingService = new HodParametricValuesService(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, ParallelRequestExecutor.serial());
+        final HodParametricRequest testRequest = new HodParametricRequest.Builder()
+                .setFieldNames(Collections.singletonList("grassy field"))
+                .setQueryRestrictions(new HodQueryRestrictions.Builder().setDatabases(Arrays.asList(ResourceIdentifier.WIKI_ENG, ResourceIdentifier.PATENTS)).build())
+                .setMaxValues(2)
+                .build();
+
+        final Set<QueryTagInfo> results = mergingService.getAllParametricValues(testRequest);
+        assertThat(results, hasSize(1));
+        assertThat(results.iterator().next().getValues(), contains(new QueryTagCountInfo("snakes", 73), new QueryTagCountInfo("birds", 65)));
+    }
+
+    @Test
+    public void restrictedValuesAreNotMerged() throws HodErrorException {
+        final Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("snakes", 73);
+        values.put("birds", 65);
+
+        final List<ResourceIdentifier> indexes = Arrays.asList(ResourceIdentifier.WIKI_ENG, ResourceIdentifier.PATENTS);
+        when(getParametricValuesService.getParametricValues(anyCollectionOf(String.class), eq(indexes), any(GetParametricValuesRequestBuilder.class)))
+                .thenReturn(new FieldNames.Builder().addParametricValue("grassy field", values).build());
+
+        final HodParametricValuesService mergingService = new HodParametricValuesService(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, ParallelRequestExecutor.serial());
+        final HodParametricRequest testRequest = new HodParametricRequest.Builder()
+                .setFieldNames(Collections.singletonList("grassy field"))
+                .setQueryRestrictions(new HodQueryRestrictions.Builder().setDatabases(indexes).build())
+                .setValueRestrictions(Collections.singletonList("b*"))
+                .build();
+
+        final Set<QueryTagInfo> results = mergingService.getAllParametricValues(testRequest);
+        assertThat(results.iterator().next().getValues(), contains(new QueryTagCountInfo("birds", 65)));
+        verify(getParametricValuesService).getParametricValues(anyCollectionOf(String.class), anyCollectionOf(ResourceIdentifier.class), any(GetParametricValuesRequestBuilder.class));
+    }
+
+    @Test
+    public void getParametricRanges() throws HodErrorException {
+        final Map<String, Integer> prices = new LinkedHashMap<>();
+        prices.put("5", 2);
+        prices.put("12", 3);
+        prices.put("20", 1);
+        prices.put("unknown", 7);
+
+        when(getParametricValuesService.getParametricValues(anyCollectionOf(String.class), anyCollectionOf(ResourceIdentifier.class), any(GetParametricValuesRequestBuilder.class)))
+                .thenReturn(new FieldNames.Builder().addParametricValue("price", prices).build());
+
+        final HodParametricRequest testRequest = generateRequest(Collections.singletonList(ResourceIdentifier.WIKI_ENG), Collections.singletonList("price"));
+        final List<RangeInfo> ranges = parametricValuesService.getParametricRanges(testRequest, new BucketingParams(2, 0.0, 20.0));
+
+        assertThat(ranges, hasSize(1));
+        assertThat(ranges.get(0).getBuckets(), contains(new RangeBucket("0,10", 0, 10, 2), new RangeBucket("10,20", 10, 20, 4)));
+        assertThat(ranges.get(0).isApproximate(), is(false));
+    }
+
+    @Test
+    public void getParametricRangesWithTooManyValuesIsApproximate() throws HodErrorException {
+        final Map<String, Integer> prices = new LinkedHashMap<>();
+        for (int i = 0; i < HodParametricValuesService.ALL_VALUES_MAX_VALUES; i++) {
+            prices.put(String.valueOf(i), 1);
+        }
+
+        when(getParametricValuesService.getParametricValues(anyCollectionOf(String.class), anyCollectionOf(ResourceIdentifier.class), any(GetParametricValuesRequestBuilder.class)))
+                .thenReturn(new FieldNames.Builder().addParametricValue("price", prices).build());
+
+        final HodParametricRequest testRequest = generateRequest(Collections.singletonList(ResourceIdentifier.WIKI_ENG), Collections.singletonList("price"));
+        final List<RangeInfo> ranges = parametricValuesService.getParametricRanges(testRequest, new BucketingParams(2, null, null));
+
+        assertThat(ranges, hasSize(1));
+        assertThat(ranges.get(0).isApproximate(), is(true));
+    }
+
+    @Test
+    public void getParametricRangesUsesValuesService() throws HodErrorException {
+        @SuppressWarnings("unchecked")
+        final ParametricValuesService<HodParametricRequest, ResourceIdentifier, HodErrorException> valuesService = mock(ParametricValuesService.class);
+        when(valuesService.getAllParametricValues(any(HodParametricRequest.class))).thenReturn(Collections.singleton(new QueryTagInfo("price", Collections.singleton(new QueryTagCountInfo("5", 2)))));
+
+        final HodParametricValuesService rangesService = new HodParametricValuesService(fieldsService, getParametricValuesService, configService, authenticationInformationRetriever, null, valuesService);
+        final HodParametricRequest testRequest = generateRequest(Collections.singletonList(ResourceIdentifier.WIKI_ENG), Collections.singletonList("price"));
+        final List<RangeInfo> ranges = rangesService.getParametricRanges(testRequest, new BucketingParams(1, 0.0, 10.0));
+
+        assertThat(ranges.get(0).getBuckets(), contains(new RangeBucket("0,10", 0, 10, 2)));
+        verify(valuesService).getAllParametricValues(any(HodParametricRequest.class));
+    }
+
     private HodParametricRequest generateRequest(final List<ResourceIdentifier> indexes, final List<String> fieldNames) {
         final QueryRestrictions<ResourceIdentifier> queryRestrictions = new HodQueryRestrictions.Builder().setDatabases(indexes).build();
         return new HodParametricRequest.Builder()
@@ -17,6 +17,9 @@ import com.hp.autonomy.hod.client.error.HodErrorException;
 import com.hp.autonomy.hod.sso.HodAuthentication;
 import com.hp.autonomy.hod.sso.HodAuthenticationPrincipal;
 import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.requests.TenantRequestExecutors;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsIterator;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequest;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequestIndex;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
@@ -29,20 +32,30 @@ import com.hp.autonomy.searchcomponents.hod.test.HodTestUtils;
 import com.hp.autonomy.types.requests.Documents;
 import org.apache.commons.lang.NotImplementedException;
 import org.hamcrest.beans.HasPropertyWithValue;
+import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
@@ -126,6 +139,42 @@ public class HodDocumentServiceTest {
         validateResults(results);
     }
 
+    @Test
+    public void documentsWithDomainAreNotCopied() throws HodErrorException {
+        final HodSearchResult result = new HodSearchResult.Builder().setIndex("SomeIndex").setDomain("SomeDomain").build();
+        when(queryTextIndexService.queryTextIndexWithText(anyString(), any(QueryRequestBuilder.class))).thenReturn(new Documents<>(Collections.singletonList(result), 1, null, null, null, null));
+
+        final SearchRequest<ResourceIdentifier> searchRequest = new SearchRequest<>(testUtils.buildQueryRestrictions(), 1, 30, "concept", 250, null, true, false, SearchRequest.QueryType.MODIFIED);
+        assertSame(result, documentsService.queryTextIndex(searchRequest).getDocuments().get(0));
+    }
+
+    @Test
+    public void exportDocumentsWritesEachWindow() throws HodErrorException, IOException {
+        final HodSearchResult first = new HodSearchResult.Builder().setReference("a").setIndex("SomeIndex").setDate(new DateTime(1400000000000L)).build();
+        final HodSearchResult second = new HodSearchResult.Builder().setReference("b").setIndex("SomeIndex").setDate(new DateTime(1300000000000L)).build();
+        when(queryTextIndexService.queryTextIndexWithText(anyString(), any(QueryRequestBuilder.class)))
+                .thenReturn(new Documents<>(Collections.singletonList(first), 2, null, null, null, null))
+                .thenReturn(new Documents<>(Collections.singletonList(second), 2, null, null, null, null))
+                .thenReturn(new Documents<>(Collections.<HodSearchResult>emptyList(), 2, null, null, null, null));
+
+        final SearchRequest<ResourceIdentifier> searchRequest = new SearchRequest<>(testUtils.buildQueryRestrictions(), 1, 30, "concept", 250, null, true, false, SearchRequest.QueryType.MODIFIED);
+        final List<HodSearchResult> written = new ArrayList<>();
+        final int writtenCount = documentsService.exportDocuments(searchRequest, 1, new DocumentSink<HodSearchResult>() {
+            @Override
+            public void write(final HodSearchResult document) {
+                written.add(document);
+            }
+        });
+
+        assertThat(writtenCount, is(2));
+        assertThat(written, hasSize(2));
+        assertEquals("a", written.get(0).getReference());
+        assertEquals("b", written.get(1).getReference());
+        for (final HodSearchResult document : written) {
+            assertEquals("SomeDomain", document.getDomain());
+        }
+    }
+
     @Test
     public void findSimilar() throws HodErrorException {
         final QueryRestrictions<ResourceIdentifier> queryRestrictions = testUtils.buildQueryRestrictions();
@@ -144,6 +193,54 @@ public class HodDocumentServiceTest {
         verify(getContentService, times(2)).getContent(anyListOf(String.class), any(ResourceIdentifier.class), any(GetContentRequestBuilder.class));
     }
 
+    @Test
+    public void getDocumentContentInParallel() throws HodErrorException {
+        final TenantRequestExecutors tenantRequestExecutors = new TenantRequestExecutors(2, 10, 10000L);
+        documentsService = new HodDocumentsService(findSimilarService, configService, queryTextIndexService, getContentService, authenticationInformationRetriever, documentFieldsService, tenantRequestExecutors);
+
+        final ResourceIdentifier index = new ResourceIdentifier("x", "y");
+        final ResourceIdentifier index2 = new ResourceIdentifier("a", "b");
+        when(getContentService.getContent(anyListOf(String.class), eq(index), any(GetContentRequestBuilder.class))).thenReturn(new Documents<>(Collections.singletonList(new HodSearchResult.Builder().setReference("z").setIndex("y").build()), 1, null, null, null, null));
+        when(getContentService.getContent(anyListOf(String.class), eq(index2), any(GetContentRequestBuilder.class))).thenReturn(new Documents<>(Collections.singletonList(new HodSearchResult.Builder().setReference("c").setIndex("b").build()), 1, null, null, null, null));
+
+        try {
+            final List<HodSearchResult> results = documentsService.getDocumentContent(new GetContentRequest<>(new LinkedHashSet<>(Arrays.asList(new GetContentRequestIndex<>(index, Collections.singleton("z")), new GetContentRequestIndex<>(index2, Collections.singleton("c")))), Print.fields.name()));
+            assertThat(results, hasSize(2));
+            assertEquals("z", results.get(0).getReference());
+            assertEquals("x", results.get(0).getDomain());
+            assertEquals("c", results.get(1).getReference());
+            assertEquals("a", results.get(1).getDomain());
+        } finally {
+            tenantRequestExecutors.shutdown();
+        }
+    }
+
+    @Test
+    public void iterateDocumentsPrefetchesWithoutParallelGetContent() throws HodErrorException {
+        final TenantRequestExecutors tenantRequestExecutors = new TenantRequestExecutors(2, 10, 10000L);
+        documentsService = new HodDocumentsService(findSimilarService, configService, queryTextIndexService, getContentService, authenticationInformationRetriever, documentFieldsService, null, tenantRequestExecutors);
+
+        final List<String> requestThreadNames = new ArrayList<>();
+        when(queryTextIndexService.queryTextIndexWithText(anyString(), any(QueryRequestBuilder.class))).thenAnswer(new Answer<Documents<HodSearchResult>>() {
+            @Override
+            public Documents<HodSearchResult> answer(final InvocationOnMock invocation) {
+                requestThreadNames.add(Thread.currentThread().getName());
+                return new Documents<>(Collections.singletonList(new HodSearchResult.Builder().setReference("a").setIndex("SomeIndex").build()), 1, null, null, null, null);
+            }
+        });
+
+        try {
+            final SearchRequest<ResourceIdentifier> searchRequest = new SearchRequest<>(testUtils.buildQueryRestrictions(), 1, 30, "concept", 250, null, true, false, SearchRequest.QueryType.MODIFIED);
+            final DocumentsIterator<HodSearchResult> iterator = documentsService.iterateDocuments(searchRequest, 10);
+
+            assertEquals("a", iterator.next().getReference());
+            assertThat(iterator.hasNext(), is(false));
+            assertThat(requestThreadNames, contains(startsWith("tenant-request-")));
+        } finally {
+            tenantRequestExecutors.shutdown();
+        }
+    }
+
     @Test(expected = NotImplementedException.class)
     public void getStateToken() throws HodErrorException {
         documentsService.getStateToken(testUtils.buildQueryRestrictions(), 30);
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.hod.search;
+
+import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
+import com.hp.autonomy.hod.client.error.HodErrorException;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.types.requests.Documents;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HodDocumentWindowSourceTest {
+    private static final DateTime DATE = new DateTime(2015, 6, 1, 0, 0);
+
+    @Mock
+    private HodDocumentsService documentsService;
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void windowsWithinFirstSegment() throws HodErrorException {
+        when(documentsService.queryTextIndex(any(SearchRequest.class), eq(false)))
+                .thenReturn(documents(0, 2, DATE, 3))
+                .thenReturn(documents(2, 1, DATE.minusDays(1), 3));
+
+        final HodDocumentWindowSource windowSource = new HodDocumentWindowSource(documentsService, searchRequest(), 2);
+
+        assertThat(windowSource.nextWindow().getDocuments(), hasSize(2));
+        assertThat(windowSource.nextWindow().getDocuments(), hasSize(1));
+        assertThat(windowSource.nextWindow(), is(nullValue()));
+
+        final ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(documentsService, times(2)).queryTextIndex(requestCaptor.capture(), eq(false));
+        assertThat(requestCaptor.getAllValues().get(1).getStart(), is(3));
+        assertThat(requestCaptor.getAllValues().get(1).getMaxResults(), is(4));
+        assertThat(requestCaptor.getAllValues().get(1).getSort(), is("date"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void continuesBeyondMaxResultsFromLastDate() throws HodErrorException {
+        final List<HodSearchResult> firstSegment = new ArrayList<>(documents(0, HodDocumentsService.HOD_MAX_RESULTS - 2, DATE, 5000).getDocuments());
+        firstSegment.addAll(documents(HodDocumentsService.HOD_MAX_RESULTS - 2, 2, DATE.minusDays(1), 5000).getDocuments());
+
+        final List<HodSearchResult> secondSegment = new ArrayList<>(documents(HodDocumentsService.HOD_MAX_RESULTS - 2, 3, DATE.minusDays(1), 5000).getDocuments());
+
+        when(documentsService.queryTextIndex(any(SearchRequest.class), eq(false)))
+                .thenReturn(new Documents<>(firstSegment, 5000, null, null, null, null))
+                .thenReturn(new Documents<>(secondSegment, 2501, null, null, null, null));
+
+        final HodDocumentWindowSource windowSource = new HodDocumentWindowSource(documentsService, searchRequest(), HodDocumentsService.HOD_MAX_RESULTS);
+
+        assertThat(windowSource.nextWindow().getDocuments(), hasSize(HodDocumentsService.HOD_MAX_RESULTS));
+
+        final Documents<HodSearchResult> window = windowSource.nextWindow();
+        assertThat(window.getDocuments(), hasSize(1));
+        assertThat(window.getDocuments().get(0).getReference(), is("2500"));
+        assertThat(window.getTotalResults(), is(5000));
+        assertThat(windowSource.nextWindow(), is(nullValue()));
+
+        final ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(documentsService, times(2)).queryTextIndex(requestCaptor.capture(), eq(false));
+        assertThat(requestCaptor.getAllValues().get(1).getStart(), is(1));
+        assertThat(requestCaptor.getAllValues().get(1).getQueryRestrictions().getMaxDate(), is(DATE.minusDays(1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalStateException.class)
+    public void failsIfSegmentHasNoNewDocuments() throws HodErrorException {
+        final Documents<HodSearchResult> segment = documents(0, HodDocumentsService.HOD_MAX_RESULTS, DATE, 5000);
+        when(documentsService.queryTextIndex(any(SearchRequest.class), eq(false))).thenReturn(segment);
+
+        final HodDocumentWindowSource windowSource = new HodDocumentWindowSource(documentsService, searchRequest(), HodDocumentsService.HOD_MAX_RESULTS);
+
+        windowSource.nextWindow();
+        assertThat(windowSource.nextWindow().getDocuments(), hasSize(0));
+        windowSource.nextWindow();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalStateException.class)
+    public void failsIfSegmentEndsWithUndatedDocuments() throws HodErrorException {
+        final List<HodSearchResult> segment = new ArrayList<>(documents(0, HodDocumentsService.HOD_MAX_RESULTS - 2, DATE, 5000).getDocuments());
+        segment.addAll(documents(HodDocumentsService.HOD_MAX_RESULTS - 2, 2, null, 5000).getDocuments());
+        when(documentsService.queryTextIndex(any(SearchRequest.class), eq(false))).thenReturn(new Documents<>(segment, 5000, null, null, null, null));
+
+        final HodDocumentWindowSource windowSource = new HodDocumentWindowSource(documentsService, searchRequest(), HodDocumentsService.HOD_MAX_RESULTS);
+
+        assertThat(windowSource.nextWindow().getDocuments(), hasSize(HodDocumentsService.HOD_MAX_RESULTS));
+        windowSource.nextWindow();
+    }
+
+    private SearchRequest<ResourceIdentifier> searchRequest() {
+        final HodQueryRestrictions queryRestrictions = new HodQueryRestrictions.Builder()
+                .setQueryText("*")
+                .setDatabases(Collections.singletonList(new ResourceIdentifier("SomeDomain", "SomeIndex")))
+                .build();
+
+        return new SearchRequest<>(queryRestrictions, 1, 30, null, null, null, false, false, SearchRequest.QueryType.MODIFIED);
+    }
+
+    private Documents<HodSearchResult> documents(final int firstReference, final int count, final DateTime date, final int totalResults) {
+        final List<HodSearchResult> documents = new ArrayList<>(count);
+        for (int i = firstReference; i < firstReference + count; i++) {
+            documents.add(new HodSearchResult.Builder().setReference(String.valueOf(i)).setIndex("SomeIndex").setDate(date).build());
+        }
+
+        return new Documents<>(documents, totalResults, null, null, null, null);
+    }
+}
@@ -7,14 +7,18 @@ package com.hp.autonomy.searchcomponents.hod.search.fields;
 
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.hp.autonomy.frontend.configuration.ConfigService;
+import com.hp.autonomy.hod.client.api.resource.ResourceIdentifier;
 import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
 import com.hp.autonomy.searchcomponents.core.config.FieldType;
 import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
+import com.hp.autonomy.searchcomponents.core.search.PromotionCategory;
 import com.hp.autonomy.searchcomponents.hod.configuration.HodSearchCapable;
 import com.hp.autonomy.searchcomponents.hod.search.HodSearchResult;
+import com.hp.autonomy.searchcomponents.hod.search.IndexDomainResolver;
 import com.hp.autonomy.types.requests.Documents;
 import org.apache.commons.io.IOUtils;
 import org.joda.time.DateTime;
@@ -29,6 +33,9 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -59,10 +66,12 @@ public class HodSearchResultDeserializerTest {
         customModule.addDeserializer(HodSearchResult.class, new HodSearchResultDeserializer(configService));
         objectMapper.registerModule(customModule);
         objectMapper.registerModule(new JodaModule());
+        objectMapper.setConfig(objectMapper.getDeserializationConfig().with(IndexDomainResolver.withBoundResolver(objectMapper.getDeserializationConfig().getAttributes())));
 
         final FieldsInfo fieldsInfo = new FieldsInfo.Builder()
                 .populateResponseMap("modifiedDate", new FieldInfo<DateTime>("modifiedDate", Arrays.asList("modified_date", "date_modified"), FieldType.DATE))
                 .populateResponseMap("links", new FieldInfo<String>("links", Collections.singletonList("links"), FieldType.STRING))
+                .populateResponseMap("pageCount", new FieldInfo<Number>("pageCount", Collections.singletonList("page_count"), FieldType.NUMBER))
                 .build();
         when(config.getFieldsInfo()).thenReturn(fieldsInfo);
         when(configService.getConfig()).thenReturn(config);
@@ -77,6 +86,69 @@ public class HodSearchResultDeserializerTest {
         assertThat(firstResult.getFieldMap().keySet(), hasSize(2));
     }
 
+    @Test
+    public void laterConfiguredNameTakesPrecedence() throws IOException {
+        final HodSearchResult result = objectMapper.readValue("{\"reference\": \"doc\", \"date_modified\": [\"1400000000\"], \"modified_date\": [\"1300000000\"]}", HodSearchResult.class);
+        assertThat(result.getFieldMap().get("modifiedDate").getValues(), contains((Object) new DateTime(1400000000000L)));
+    }
+
+    @Test
+    public void typedValuesAndUnconfiguredFields() throws IOException {
+        final HodSearchResult result = objectMapper.readValue("{\"reference\": \"doc\", \"weight\": 1.5, \"page_count\": [3, \"4.5\"], \"other\": {\"links\": [\"nested\"]}, \"promotion\": \"CARDINAL_PLACEMENT\"}", HodSearchResult.class);
+        assertThat(result.getWeight(), is(1.5));
+        assertThat(result.getPromotionCategory(), is(PromotionCategory.CARDINAL_PLACEMENT));
+        assertThat(result.getFieldMap().get("pageCount").getValues(), contains((Object) 3.0, 4.5));
+        assertThat(result.getFieldMap().keySet(), contains("pageCount"));
+    }
+
+    @Test
+    public void domainFromBoundResolver() throws IOException {
+        final IndexDomainResolver previous = IndexDomainResolver.setCurrent(new IndexDomainResolver(Collections.singletonList(new ResourceIdentifier("SomeDomain", "SomeIndex")), "AppDomain"));
+
+        try {
+            assertThat(objectMapper.readValue("{\"reference\": \"doc\", \"index\": \"SomeIndex\"}", HodSearchResult.class).getDomain(), is("SomeDomain"));
+            assertThat(objectMapper.readValue("{\"reference\": \"doc\", \"index\": \"wiki_eng\"}", HodSearchResult.class).getDomain(), is(ResourceIdentifier.PUBLIC_INDEXES_DOMAIN));
+            assertThat(objectMapper.readValue("{\"reference\": \"doc\", \"index\": \"OtherIndex\"}", HodSearchResult.class).getDomain(), is("AppDomain"));
+        } finally {
+            IndexDomainResolver.setCurrent(previous);
+        }
+    }
+
+    @Test
+    public void domainFromAttributeOnAnotherThread() throws Exception {
+        final IndexDomainResolver resolver = new IndexDomainResolver(Collections.singletonList(new ResourceIdentifier("SomeDomain", "SomeIndex")), "AppDomain");
+        final ObjectReader reader = objectMapper.reader(HodSearchResult.class).withAttribute(IndexDomainResolver.class, resolver);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            final HodSearchResult result = executorService.submit(new Callable<HodSearchResult>() {
+                @Override
+                public HodSearchResult call() throws IOException {
+                    return reader.readValue("{\"reference\": \"doc\", \"index\": \"SomeIndex\"}");
+                }
+            }).get();
+
+            assertThat(result.getDomain(), is("SomeDomain"));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void attributeTakesPrecedenceOverBoundResolver() throws IOException {
+        final IndexDomainResolver resolver = new IndexDomainResolver(Collections.singletonList(new ResourceIdentifier("SomeDomain", "SomeIndex")), "AppDomain");
+        final IndexDomainResolver previous = IndexDomainResolver.setCurrent(new IndexDomainResolver(Collections.<ResourceIdentifier>emptyList(), "BoundDomain"));
+
+        try {
+            final HodSearchResult result = objectMapper.reader(HodSearchResult.class)
+                    .withAttribute(IndexDomainResolver.class, resolver)
+                    .readValue("{\"reference\": \"doc\", \"index\": \"SomeIndex\"}");
+            assertThat(result.getDomain(), is("SomeDomain"));
+        } finally {
+            IndexDomainResolver.setCurrent(previous);
+        }
+    }
+
     @Test
     public void serialization() throws IOException {
         final List<HodSearchResult> documents = deserialize();
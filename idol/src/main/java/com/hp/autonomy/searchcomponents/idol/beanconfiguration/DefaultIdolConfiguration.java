@@ -7,25 +7,57 @@ package com.hp.autonomy.searchcomponents.idol.beanconfiguration;
 
 import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.services.AciService;
+import com.autonomy.aci.client.services.Processor;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.frontend.configuration.authentication.CommunityPrincipal;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
 import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
 import com.hp.autonomy.searchcomponents.core.languages.LanguagesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.AsyncParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.AsyncParametricValuesServiceImpl;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.CachingParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.search.AsyncDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.AsyncDocumentsServiceImpl;
+import com.hp.autonomy.searchcomponents.core.search.AsyncRelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.AsyncRelatedConceptsServiceImpl;
+import com.hp.autonomy.searchcomponents.core.search.CachingExportingDocumentsService;
 import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.ExportingDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.SearchPageService;
 import com.hp.autonomy.searchcomponents.core.search.fields.DocumentFieldsService;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
 import com.hp.autonomy.searchcomponents.idol.configuration.IdolSearchCapable;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabaseCatalogue;
+import com.hp.autonomy.searchcomponents.idol.fields.IdolFieldsRequest;
+import com.hp.autonomy.searchcomponents.idol.parametricvalues.IdolParametricRequest;
+import com.hp.autonomy.searchcomponents.idol.parametricvalues.IdolParametricValuesService;
 import com.hp.autonomy.searchcomponents.idol.search.HavenSearchAciParameterHandler;
 import com.hp.autonomy.searchcomponents.idol.search.HavenSearchAciParameterHandlerImpl;
 import com.hp.autonomy.searchcomponents.idol.search.IdolDocumentService;
+import com.hp.autonomy.searchcomponents.idol.search.IdolSearchPageService;
 import com.hp.autonomy.searchcomponents.idol.search.IdolSearchResult;
 import com.hp.autonomy.searchcomponents.idol.search.QueryResponseParser;
+import com.hp.autonomy.searchcomponents.idol.search.QueryResponseParserImpl;
+import com.hp.autonomy.searchcomponents.idol.search.QueryResults;
+import com.hp.autonomy.searchcomponents.idol.search.SpeculativeAutoCorrect;
+import com.hp.autonomy.searchcomponents.idol.search.fields.FieldsParser;
+import com.hp.autonomy.types.idol.QsElement;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 class DefaultIdolConfiguration {
+    private static final long SEARCH_PAGE_TIMEOUT_MILLIS = 90000L;
+
     @Bean
     @ConditionalOnMissingBean(HavenSearchAciParameterHandler.class)
     public HavenSearchAciParameterHandler parameterHandler(
@@ -36,10 +68,84 @@ class DefaultIdolConfiguration {
         return new HavenSearchAciParameterHandlerImpl(configService, languagesService, documentFieldsService, authenticationInformationRetriever);
     }
 
+    @Bean
+    @ConditionalOnMissingBean(QueryResponseParser.class)
+    public QueryResponseParser queryResponseParser(
+            final FieldsParser fieldsParser,
+            final IdolDatabaseCatalogue databaseCatalogue,
+            final SpeculativeAutoCorrect speculativeAutoCorrect,
+            @Value("${" + HavenSearchIdolConfiguration.SPECULATIVE_AUTO_CORRECT_PROPERTY + ":false}") final boolean speculativeAutoCorrectEnabled) {
+        return new QueryResponseParserImpl(fieldsParser, databaseCatalogue, speculativeAutoCorrectEnabled ? speculativeAutoCorrect : null);
+    }
+
+    /**
+     * Also injectable as an {@link ExportingDocumentsService}, including when query results are cached
+     */
     @SuppressWarnings("MethodWithTooManyParameters")
     @Bean
     @ConditionalOnMissingBean(DocumentsService.class)
-    public DocumentsService<String, IdolSearchResult, AciErrorException> documentsService(final ConfigService<? extends IdolSearchCapable> configService, final HavenSearchAciParameterHandler parameterHandler, final QueryResponseParser queryResponseParser, final AciService contentAciService, final AciService qmsAciService, final AciResponseJaxbProcessorFactory aciResponseProcessorFactory) {
-        return new IdolDocumentService(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory);
+    public ExportingDocumentsService<String, IdolSearchResult, AciErrorException> documentsService(
+            final ConfigService<? extends IdolSearchCapable> configService,
+            final HavenSearchAciParameterHandler parameterHandler,
+            final QueryResponseParser queryResponseParser,
+            final AciService contentAciService,
+            final AciService qmsAciService,
+            final AciResponseJaxbProcessorFactory aciResponseProcessorFactory,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            final IdolCompiledConfigService compiledConfigService,
+            final IdolDatabaseCatalogue databaseCatalogue,
+            @Qualifier("queryResultsProcessor") final Processor<QueryResults> queryResultsProcessor,
+            @Value("${" + HavenSearchIdolConfiguration.STREAMING_QUERY_RESULTS_PROPERTY + ":false}") final boolean streamingQueryResults,
+            @Qualifier("queryResultsCacheKeyProvider") final QueryResultsCacheKeyProvider queryResultsCacheKeyProvider,
+            @Value("${" + HavenSearchIdolConfiguration.QUERY_RESULTS_CACHE_PROPERTY + ":false}") final boolean queryResultsCache) {
+        final ExportingDocumentsService<String, IdolSearchResult, AciErrorException> documentsService = new IdolDocumentService(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, parallelRequestExecutor, streamingQueryResults ? queryResultsProcessor : null, compiledConfigService, databaseCatalogue);
+        return queryResultsCache ? new CachingExportingDocumentsService<>(documentsService, queryResultsCacheKeyProvider, AciErrorException.class) : documentsService;
+    }
+
+    @SuppressWarnings("MethodWithTooManyParameters")
+    @Bean
+    @ConditionalOnMissingBean(ParametricValuesService.class)
+    public ParametricValuesService<IdolParametricRequest, String, AciErrorException> parametricValuesService(
+            final HavenSearchAciParameterHandler parameterHandler,
+            final FieldsService<IdolFieldsRequest, AciErrorException> fieldsService,
+            final AciService contentAciService,
+            final AciResponseJaxbProcessorFactory aciResponseProcessorFactory,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            @Value("${" + HavenSearchIdolConfiguration.PARAMETRIC_VALUES_FIELD_BATCH_SIZE_PROPERTY + ":0}") final int fieldBatchSize,
+            @Qualifier("parametricValuesCacheKeyProvider") final QueryResultsCacheKeyProvider parametricValuesCacheKeyProvider,
+            @Value("${" + HavenSearchIdolConfiguration.PARAMETRIC_VALUES_CACHE_PROPERTY + ":false}") final boolean parametricValuesCache) {
+        final ParametricValuesService<IdolParametricRequest, String, AciErrorException> parametricValuesService = new IdolParametricValuesService(parameterHandler, fieldsService, contentAciService, aciResponseProcessorFactory, parallelRequestExecutor, fieldBatchSize);
+        return parametricValuesCache ? new CachingParametricValuesService<>(parametricValuesService, parametricValuesCacheKeyProvider, AciErrorException.class) : parametricValuesService;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncDocumentsService.class)
+    public AsyncDocumentsService<String, IdolSearchResult> asyncDocumentsService(final DocumentsService<String, IdolSearchResult, AciErrorException> documentsService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncDocumentsServiceImpl<>(documentsService, executorService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncParametricValuesService.class)
+    public AsyncParametricValuesService<IdolParametricRequest, String> asyncParametricValuesService(final ParametricValuesService<IdolParametricRequest, String, AciErrorException> parametricValuesService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncParametricValuesServiceImpl<>(parametricValuesService, executorService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncRelatedConceptsService.class)
+    public AsyncRelatedConceptsService<QsElement, String> asyncRelatedConceptsService(final RelatedConceptsService<QsElement, String, AciErrorException> relatedConceptsService, @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService) {
+        return new AsyncRelatedConceptsServiceImpl<>(relatedConceptsService, executorService);
+    }
+
+    @SuppressWarnings("MethodWithTooManyParameters")
+    @Bean
+    @ConditionalOnMissingBean(SearchPageService.class)
+    public SearchPageService<String, IdolSearchResult, QsElement> searchPageService(
+            final DocumentsService<String, IdolSearchResult, AciErrorException> documentsService,
+            final ParametricValuesService<IdolParametricRequest, String, AciErrorException> parametricValuesService,
+            final RelatedConceptsService<QsElement, String, AciErrorException> relatedConceptsService,
+            final LanguagesService languagesService,
+            @Qualifier("asyncRequestExecutorService") final ListeningExecutorService executorService,
+            @Value("${" + HavenSearchIdolConfiguration.SEARCH_PAGE_TIMEOUT_PROPERTY + ":" + SEARCH_PAGE_TIMEOUT_MILLIS + "}") final long timeoutMillis) {
+        return new IdolSearchPageService(documentsService, parametricValuesService, relatedConceptsService, languagesService, executorService, timeoutMillis);
     }
 }
@@ -8,18 +8,35 @@ package com.hp.autonomy.searchcomponents.idol.beanconfiguration;
 import com.autonomy.aci.client.annotations.IdolAnnotationsProcessorFactory;
 import com.autonomy.aci.client.annotations.IdolAnnotationsProcessorFactoryImpl;
 import com.autonomy.aci.client.services.AciService;
+import com.autonomy.aci.client.services.Processor;
 import com.autonomy.aci.client.services.impl.AciServiceImpl;
 import com.autonomy.aci.client.transport.AciServerDetails;
 import com.autonomy.aci.client.transport.impl.AciHttpClientImpl;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hp.autonomy.frontend.configuration.AbstractConfigurableAciService;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
+import com.hp.autonomy.frontend.configuration.authentication.CommunityPrincipal;
+import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.CachingParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.requests.RequestExecutors;
+import com.hp.autonomy.searchcomponents.core.search.CachingDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
 import com.hp.autonomy.searchcomponents.idol.configuration.IdolSearchCapable;
 import com.hp.autonomy.searchcomponents.idol.configuration.QueryManipulation;
+import com.hp.autonomy.searchcomponents.idol.parametricvalues.IdolParametricValuesService;
+import com.hp.autonomy.searchcomponents.idol.search.IdolQueryResultsCacheKeyProvider;
+import com.hp.autonomy.searchcomponents.idol.search.QueryResults;
+import com.hp.autonomy.searchcomponents.idol.search.QueryResultsProcessor;
+import com.hp.autonomy.searchcomponents.idol.search.SpeculativeAutoCorrect;
 import org.apache.http.client.HttpClient;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -33,12 +50,74 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ComponentScan("com.hp.autonomy.searchcomponents.idol")
 public class HavenSearchIdolConfiguration<C extends IdolSearchCapable> {
+    /**
+     * Set this property to true to read query results with {@link QueryResultsProcessor} instead of JAXB
+     */
+    public static final String STREAMING_QUERY_RESULTS_PROPERTY = "haven-search.idol.streaming-query-results";
+
+    /**
+     * Set this property to true to check the spelling of auto corrected queries in parallel with the query; see {@link SpeculativeAutoCorrect}
+     */
+    public static final String SPECULATIVE_AUTO_CORRECT_PROPERTY = "haven-search.idol.speculative-auto-correct";
+
+    /**
+     * Set this property to true to cache query results; see {@link CachingDocumentsService}
+     */
+    public static final String QUERY_RESULTS_CACHE_PROPERTY = "haven-search.idol.query-results-cache";
+
+    /**
+     * Set this property to true to cache parametric values per user; see {@link CachingParametricValuesService}
+     */
+    public static final String PARAMETRIC_VALUES_CACHE_PROPERTY = "haven-search.idol.parametric-values-cache";
+
+    /**
+     * Set this property to request parametric values for at most this many fields in each GetQueryTagValues action,
+     * running the actions in parallel; see {@link IdolParametricValuesService}
+     */
+    public static final String PARAMETRIC_VALUES_FIELD_BATCH_SIZE_PROPERTY = "haven-search.idol.parametric-values-field-batch-size";
+
+    /**
+     * Maximum number of requests in flight in the pool shared by requests which are split up and run in parallel
+     */
+    public static final String PARALLEL_REQUEST_MAX_THREADS_PROPERTY = "haven-search.idol.parallel-requests.max-threads";
+
+    /**
+     * Maximum number of split requests waiting for a thread; beyond this, requests are rejected
+     */
+    public static final String PARALLEL_REQUEST_QUEUE_SIZE_PROPERTY = "haven-search.idol.parallel-requests.queue-size";
+
+    /**
+     * Deadline in milliseconds for each batch of split requests
+     */
+    public static final String PARALLEL_REQUEST_TIMEOUT_PROPERTY = "haven-search.idol.parallel-requests.timeout-millis";
+
+    /**
+     * Maximum number of requests in flight for the async services
+     */
+    public static final String ASYNC_REQUEST_MAX_THREADS_PROPERTY = "haven-search.idol.async-requests.max-threads";
+
+    /**
+     * Maximum number of requests waiting for a thread for the async services and search page sections; beyond this,
+     * requests are rejected
+     */
+    public static final String ASYNC_REQUEST_QUEUE_SIZE_PROPERTY = "haven-search.idol.async-requests.queue-size";
+
+    /**
+     * Time in milliseconds after which search page sections which have not completed are cancelled
+     */
+    public static final String SEARCH_PAGE_TIMEOUT_PROPERTY = "haven-search.idol.search-page.timeout-millis";
+
     private static final int HTTP_SOCKET_TIMEOUT = 90000;
     private static final int HTTP_MAX_CONNECTIONS_PER_ROUTE = 20;
     private static final int HTTP_MAX_CONNECTIONS_TOTAL = 120;
     private static final int VALIDATOR_HTTP_SOCKET_TIMEOUT = 2000;
     private static final int VALIDATOR_HTTP_MAX_CONNECTIONS_PER_ROUTE = 5;
     private static final int VALIDATOR_HTTP_MAX_CONNECTIONS_TOTAL = 5;
+    private static final int PARALLEL_REQUEST_MAX_THREADS = HTTP_MAX_CONNECTIONS_PER_ROUTE;
+    private static final int PARALLEL_REQUEST_QUEUE_SIZE = 100;
+    private static final int SPECULATIVE_AUTO_CORRECT_MAX_CONCURRENT_PER_QUERY_TYPE = 5;
+    private static final int ASYNC_REQUEST_MAX_THREADS = HTTP_MAX_CONNECTIONS_PER_ROUTE;
+    private static final int ASYNC_REQUEST_QUEUE_SIZE = 100;
 
     @Bean
     public AciService contentAciService(@Qualifier("aciService") final AciService aciService, final ConfigService<C> configService) {
@@ -83,6 +162,30 @@ public class HavenSearchIdolConfiguration<C extends IdolSearchCapable> {
         return new AciResponseJaxbProcessorFactory();
     }
 
+    @Bean
+    @ConditionalOnMissingBean(name = "queryResultsProcessor")
+    public Processor<QueryResults> queryResultsProcessor(final IdolCompiledConfigService compiledConfigService) {
+        return new QueryResultsProcessor(compiledConfigService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SpeculativeAutoCorrect.class)
+    public SpeculativeAutoCorrect speculativeAutoCorrect(final ParallelRequestExecutor parallelRequestExecutor) {
+        return new SpeculativeAutoCorrect(parallelRequestExecutor, SPECULATIVE_AUTO_CORRECT_MAX_CONCURRENT_PER_QUERY_TYPE);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "queryResultsCacheKeyProvider")
+    public QueryResultsCacheKeyProvider queryResultsCacheKeyProvider(final AuthenticationInformationRetriever<CommunityPrincipal> authenticationInformationRetriever) {
+        return new IdolQueryResultsCacheKeyProvider(authenticationInformationRetriever);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "parametricValuesCacheKeyProvider")
+    public QueryResultsCacheKeyProvider parametricValuesCacheKeyProvider(final AuthenticationInformationRetriever<CommunityPrincipal> authenticationInformationRetriever) {
+        return new IdolQueryResultsCacheKeyProvider(authenticationInformationRetriever);
+    }
+
     @Bean
     public AciService aciService(final HttpClient httpClient) {
         return new AciServiceImpl(new AciHttpClientImpl(httpClient));
@@ -93,6 +196,26 @@ public class HavenSearchIdolConfiguration<C extends IdolSearchCapable> {
         return new AciServiceImpl(new AciHttpClientImpl(validatorHttpClient));
     }
 
+    @Bean
+    @ConditionalOnMissingBean(name = "parallelRequestExecutor")
+    public ParallelRequestExecutor parallelRequestExecutor(
+            @Value("${" + PARALLEL_REQUEST_MAX_THREADS_PROPERTY + ":" + PARALLEL_REQUEST_MAX_THREADS + "}") final int maxThreads,
+            @Value("${" + PARALLEL_REQUEST_QUEUE_SIZE_PROPERTY + ":" + PARALLEL_REQUEST_QUEUE_SIZE + "}") final int queueSize,
+            @Value("${" + PARALLEL_REQUEST_TIMEOUT_PROPERTY + ":" + HTTP_SOCKET_TIMEOUT + "}") final long timeoutMillis) {
+        return new ParallelRequestExecutor(maxThreads, queueSize, timeoutMillis);
+    }
+
+    /**
+     * Executor for the async services; define a bean with this name to configure it
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "asyncRequestExecutorService")
+    public ListeningExecutorService asyncRequestExecutorService(
+            @Value("${" + ASYNC_REQUEST_MAX_THREADS_PROPERTY + ":" + ASYNC_REQUEST_MAX_THREADS + "}") final int maxThreads,
+            @Value("${" + ASYNC_REQUEST_QUEUE_SIZE_PROPERTY + ":" + ASYNC_REQUEST_QUEUE_SIZE + "}") final int queueSize) {
+        return MoreExecutors.listeningDecorator(RequestExecutors.newBoundedExecutorService(maxThreads, queueSize, "async-request-%d"));
+    }
+
     @Bean
     public HttpClient httpClient() {
         return createHttpClient(HTTP_SOCKET_TIMEOUT, HTTP_MAX_CONNECTIONS_PER_ROUTE, HTTP_MAX_CONNECTIONS_TOTAL);
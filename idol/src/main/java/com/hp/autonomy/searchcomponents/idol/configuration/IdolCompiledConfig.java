@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.configuration;
+
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfig;
+import com.hp.autonomy.searchcomponents.core.config.HavenSearchCapable;
+import com.hp.autonomy.searchcomponents.idol.search.fields.FieldInfoLookup;
+import com.hp.autonomy.searchcomponents.idol.search.fields.IdolDocumentFieldsService;
+import lombok.Getter;
+
+@Getter
+public class IdolCompiledConfig extends CompiledConfig<IdolSearchCapable> {
+    private final QueryManipulation queryManipulation;
+    private final FieldInfoLookup fieldInfoLookup;
+    private final boolean qmsEnabled;
+
+    public IdolCompiledConfig(final IdolSearchCapable config) {
+        super(config, IdolDocumentFieldsService.HARD_CODED_FIELDS);
+
+        fieldInfoLookup = new FieldInfoLookup(getFieldConfigByName());
+
+        queryManipulation = config.getQueryManipulation();
+        qmsEnabled = queryManipulation != null && queryManipulation.isEnabled();
+    }
+
+    @Override
+    public boolean isCompiledFrom(final HavenSearchCapable config) {
+        return super.isCompiledFrom(config) && queryManipulation == getConfig().getQueryManipulation();
+    }
+}
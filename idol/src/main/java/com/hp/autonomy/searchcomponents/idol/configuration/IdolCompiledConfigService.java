@@ -0,0 +1,24 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.configuration;
+
+import com.hp.autonomy.frontend.configuration.ConfigService;
+import com.hp.autonomy.searchcomponents.core.config.CompiledConfigService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IdolCompiledConfigService extends CompiledConfigService<IdolSearchCapable, IdolCompiledConfig> {
+    @Autowired
+    public IdolCompiledConfigService(final ConfigService<? extends IdolSearchCapable> configService) {
+        super(configService);
+    }
+
+    @Override
+    protected IdolCompiledConfig compile(final IdolSearchCapable config) {
+        return new IdolCompiledConfig(config);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.databases;
+
+import com.autonomy.aci.client.services.AciErrorException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
+import com.hp.autonomy.types.idol.Database;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In memory copy of the IDOL databases, including internal ones, so that the databases named in a query can be checked
+ * without a GetStatus for every request.
+ * <p>
+ * Once the catalogue is older than the refresh interval it is reloaded in the background while the current copy
+ * continues to be served. Requests only wait for a load when there is no catalogue yet or it has expired, and
+ * concurrent requests share a single load.
+ */
+@Slf4j
+@Component
+public class IdolDatabaseCatalogue {
+    private static final long REFRESH_AFTER_SECONDS = 60L;
+    private static final long EXPIRE_AFTER_SECONDS = 600L;
+    private static final long RELOAD_ON_MISS_AFTER_SECONDS = 30L;
+
+    private final DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService;
+    private final ExecutorService refreshExecutor;
+    private final long refreshAfterNanos;
+    private final long expireAfterNanos;
+    private final long reloadOnMissAfterNanos;
+
+    private final Object loadLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Catalogue catalogue;
+
+    @Autowired
+    public IdolDatabaseCatalogue(final DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService) {
+        this(databasesService, createRefreshExecutor(), REFRESH_AFTER_SECONDS, EXPIRE_AFTER_SECONDS, RELOAD_ON_MISS_AFTER_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param databasesService  source of the databases
+     * @param refreshExecutor   executor for background refreshes
+     * @param refreshAfter      age after which the catalogue is refreshed in the background
+     * @param expireAfter       age after which requests wait for the catalogue to be reloaded
+     * @param reloadOnMissAfter age after which checking for an unknown database reloads the catalogue
+     * @param timeUnit          unit of the ages
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public IdolDatabaseCatalogue(
+            final DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService,
+            final ExecutorService refreshExecutor,
+            final long refreshAfter,
+            final long expireAfter,
+            final long reloadOnMissAfter,
+            final TimeUnit timeUnit) {
+        this.databasesService = databasesService;
+        this.refreshExecutor = refreshExecutor;
+        refreshAfterNanos = timeUnit.toNanos(refreshAfter);
+        expireAfterNanos = timeUnit.toNanos(expireAfter);
+        reloadOnMissAfterNanos = timeUnit.toNanos(reloadOnMissAfter);
+    }
+
+    private static ExecutorService createRefreshExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("database-catalogue-refresh-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @return the public and internal databases
+     * @throws AciErrorException if there is no current catalogue and it could not be loaded
+     */
+    public Set<Database> getDatabases() throws AciErrorException {
+        return getCatalogue().databases;
+    }
+
+    /**
+     * Checks whether a database exists. If it is not in the catalogue and the catalogue was not loaded recently,
+     * the catalogue is reloaded in case the database has been created since.
+     *
+     * @param name database name
+     * @return true if the database exists
+     * @throws AciErrorException if the catalogue could not be loaded
+     */
+    public boolean contains(final String name) throws AciErrorException {
+        final Catalogue current = getCatalogue();
+
+        if (current.names.contains(name)) {
+            return true;
+        }
+
+        return System.nanoTime() - current.loadedAt >= reloadOnMissAfterNanos && load(current).names.contains(name);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private Catalogue getCatalogue() {
+        final Catalogue current = catalogue;
+
+        if (current == null) {
+            return load(null);
+        }
+
+        final long age = System.nanoTime() - current.loadedAt;
+
+        if (age >= expireAfterNanos) {
+            return load(current);
+        }
+
+        if (age >= refreshAfterNanos) {
+            refreshInBackground(current);
+        }
+
+        return current;
+    }
+
+    /**
+     * Loads the catalogue unless another thread has already replaced the given one
+     */
+    private Catalogue load(final Catalogue stale) {
+        synchronized (loadLock) {
+            final Catalogue current = catalogue;
+
+            if (current != stale) {
+                return current;
+            }
+
+            final IdolDatabasesRequest request = new IdolDatabasesRequest();
+            request.setIncludeInternal(true);
+
+            final Catalogue loaded = new Catalogue(databasesService.getDatabases(request), System.nanoTime());
+            catalogue = loaded;
+            return loaded;
+        }
+    }
+
+    private void refreshInBackground(final Catalogue stale) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load(stale);
+                    } catch (final RuntimeException e) {
+                        // the current catalogue continues to be used until it expires
+                        log.warn("Failed to refresh database catalogue", e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException ignored) {
+            refreshing.set(false);
+        }
+    }
+
+    private static class Catalogue {
+        private final Set<Database> databases;
+        private final Set<String> names;
+        private final long loadedAt;
+
+        private Catalogue(final Set<Database> databases, final long loadedAt) {
+            this.databases = Collections.unmodifiableSet(databases);
+            this.loadedAt = loadedAt;
+
+            final Set<String> names = new HashSet<>(databases.size());
+            for (final Database database : databases) {
+                names.add(database.getName());
+            }
+            this.names = names;
+        }
+    }
+}
@@ -11,4 +11,9 @@ import lombok.Data;
 @Data
 public class IdolDatabasesRequest implements DatabasesRequest {
     private static final long serialVersionUID = 3450911770365743948L;
+
+    /**
+     * Whether internal databases are returned as well as public ones
+     */
+    private boolean includeInternal;
 }
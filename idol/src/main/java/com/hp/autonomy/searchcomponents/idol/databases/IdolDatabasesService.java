@@ -39,13 +39,13 @@ public class IdolDatabasesService implements DatabasesService<Database, IdolData
     public Set<Database> getDatabases(final IdolDatabasesRequest request) throws AciErrorException {
         final GetStatusResponseData responseData = contentAciService.executeAction(new AciParameters(StatusActions.GetStatus.name()), responseProcessor);
         final List<Database> allDatabases = responseData.getDatabases().getDatabase();
-        final Set<Database> publicDatabases = new LinkedHashSet<>();
+        final Set<Database> databases = new LinkedHashSet<>();
         for (final Database database : allDatabases) {
-            if (!database.isInternal()) {
-                publicDatabases.add(database);
+            if (request.isIncludeInternal() || !database.isInternal()) {
+                databases.add(database);
             }
         }
 
-        return publicDatabases;
+        return databases;
     }
 }
@@ -22,6 +22,7 @@ import java.util.List;
 @JsonDeserialize(builder = IdolParametricRequest.Builder.class)
 public class IdolParametricRequest implements ParametricRequest<String> {
     private static final int MAX_VALUES_DEFAULT = 10;
+    private static final int START_DEFAULT = 1;
 
     private static final long serialVersionUID = 3450911770365743948L;
 
@@ -29,6 +30,8 @@ public class IdolParametricRequest implements ParametricRequest<String> {
     private Integer maxValues = MAX_VALUES_DEFAULT;
     private QueryRestrictions<String> queryRestrictions;
     private boolean modified = true;
+    private List<String> valueRestrictions = Collections.emptyList();
+    private Integer start = START_DEFAULT;
 
     @JsonPOJOBuilder(withPrefix = "set")
     @Setter
@@ -39,16 +42,20 @@ public class IdolParametricRequest implements ParametricRequest<String> {
         private Integer maxValues = MAX_VALUES_DEFAULT;
         private QueryRestrictions<String> queryRestrictions;
         private boolean modified = true;
+        private List<String> valueRestrictions = Collections.emptyList();
+        private Integer start = START_DEFAULT;
         
         public Builder(final ParametricRequest<String> parametricRequest) {
             fieldNames = parametricRequest.getFieldNames();
             maxValues = parametricRequest.getMaxValues();
             queryRestrictions = parametricRequest.getQueryRestrictions();
             modified = parametricRequest.isModified();
+            valueRestrictions = parametricRequest.getValueRestrictions();
+            start = parametricRequest.getStart();
         }
 
         public IdolParametricRequest build() {
-            return new IdolParametricRequest(fieldNames, maxValues, queryRestrictions, modified);
+            return new IdolParametricRequest(fieldNames, maxValues, queryRestrictions, modified, valueRestrictions, start);
         }
     }
 }
@@ -9,48 +9,85 @@ import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.services.AciService;
 import com.autonomy.aci.client.services.Processor;
 import com.autonomy.aci.client.util.AciParameters;
+import com.autonomy.aci.client.util.AciURLCodec;
+import com.hp.autonomy.aci.content.fieldtext.FieldText;
+import com.hp.autonomy.aci.content.fieldtext.MATCH;
+import com.google.common.collect.Lists;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
 import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.BucketingParams;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.DatePeriod;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricLevelRequest;
 import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBucket;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBuckets;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeInfo;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.idol.fields.IdolFieldsRequest;
 import com.hp.autonomy.searchcomponents.idol.search.HavenSearchAciParameterHandler;
 import com.hp.autonomy.types.idol.FlatField;
 import com.hp.autonomy.types.idol.GetQueryTagValuesResponseData;
 import com.hp.autonomy.types.idol.RecursiveField;
 import com.hp.autonomy.types.idol.TagValue;
+import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
 import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagCountInfo;
 import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
 import com.hp.autonomy.types.requests.idol.actions.tags.TagActions;
 import com.hp.autonomy.types.requests.idol.actions.tags.params.GetQueryTagValuesParams;
 import com.hp.autonomy.types.requests.idol.actions.tags.params.SortParam;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 
 import javax.xml.bind.JAXBElement;
-import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
-@Service
+@Slf4j
 public class IdolParametricValuesService implements ParametricValuesService<IdolParametricRequest, String, AciErrorException> {
     private static final String VALUE_NODE_NAME = "value";
+    private static final String VALUE_MIN_NODE_NAME = "valuemin";
+    private static final String VALUE_MAX_NODE_NAME = "valuemax";
 
     private final HavenSearchAciParameterHandler parameterHandler;
     private final FieldsService<IdolFieldsRequest, AciErrorException> fieldsService;
     private final AciService contentAciService;
     private final Processor<GetQueryTagValuesResponseData> queryTagValuesResponseProcessor;
+    private final ParallelRequestExecutor parallelRequestExecutor;
+    private final int fieldBatchSize;
 
-    @Autowired
     public IdolParametricValuesService(final HavenSearchAciParameterHandler parameterHandler, final FieldsService<IdolFieldsRequest, AciErrorException> fieldsService, final AciService contentAciService, final AciResponseJaxbProcessorFactory aciResponseProcessorFactory) {
+        this(parameterHandler, fieldsService, contentAciService, aciResponseProcessorFactory, ParallelRequestExecutor.serial(), 0);
+    }
+
+    /**
+     * @param parallelRequestExecutor executor for the batches of fields
+     * @param fieldBatchSize          maximum number of fields to request values for in each GetQueryTagValues action; if
+     *                                zero or less, all fields are requested in a single action
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public IdolParametricValuesService(
+            final HavenSearchAciParameterHandler parameterHandler,
+            final FieldsService<IdolFieldsRequest, AciErrorException> fieldsService,
+            final AciService contentAciService,
+            final AciResponseJaxbProcessorFactory aciResponseProcessorFactory,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            final int fieldBatchSize) {
         this.parameterHandler = parameterHandler;
         this.fieldsService = fieldsService;
         this.contentAciService = contentAciService;
+        this.parallelRequestExecutor = parallelRequestExecutor;
+        this.fieldBatchSize = fieldBatchSize;
         queryTagValuesResponseProcessor = aciResponseProcessorFactory.createAciResponseProcessor(GetQueryTagValuesResponseData.class);
     }
 
     @Override
     public Set<QueryTagInfo> getAllParametricValues(final IdolParametricRequest parametricRequest) throws AciErrorException {
-        final Collection<String> fieldNames = new HashSet<>();
+        // keep the requested order so that the results of each batch are merged in a predictable order
+        final Collection<String> fieldNames = new LinkedHashSet<>();
         fieldNames.addAll(parametricRequest.getFieldNames());
         if (fieldNames.isEmpty()) {
             fieldNames.addAll(fieldsService.getParametricFields(new IdolFieldsRequest.Builder().build()));
@@ -60,34 +97,42 @@ public class IdolParametricValuesService implements ParametricValuesService<Idol
         if (fieldNames.isEmpty()) {
             results = Collections.emptySet();
         } else {
-            final AciParameters aciParameters = new AciParameters(TagActions.GetQueryTagValues.name());
-            parameterHandler.addSearchRestrictions(aciParameters, parametricRequest.getQueryRestrictions());
+            // Parameters are built here rather than on the pool threads as they depend on the current user's security info
+            final AciParameters aciParameters = createQueryTagValuesParameters(parametricRequest);
+            aciParameters.add(GetQueryTagValuesParams.MaxValues.name(), parametricRequest.getMaxValues());
+            aciParameters.add(GetQueryTagValuesParams.Sort.name(), SortParam.DocumentCount.name());
 
-            if (parametricRequest.isModified()) {
-                parameterHandler.addQmsParameters(aciParameters, parametricRequest.getQueryRestrictions());
+            // filter and page the values of each field in IDOL rather than returning every value to the caller
+            if (!parametricRequest.getValueRestrictions().isEmpty()) {
+                aciParameters.add(GetQueryTagValuesParams.RestrictedValues.name(), joinRestrictedValues(parametricRequest.getValueRestrictions()));
             }
 
-            aciParameters.add(GetQueryTagValuesParams.DocumentCount.name(), true);
-            aciParameters.add(GetQueryTagValuesParams.MaxValues.name(), parametricRequest.getMaxValues());
-            aciParameters.add(GetQueryTagValuesParams.FieldName.name(), StringUtils.join(fieldNames.toArray(), ','));
-            aciParameters.add(GetQueryTagValuesParams.Sort.name(), SortParam.DocumentCount.name());
+            if (parametricRequest.getStart() != null) {
+                aciParameters.add(GetQueryTagValuesParams.Start.name(), parametricRequest.getStart());
+            }
 
-            final GetQueryTagValuesResponseData responseData = contentAciService.executeAction(aciParameters, queryTagValuesResponseProcessor);
-            final List<FlatField> fields = responseData.getField();
-            results = new LinkedHashSet<>(fields.size());
-            for (final FlatField field : fields) {
-                final List<JAXBElement<? extends Serializable>> valueElements = field.getValueOrSubvalueOrValues();
-                final LinkedHashSet<QueryTagCountInfo> values = new LinkedHashSet<>(valueElements.size());
-                for (final JAXBElement<?> element : valueElements) {
-                    if (VALUE_NODE_NAME.equals(element.getName().getLocalPart())) {
-                        final TagValue tagValue = (TagValue) element.getValue();
-                        values.add(new QueryTagCountInfo(tagValue.getValue(), tagValue.getCount()));
+            final List<String> fieldNameList = new ArrayList<>(fieldNames);
+            final List<List<String>> batches = fieldBatchSize > 0 ? Lists.partition(fieldNameList, fieldBatchSize) : Collections.singletonList(fieldNameList);
+            final List<Callable<Set<QueryTagInfo>>> batchRequests = new ArrayList<>(batches.size());
+
+            for (final List<String> batch : batches) {
+                final AciParameters batchParameters = new AciParameters(aciParameters);
+                batchParameters.add(GetQueryTagValuesParams.FieldName.name(), StringUtils.join(batch, ','));
+
+                batchRequests.add(new Callable<Set<QueryTagInfo>>() {
+                    @Override
+                    public Set<QueryTagInfo> call() {
+                        final long start = System.nanoTime();
+                        final Set<QueryTagInfo> batchResults = parseQueryTagValues(contentAciService.executeAction(batchParameters, queryTagValuesResponseProcessor));
+                        log.debug("GetQueryTagValues for {} fields took {} ms", batch.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        return batchResults;
                     }
-                }
-                final String fieldName = getFieldNameFromPath(field.getName().get(0));
-                if (!values.isEmpty()) {
-                    results.add(new QueryTagInfo(fieldName, values));
-                }
+                });
+            }
+
+            results = new LinkedHashSet<>();
+            for (final Set<QueryTagInfo> batchResults : parallelRequestExecutor.invokeAll(batchRequests)) {
+                results.addAll(batchResults);
             }
         }
 
@@ -126,6 +171,225 @@ public class IdolParametricValuesService implements ParametricValuesService<Idol
         return results;
     }
 
+    @Override
+    public Set<QueryTagInfo> getDependentParametricLevel(final IdolParametricRequest parametricRequest, final ParametricLevelRequest levelRequest) throws AciErrorException {
+        final List<String> fieldNames = parametricRequest.getFieldNames();
+        final List<String> parentValues = levelRequest.getParentValues();
+        final int depth = levelRequest.getDepth();
+
+        if (depth >= fieldNames.size()) {
+            return Collections.emptySet();
+        }
+
+        final AciParameters aciParameters = createQueryTagValuesParameters(parametricRequest);
+
+        if (depth > 0) {
+            // restrict to documents with the expanded value for each level above the requested one
+            FieldText parentFieldText = new MATCH(fieldNames.get(0), parentValues.get(0));
+            for (int i = 1; i < depth; i++) {
+                parentFieldText = parentFieldText.AND(new MATCH(fieldNames.get(i), parentValues.get(i)));
+            }
+
+            final String fieldText = aciParameters.get(QueryParams.FieldText.name());
+            aciParameters.put(QueryParams.FieldText.name(), StringUtils.isBlank(fieldText) ? parentFieldText.toString() : '(' + fieldText + ") AND " + parentFieldText);
+        }
+
+        aciParameters.add(GetQueryTagValuesParams.FieldName.name(), fieldNames.get(depth));
+        aciParameters.add(GetQueryTagValuesParams.MaxValues.name(), levelRequest.getMaxValues(parametricRequest.getMaxValues()));
+        aciParameters.add(GetQueryTagValuesParams.Sort.name(), SortParam.DocumentCount.name());
+
+        return parseQueryTagValues(contentAciService.executeAction(aciParameters, queryTagValuesResponseProcessor));
+    }
+
+    @Override
+    public List<RangeInfo> getParametricRanges(final IdolParametricRequest parametricRequest, final BucketingParams bucketingParams) throws AciErrorException {
+        if (parametricRequest.getFieldNames().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return bucketingParams.getDatePeriod() == null
+                ? getNumericRanges(parametricRequest, bucketingParams)
+                : getDatePeriods(parametricRequest, bucketingParams.getDatePeriod());
+    }
+
+    private List<RangeInfo> getNumericRanges(final IdolParametricRequest parametricRequest, final BucketingParams bucketingParams) {
+        final Map<String, double[]> boundariesByField = new LinkedHashMap<>();
+
+        if (bucketingParams.hasFixedBounds()) {
+            final double[] boundaries = RangeBuckets.getBoundaries(bucketingParams.getMin(), bucketingParams.getMax(), bucketingParams.getNumberOfBuckets());
+
+            for (final String fieldName : parametricRequest.getFieldNames()) {
+                boundariesByField.put(fieldName, boundaries);
+            }
+        } else {
+            // find the bounds of the values matching the query without fetching the values themselves
+            final AciParameters aciParameters = createQueryTagValuesParameters(parametricRequest);
+            aciParameters.add(GetQueryTagValuesParams.FieldName.name(), StringUtils.join(parametricRequest.getFieldNames(), ','));
+            aciParameters.add(GetQueryTagValuesParams.ValueDetails.name(), true);
+            aciParameters.add(GetQueryTagValuesParams.MaxValues.name(), 1);
+
+            final Map<String, String> fieldNamesByName = new HashMap<>();
+            for (final String fieldName : parametricRequest.getFieldNames()) {
+                fieldNamesByName.put(getFieldNameFromPath(fieldName), fieldName);
+            }
+
+            final GetQueryTagValuesResponseData responseData = contentAciService.executeAction(aciParameters, queryTagValuesResponseProcessor);
+            for (final FlatField field : responseData.getField()) {
+                final String fieldName = fieldNamesByName.get(getFieldNameFromPath(field.getName().get(0)));
+                Float min = null;
+                Float max = null;
+
+                for (final JAXBElement<?> element : field.getValueOrSubvalueOrValues()) {
+                    final String nodeName = element.getName().getLocalPart();
+                    if (VALUE_MIN_NODE_NAME.equals(nodeName)) {
+                        min = (Float) element.getValue();
+                    } else if (VALUE_MAX_NODE_NAME.equals(nodeName)) {
+                        max = (Float) element.getValue();
+                    }
+                }
+
+                if (fieldName != null && min != null && max != null) {
+                    // the bounds are rounded to floats, so widen them by one float so that rounding cannot exclude
+                    // the lowest or highest values
+                    boundariesByField.put(fieldName, RangeBuckets.getBoundaries(
+                            bucketingParams.getMin() == null ? Math.nextAfter(min, Double.NEGATIVE_INFINITY) : bucketingParams.getMin(),
+                            bucketingParams.getMax() == null ? Math.nextUp(max) : bucketingParams.getMax(),
+                            bucketingParams.getNumberOfBuckets()
+                    ));
+                }
+            }
+        }
+
+        if (boundariesByField.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Collection<String> ranges = new ArrayList<>(boundariesByField.size());
+        for (final Map.Entry<String, double[]> entry : boundariesByField.entrySet()) {
+            final Collection<String> boundaries = new ArrayList<>(entry.getValue().length);
+            for (final double boundary : entry.getValue()) {
+                boundaries.add(RangeBuckets.formatBoundary(boundary));
+            }
+
+            ranges.add('{' + StringUtils.join(boundaries, ',') + '}' + entry.getKey());
+        }
+
+        final AciParameters aciParameters = createQueryTagValuesParameters(parametricRequest);
+        aciParameters.add(GetQueryTagValuesParams.FieldName.name(), StringUtils.join(boundariesByField.keySet(), ','));
+        aciParameters.add(GetQueryTagValuesParams.Ranges.name(), StringUtils.join(ranges, '+'));
+
+        final GetQueryTagValuesResponseData responseData = contentAciService.executeAction(aciParameters, queryTagValuesResponseProcessor);
+        final List<RangeInfo> results = new ArrayList<>(responseData.getField().size());
+
+        for (final FlatField field : responseData.getField()) {
+            final List<RangeBucket> buckets = new ArrayList<>();
+
+            for (final TagValue tagValue : getTagValues(field)) {
+                // range values are returned as the bounds of the range separated by a comma
+                final String[] bounds = StringUtils.split(tagValue.getValue(), ',');
+
+                if (bounds.length == 2 && NumberUtils.isNumber(bounds[0]) && NumberUtils.isNumber(bounds[1])) {
+                    buckets.add(new RangeBucket(tagValue.getValue(), Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), tagValue.getCount()));
+                }
+            }
+
+            addRangeInfo(results, field, buckets);
+        }
+
+        return results;
+    }
+
+    private List<RangeInfo> getDatePeriods(final IdolParametricRequest parametricRequest, final DatePeriod datePeriod) {
+        final AciParameters aciParameters = createQueryTagValuesParameters(parametricRequest);
+        aciParameters.add(GetQueryTagValuesParams.FieldName.name(), StringUtils.join(parametricRequest.getFieldNames(), ','));
+        aciParameters.add(GetQueryTagValuesParams.DatePeriod.name(), datePeriod.name().toLowerCase(Locale.ENGLISH));
+
+        final GetQueryTagValuesResponseData responseData = contentAciService.executeAction(aciParameters, queryTagValuesResponseProcessor);
+        final List<RangeInfo> results = new ArrayList<>(responseData.getField().size());
+
+        for (final FlatField field : responseData.getField()) {
+            final List<RangeBucket> buckets = new ArrayList<>();
+
+            for (final TagValue tagValue : getTagValues(field)) {
+                // the date attribute holds the start of the period in seconds since the epoch
+                if (NumberUtils.isDigits(tagValue.getDate())) {
+                    final long start = Long.parseLong(tagValue.getDate());
+                    final long end = new DateTime(TimeUnit.SECONDS.toMillis(start), DateTimeZone.UTC).plus(datePeriod.getPeriod()).getMillis() / 1000L;
+                    buckets.add(new RangeBucket(tagValue.getValue(), start, end, tagValue.getCount()));
+                }
+            }
+
+            addRangeInfo(results, field, buckets);
+        }
+
+        return results;
+    }
+
+    private void addRangeInfo(final Collection<RangeInfo> results, final FlatField field, final List<RangeBucket> buckets) {
+        if (!buckets.isEmpty()) {
+            Collections.sort(buckets, new Comparator<RangeBucket>() {
+                @Override
+                public int compare(final RangeBucket bucket1, final RangeBucket bucket2) {
+                    return Double.compare(bucket1.getMin(), bucket2.getMin());
+                }
+            });
+
+            results.add(new RangeInfo(getFieldNameFromPath(field.getName().get(0)), buckets));
+        }
+    }
+
+    private AciParameters createQueryTagValuesParameters(final IdolParametricRequest parametricRequest) {
+        final AciParameters aciParameters = new AciParameters(TagActions.GetQueryTagValues.name());
+        parameterHandler.addSearchRestrictions(aciParameters, parametricRequest.getQueryRestrictions());
+
+        if (parametricRequest.isModified()) {
+            parameterHandler.addQmsParameters(aciParameters, parametricRequest.getQueryRestrictions());
+        }
+
+        aciParameters.add(GetQueryTagValuesParams.DocumentCount.name(), true);
+        return aciParameters;
+    }
+
+    // IDOL splits the list on commas and then URL decodes each value, as for the values of field text specifiers
+    private String joinRestrictedValues(final Collection<String> valueRestrictions) {
+        final AciURLCodec codec = AciURLCodec.getInstance();
+        final Collection<String> encodedValues = new ArrayList<>(valueRestrictions.size());
+        for (final String valueRestriction : valueRestrictions) {
+            encodedValues.add(codec.encode(valueRestriction));
+        }
+
+        return StringUtils.join(encodedValues, ',');
+    }
+
+    private List<TagValue> getTagValues(final FlatField field) {
+        final List<TagValue> tagValues = new ArrayList<>();
+        for (final JAXBElement<?> element : field.getValueOrSubvalueOrValues()) {
+            if (VALUE_NODE_NAME.equals(element.getName().getLocalPart())) {
+                tagValues.add((TagValue) element.getValue());
+            }
+        }
+
+        return tagValues;
+    }
+
+    private Set<QueryTagInfo> parseQueryTagValues(final GetQueryTagValuesResponseData responseData) {
+        final List<FlatField> fields = responseData.getField();
+        final Set<QueryTagInfo> results = new LinkedHashSet<>(fields.size());
+        for (final FlatField field : fields) {
+            final List<TagValue> tagValues = getTagValues(field);
+            final LinkedHashSet<QueryTagCountInfo> values = new LinkedHashSet<>(tagValues.size());
+            for (final TagValue tagValue : tagValues) {
+                values.add(new QueryTagCountInfo(tagValue.getValue(), tagValue.getCount()));
+            }
+            final String fieldName = getFieldNameFromPath(field.getName().get(0));
+            if (!values.isEmpty()) {
+                results.add(new QueryTagInfo(fieldName, values));
+            }
+        }
+
+        return results;
+    }
+
     private String getFieldNameFromPath(final String value) {
         return value.contains("/") ? value.substring(value.lastIndexOf('/') + 1) : value;
     }
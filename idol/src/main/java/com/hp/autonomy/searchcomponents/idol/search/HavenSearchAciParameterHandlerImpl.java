@@ -34,6 +34,8 @@ import com.hp.autonomy.types.requests.qms.actions.query.params.QmsQueryParams;
 import org.joda.time.ReadableInstant;
 import org.joda.time.format.DateTimeFormat;
 
+import java.util.List;
+
 public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParameterHandler {
     private static final String IDOL_DATE_PARAMETER_FORMAT = "HH:mm:ss dd/MM/yyyy";
     private static final String GET_CONTENT_QUERY_TEXT = "*";
@@ -45,6 +47,9 @@ public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParamet
 
     private final Escaper urlFragmentEscaper = UrlEscapers.urlFragmentEscaper();
 
+    // the print fields only change with the configuration, so their parameter value is reused until then
+    private volatile PrintFieldsParameter printFieldsParameter;
+
     public HavenSearchAciParameterHandlerImpl(final ConfigService<? extends IdolSearchCapable> configService, final LanguagesService languagesService, final DocumentFieldsService documentFieldsService, final AuthenticationInformationRetriever<CommunityPrincipal> authenticationInformationRetriever) {
         this.configService = configService;
         this.languagesService = languagesService;
@@ -83,7 +88,7 @@ public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParamet
         aciParameters.add(QueryParams.Predict.name(), false);
         aciParameters.add(QueryParams.Sort.name(), searchRequest.getSort());
         aciParameters.add(QueryParams.Print.name(), PrintParam.Fields);
-        aciParameters.add(QueryParams.PrintFields.name(), new PrintFields(documentFieldsService.getPrintFields()));
+        aciParameters.add(QueryParams.PrintFields.name(), getPrintFieldsParameter());
         aciParameters.add(QueryParams.TotalResults.name(), true);
         aciParameters.add(QueryParams.XMLMeta.name(), true);
 
@@ -102,11 +107,12 @@ public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParamet
         aciParameters.add(QueryParams.Summary.name(), SummaryParam.Concept);
         aciParameters.add(QueryParams.Combine.name(), CombineParam.Simple);
         aciParameters.add(QueryParams.Text.name(), GET_CONTENT_QUERY_TEXT);
-        aciParameters.add(QueryParams.MaxResults.name(), 1);
+        // Combine=Simple means there is at most one result per reference
+        aciParameters.add(QueryParams.MaxResults.name(), Math.max(1, indexAndReferences.getReferences().size()));
         aciParameters.add(QueryParams.AnyLanguage.name(), true);
         aciParameters.add(QueryParams.Print.name(), print);
         if (print == PrintParam.Fields) {
-            aciParameters.add(QueryParams.PrintFields.name(), new PrintFields(documentFieldsService.getPrintFields()));
+            aciParameters.add(QueryParams.PrintFields.name(), getPrintFieldsParameter());
         }
         aciParameters.add(QueryParams.XMLMeta.name(), true);
 
@@ -143,6 +149,18 @@ public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParamet
         aciParameters.add(QmsQueryParams.ExpandQuery.name(), configService.getConfig().getQueryManipulation().getExpandQuery());
     }
 
+    private String getPrintFieldsParameter() {
+        final List<String> printFields = documentFieldsService.getPrintFields();
+
+        PrintFieldsParameter parameter = printFieldsParameter;
+        if (parameter == null || parameter.printFields != printFields) {
+            parameter = new PrintFieldsParameter(printFields);
+            printFieldsParameter = parameter;
+        }
+
+        return parameter.value;
+    }
+
     private String getSecurityInfo() {
         return authenticationInformationRetriever.getPrincipal() != null && authenticationInformationRetriever.getPrincipal().getSecurityInfo() != null
                 ? urlFragmentEscaper.escape(authenticationInformationRetriever.getPrincipal().getSecurityInfo())
@@ -152,4 +170,14 @@ public class HavenSearchAciParameterHandlerImpl implements HavenSearchAciParamet
     protected String formatDate(final ReadableInstant date) {
         return date == null ? null : DateTimeFormat.forPattern(IDOL_DATE_PARAMETER_FORMAT).print(date);
     }
+
+    private static class PrintFieldsParameter {
+        private final List<String> printFields;
+        private final String value;
+
+        private PrintFieldsParameter(final List<String> printFields) {
+            this.printFields = printFields;
+            value = new PrintFields(printFields).toString();
+        }
+    }
 }
@@ -7,34 +7,58 @@ package com.hp.autonomy.searchcomponents.idol.search;
 
 import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.services.AciService;
+import com.autonomy.aci.client.services.AciServiceException;
 import com.autonomy.aci.client.services.Processor;
+import com.autonomy.aci.client.services.ProcessorException;
 import com.autonomy.aci.client.util.AciParameters;
+import com.hp.autonomy.aci.content.database.Databases;
 import com.hp.autonomy.aci.content.identifier.reference.Reference;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
-import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsIterator;
+import com.hp.autonomy.searchcomponents.core.search.ExportingDocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.GetContentReferences;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequest;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequestIndex;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
 import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
 import com.hp.autonomy.searchcomponents.core.search.StateTokenAndResultCount;
 import com.hp.autonomy.searchcomponents.core.search.SuggestRequest;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
 import com.hp.autonomy.searchcomponents.idol.configuration.IdolSearchCapable;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabaseCatalogue;
 import com.hp.autonomy.types.idol.Hit;
+import com.hp.autonomy.types.idol.QsElement;
 import com.hp.autonomy.types.idol.QueryResponseData;
 import com.hp.autonomy.types.idol.SuggestResponseData;
 import com.hp.autonomy.types.requests.Documents;
+import com.hp.autonomy.types.requests.Warnings;
 import com.hp.autonomy.types.requests.idol.actions.query.QueryActions;
 import com.hp.autonomy.types.requests.idol.actions.query.params.PrintParam;
 import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
 import com.hp.autonomy.types.requests.idol.actions.query.params.SuggestParams;
 import com.hp.autonomy.types.requests.qms.actions.query.params.QmsQueryParams;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IdolDocumentService implements ExportingDocumentsService<String, IdolSearchResult, AciErrorException> {
+    // Bounds on the references sent in a single request, so the request stays within url length limits
+    private static final int GET_CONTENT_MAX_REFERENCES = 100;
+    private static final int GET_CONTENT_MAX_REFERENCES_LENGTH = 4000;
 
-public class IdolDocumentService implements DocumentsService<String, IdolSearchResult, AciErrorException> {
     protected final ConfigService<? extends IdolSearchCapable> configService;
     protected final HavenSearchAciParameterHandler parameterHandler;
     protected final QueryResponseParser queryResponseParser;
@@ -42,6 +66,10 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
     protected final AciService qmsAciService;
     protected final Processor<QueryResponseData> queryResponseProcessor;
     protected final Processor<SuggestResponseData> suggestResponseProcessor;
+    protected final ParallelRequestExecutor parallelRequestExecutor;
+    protected final Processor<QueryResults> queryResultsProcessor;
+    protected final IdolCompiledConfigService compiledConfigService;
+    protected final IdolDatabaseCatalogue databaseCatalogue;
 
     @SuppressWarnings("ConstructorWithTooManyParameters")
     public IdolDocumentService(
@@ -51,11 +79,46 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
             final AciService contentAciService,
             final AciService qmsAciService,
             final AciResponseJaxbProcessorFactory aciResponseProcessorFactory) {
+        this(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, ParallelRequestExecutor.serial());
+    }
+
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public IdolDocumentService(
+            final ConfigService<? extends IdolSearchCapable> configService,
+            final HavenSearchAciParameterHandler parameterHandler,
+            final QueryResponseParser queryResponseParser,
+            final AciService contentAciService,
+            final AciService qmsAciService,
+            final AciResponseJaxbProcessorFactory aciResponseProcessorFactory,
+            final ParallelRequestExecutor parallelRequestExecutor) {
+        this(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, parallelRequestExecutor, null, new IdolCompiledConfigService(configService), null);
+    }
+
+    /**
+     * @param queryResultsProcessor if not null, used to read query results instead of the JAXB processor
+     * @param databaseCatalogue     if not null, used to remove databases which do not exist from queries before they are run
+     */
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public IdolDocumentService(
+            final ConfigService<? extends IdolSearchCapable> configService,
+            final HavenSearchAciParameterHandler parameterHandler,
+            final QueryResponseParser queryResponseParser,
+            final AciService contentAciService,
+            final AciService qmsAciService,
+            final AciResponseJaxbProcessorFactory aciResponseProcessorFactory,
+            final ParallelRequestExecutor parallelRequestExecutor,
+            final Processor<QueryResults> queryResultsProcessor,
+            final IdolCompiledConfigService compiledConfigService,
+            final IdolDatabaseCatalogue databaseCatalogue) {
         this.configService = configService;
         this.parameterHandler = parameterHandler;
         this.queryResponseParser = queryResponseParser;
         this.contentAciService = contentAciService;
         this.qmsAciService = qmsAciService;
+        this.parallelRequestExecutor = parallelRequestExecutor;
+        this.queryResultsProcessor = queryResultsProcessor;
+        this.compiledConfigService = compiledConfigService;
+        this.databaseCatalogue = databaseCatalogue;
 
         queryResponseProcessor = aciResponseProcessorFactory.createAciResponseProcessor(QueryResponseData.class);
         suggestResponseProcessor = aciResponseProcessorFactory.createAciResponseProcessor(SuggestResponseData.class);
@@ -69,7 +132,7 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
     }
 
     private boolean qmsEnabled() {
-        return configService.getConfig().getQueryManipulation().isEnabled();
+        return compiledConfigService.getCompiledConfig().isQmsEnabled();
     }
 
     @Override
@@ -92,17 +155,48 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
 
     @Override
     public List<IdolSearchResult> getDocumentContent(final GetContentRequest<String> request) throws AciErrorException {
-        final List<IdolSearchResult> results = new ArrayList<>(request.getIndexesAndReferences().size());
+        final List<Callable<List<IdolSearchResult>>> chunkRequests = new ArrayList<>(request.getIndexesAndReferences().size());
+        final List<Integer> chunksPerIndex = new ArrayList<>(request.getIndexesAndReferences().size());
 
         for (final GetContentRequestIndex<String> indexAndReferences : request.getIndexesAndReferences()) {
+            final List<GetContentRequestIndex<String>> chunks = GetContentReferences.chunk(indexAndReferences, GET_CONTENT_MAX_REFERENCES, GET_CONTENT_MAX_REFERENCES_LENGTH);
+            chunksPerIndex.add(chunks.size());
 
-            // We use Query and not GetContent here so we can use Combine=simple to ensure returned references are unique
-            final AciParameters aciParameters = new AciParameters(QueryActions.Query.name());
-            parameterHandler.addGetDocumentOutputParameters(aciParameters, indexAndReferences, PrintParam.fromValue(request.getPrint()));
+            for (final GetContentRequestIndex<String> chunk : chunks) {
+                // We use Query and not GetContent here so we can use Combine=simple to ensure returned references are unique
+                // Parameters are built here rather than on the pool thread as they depend on the current user's security info
+                final AciParameters aciParameters = new AciParameters(QueryActions.Query.name());
+                parameterHandler.addGetDocumentOutputParameters(aciParameters, chunk, PrintParam.fromValue(request.getPrint()));
 
-            final QueryResponseData responseData = contentAciService.executeAction(aciParameters, queryResponseProcessor);
-            final List<Hit> hits = responseData.getHit();
-            results.addAll(queryResponseParser.parseQueryHits(hits));
+                chunkRequests.add(new Callable<List<IdolSearchResult>>() {
+                    @Override
+                    public List<IdolSearchResult> call() {
+                        if (queryResultsProcessor != null) {
+                            return contentAciService.executeAction(aciParameters, queryResultsProcessor).getDocuments();
+                        }
+
+                        final QueryResponseData responseData = contentAciService.executeAction(aciParameters, queryResponseProcessor);
+                        final List<Hit> hits = responseData.getHit();
+                        return queryResponseParser.parseQueryHits(hits);
+                    }
+                });
+            }
+        }
+
+        final Iterator<List<IdolSearchResult>> chunkResults = parallelRequestExecutor.invokeAll(chunkRequests).iterator();
+        final Iterator<Integer> chunkCounts = chunksPerIndex.iterator();
+        final List<IdolSearchResult> results = new ArrayList<>();
+
+        for (final GetContentRequestIndex<String> indexAndReferences : request.getIndexesAndReferences()) {
+            final List<IdolSearchResult> indexResults = new ArrayList<>();
+
+            for (int i = chunkCounts.next(); i > 0; i--) {
+                indexResults.addAll(chunkResults.next());
+            }
+
+            // IDOL returns matching documents in relevance order, not in the order of the references
+            GetContentReferences.sortByReferenceOrder(indexAndReferences.getReferences(), indexResults);
+            results.addAll(indexResults);
         }
 
         return results;
@@ -128,6 +222,74 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
         return new StateTokenAndResultCount(responseData.getState(), responseData.getTotalhits());
     }
 
+    /**
+     * Iterates over up to max results documents of a query. The results are stored as a state token first, as for
+     * {@link #exportDocuments}.
+     */
+    @Override
+    public DocumentsIterator<IdolSearchResult> iterateDocuments(final SearchRequest<String> searchRequest, final int windowSize) throws AciErrorException {
+        return iterateDocuments(searchRequest, getStateTokenAndResultCount(searchRequest.getQueryRestrictions(), searchRequest.getMaxResults()), windowSize);
+    }
+
+    /**
+     * Iterates over the documents stored in a state token, e.g. one from {@link #getStateTokenAndResultCount}. The next
+     * window of documents is requested on the parallel request executor while the current one is read.
+     *
+     * @param searchRequest            the query the state token was stored for, giving the databases and output options;
+     *                                 its start is ignored and its max results bounds the documents returned
+     * @param stateTokenAndResultCount the stored state
+     * @param windowSize               the number of documents to request at a time
+     * @return an iterator which should be closed if it is abandoned before the end
+     */
+    public DocumentsIterator<IdolSearchResult> iterateDocuments(final SearchRequest<String> searchRequest, final StateTokenAndResultCount stateTokenAndResultCount, final int windowSize) {
+        return new DocumentsIterator<>(new IdolStateTokenWindowSource(this, searchRequest, stateTokenAndResultCount, windowSize), parallelRequestExecutor);
+    }
+
+    /**
+     * Writes up to max results documents of a query to the given sink. The results are stored as a state token first,
+     * so that the export is a consistent snapshot which IDOL does not need to evaluate again for each window. Each
+     * window is written to the sink as its response is read, so only one document is held in memory at a time and a
+     * slow sink slows down reading rather than documents accumulating.
+     *
+     * @param searchRequest the query to export
+     * @param windowSize    the number of documents to request at a time
+     * @param sink          receives each document in turn
+     * @return the number of documents written
+     * @throws IOException if the sink fails
+     */
+    @Override
+    public int exportDocuments(final SearchRequest<String> searchRequest, final int windowSize, final DocumentSink<? super IdolSearchResult> sink) throws IOException {
+        final StateTokenAndResultCount stateTokenAndResultCount = getStateTokenAndResultCount(searchRequest.getQueryRestrictions(), searchRequest.getMaxResults());
+        final IdolStateTokenWindowSource windowSource = new IdolStateTokenWindowSource(this, searchRequest, stateTokenAndResultCount, windowSize);
+        final CountingDocumentSink countingSink = new CountingDocumentSink(sink);
+
+        for (SearchRequest<String> windowRequest = windowSource.nextWindowRequest(); windowRequest != null; windowRequest = windowSource.nextWindowRequest()) {
+            final int previousCount = countingSink.count;
+            writeQueryResults(windowRequest, countingSink);
+            windowSource.windowRead(countingSink.count - previousCount);
+        }
+
+        return countingSink.count;
+    }
+
+    @Override
+    public void writeQueryResults(final SearchRequest<String> searchRequest, final DocumentSink<? super IdolSearchResult> sink) throws IOException {
+        final AciParameters aciParameters = new AciParameters(QueryActions.Query.name());
+        parameterHandler.addSearchRestrictions(aciParameters, searchRequest.getQueryRestrictions());
+        parameterHandler.addSearchOutputParameters(aciParameters, searchRequest);
+        removeInvalidDatabases(aciParameters, searchRequest.getQueryRestrictions().getDatabases());
+
+        try {
+            contentAciService.executeAction(aciParameters, new QueryResultsProcessor(compiledConfigService, sink));
+        } catch (final ProcessorException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
     private Documents<IdolSearchResult> queryTextIndex(final AciService aciService, final SearchRequest<String> searchRequest, final boolean promotions) {
         final AciParameters aciParameters = new AciParameters(QueryActions.Query.name());
 
@@ -145,14 +307,135 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
             aciParameters.add(QmsQueryParams.Promotions.name(), true);
         }
 
-        final QueryResponseData responseData = executeQuery(aciService, aciParameters);
+        final Set<String> invalidDatabases = removeInvalidDatabases(aciParameters, searchRequest.getQueryRestrictions().getDatabases());
+        final Documents<IdolSearchResult> documents = !promotions && isQuerySummaryRequested(searchRequest)
+                ? queryTextIndexWithQuerySummary(aciService, (IdolSearchRequest) searchRequest, aciParameters)
+                : queryTextIndex(aciService, searchRequest, aciParameters);
+        return invalidDatabases.isEmpty() ? documents : addInvalidDatabases(documents, invalidDatabases);
+    }
+
+    private boolean isQuerySummaryRequested(final SearchRequest<String> searchRequest) {
+        return searchRequest instanceof IdolSearchRequest && ((IdolSearchRequest) searchRequest).isQuerySummary();
+    }
 
-        return queryResponseParser.parseQueryResults(searchRequest, aciParameters, responseData, new QueryExecutor() {
+    /**
+     * Runs a query which also returns the related concepts of its results. These are requested as part of the query
+     * when it goes directly to the content engine and is read with JAXB. Otherwise, i.e. when the query goes through
+     * QMS or is read by {@link QueryResultsProcessor}, they are requested by a separate query run in parallel.
+     */
+    private IdolDocuments queryTextIndexWithQuerySummary(final AciService aciService, final IdolSearchRequest searchRequest, final AciParameters aciParameters) {
+        if (aciService == contentAciService && queryResultsProcessor == null) {
+            aciParameters.add(QueryParams.QuerySummary.name(), true);
+            aciParameters.add(QueryParams.QuerySummaryLength.name(), searchRequest.getQuerySummaryLength());
+
+            // the query may be run again with corrected spelling, so keep the related concepts from the last response
+            final AtomicReference<List<QsElement>> querySummaryElements = new AtomicReference<>();
+            final QueryExecutor queryExecutor = new QueryExecutor() {
+                @Override
+                public QueryResponseData execute(final AciParameters parameters) {
+                    final QueryResponseData responseData = executeQuery(aciService, parameters);
+                    querySummaryElements.set(IdolRelatedConceptsService.getQuerySummaryElements(responseData));
+                    return responseData;
+                }
+            };
+
+            // speculative auto correct is not used as its spell check query would also return related concepts
+            final Documents<IdolSearchResult> documents = queryResponseParser.parseQueryResults(searchRequest, aciParameters, queryExecutor.execute(aciParameters), queryExecutor);
+            return new IdolDocuments(documents, querySummaryElements.get());
+        }
+
+        final AciParameters querySummaryParameters = new AciParameters(QueryActions.Query.name());
+        parameterHandler.addSearchRestrictions(querySummaryParameters, searchRequest.getQueryRestrictions());
+        IdolRelatedConceptsService.addQuerySummaryParameters(querySummaryParameters, searchRequest.getQuerySummaryLength());
+
+        final Future<QueryResponseData> querySummary = parallelRequestExecutor.submit(new Callable<QueryResponseData>() {
+            @Override
+            public QueryResponseData call() {
+                return executeQuery(contentAciService, querySummaryParameters);
+            }
+        });
+
+        try {
+            final Documents<IdolSearchResult> documents = queryTextIndex(aciService, searchRequest, aciParameters);
+            return new IdolDocuments(documents, IdolRelatedConceptsService.getQuerySummaryElements(parallelRequestExecutor.get(querySummary)));
+        } finally {
+            querySummary.cancel(true);
+        }
+    }
+
+    private Documents<IdolSearchResult> queryTextIndex(final AciService aciService, final SearchRequest<String> searchRequest, final AciParameters aciParameters) {
+        if (queryResultsProcessor != null) {
+            return queryResponseParser.parseQueryResults(searchRequest, aciParameters, aciService.executeAction(aciParameters, queryResultsProcessor), new QueryResultsExecutor() {
+                @Override
+                public QueryResults execute(final AciParameters parameters) {
+                    return aciService.executeAction(parameters, queryResultsProcessor);
+                }
+            });
+        }
+
+        final QueryExecutor queryExecutor = new QueryExecutor() {
             @Override
             public QueryResponseData execute(final AciParameters parameters) {
                 return executeQuery(aciService, parameters);
             }
-        });
+        };
+
+        if (searchRequest.isAutoCorrect()) {
+            final Documents<IdolSearchResult> documents = queryResponseParser.parseSpeculativeQueryResults(searchRequest, aciParameters, queryExecutor);
+
+            if (documents != null) {
+                return documents;
+            }
+        }
+
+        final QueryResponseData responseData = executeQuery(aciService, aciParameters);
+
+        return queryResponseParser.parseQueryResults(searchRequest, aciParameters, responseData, queryExecutor);
+    }
+
+    /**
+     * Removes databases which are not in the catalogue from the query, so IDOL does not need to
+     * report them and the query does not need to be run again. If none of the databases exist, the query is left unchanged.
+     *
+     * @return the removed databases
+     */
+    private Set<String> removeInvalidDatabases(final AciParameters aciParameters, final Collection<String> databases) {
+        if (databaseCatalogue == null || databases.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> validDatabases = new LinkedHashSet<>();
+        final Set<String> invalidDatabases = new LinkedHashSet<>();
+
+        try {
+            for (final String database : databases) {
+                if (databaseCatalogue.contains(database)) {
+                    validDatabases.add(database);
+                } else {
+                    invalidDatabases.add(database);
+                }
+            }
+        } catch (final AciServiceException ignored) {
+            // without the catalogue, IDOL reports any invalid databases
+            return Collections.emptySet();
+        }
+
+        if (invalidDatabases.isEmpty() || validDatabases.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        aciParameters.put(QueryParams.DatabaseMatch.name(), new Databases(validDatabases));
+        return invalidDatabases;
+    }
+
+    private Documents<IdolSearchResult> addInvalidDatabases(final Documents<IdolSearchResult> documents, final Set<String> invalidDatabases) {
+        final Set<Serializable> allInvalidDatabases = new LinkedHashSet<Serializable>(invalidDatabases);
+        if (documents.getWarnings() != null) {
+            allInvalidDatabases.addAll(documents.getWarnings().getInvalidDatabases());
+        }
+
+        final Documents<IdolSearchResult> withWarnings = new Documents<>(documents.getDocuments(), documents.getTotalResults(), documents.getExpandedQuery(), documents.getSuggestion(), documents.getAutoCorrection(), new Warnings(allInvalidDatabases));
+        return documents instanceof IdolDocuments ? new IdolDocuments(withWarnings, ((IdolDocuments) documents).getQuerySummaryElements()) : withWarnings;
     }
 
     @SuppressWarnings("TypeMayBeWeakened")
@@ -160,8 +443,27 @@ public class IdolDocumentService implements DocumentsService<String, IdolSearchR
         return aciService.executeAction(aciParameters, queryResponseProcessor);
     }
 
+    private static class CountingDocumentSink implements DocumentSink<IdolSearchResult> {
+        private final DocumentSink<? super IdolSearchResult> sink;
+        private int count;
+
+        private CountingDocumentSink(final DocumentSink<? super IdolSearchResult> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(final IdolSearchResult document) throws IOException {
+            sink.write(document);
+            count++;
+        }
+    }
+
     //TODO replace with method reference or similar once we upgrade to java 8
     public interface QueryExecutor {
         QueryResponseData execute(final AciParameters parameters);
     }
+
+    public interface QueryResultsExecutor {
+        QueryResults execute(final AciParameters parameters);
+    }
 }
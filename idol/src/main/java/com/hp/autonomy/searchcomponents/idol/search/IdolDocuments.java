@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.hp.autonomy.types.idol.QsElement;
+import com.hp.autonomy.types.requests.Documents;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Query results together with the related concepts requested by {@link IdolSearchRequest#isQuerySummary()}. Both lists
+ * are unmodifiable, as cached results are shared between callers.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true, exclude = "documents")
+@ToString(callSuper = true, exclude = "documents")
+public class IdolDocuments extends Documents<IdolSearchResult> {
+    private static final long serialVersionUID = -4300165813683339165L;
+
+    @Getter(AccessLevel.NONE)
+    private final List<IdolSearchResult> documents;
+    private final List<QsElement> querySummaryElements;
+
+    public IdolDocuments(final Documents<IdolSearchResult> documents, final List<QsElement> querySummaryElements) {
+        super(documents.getDocuments(), documents.getTotalResults(), documents.getExpandedQuery(), documents.getSuggestion(), documents.getAutoCorrection(), documents.getWarnings());
+        this.documents = Collections.unmodifiableList(super.getDocuments());
+        this.querySummaryElements = querySummaryElements == null ? null : Collections.unmodifiableList(new ArrayList<>(querySummaryElements));
+    }
+
+    @Override
+    public List<IdolSearchResult> getDocuments() {
+        return documents;
+    }
+}
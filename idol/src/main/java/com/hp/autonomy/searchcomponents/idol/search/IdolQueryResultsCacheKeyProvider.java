@@ -0,0 +1,29 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.hp.autonomy.frontend.configuration.authentication.CommunityPrincipal;
+import com.hp.autonomy.searchcomponents.core.authentication.AuthenticationInformationRetriever;
+import com.hp.autonomy.searchcomponents.core.search.QueryResultsCacheKeyProvider;
+
+import java.io.Serializable;
+
+/**
+ * Shares cached query results between users with the same security info
+ */
+public class IdolQueryResultsCacheKeyProvider implements QueryResultsCacheKeyProvider {
+    private final AuthenticationInformationRetriever<CommunityPrincipal> authenticationInformationRetriever;
+
+    public IdolQueryResultsCacheKeyProvider(final AuthenticationInformationRetriever<CommunityPrincipal> authenticationInformationRetriever) {
+        this.authenticationInformationRetriever = authenticationInformationRetriever;
+    }
+
+    @Override
+    public Serializable getSecurityKey() {
+        final CommunityPrincipal principal = authenticationInformationRetriever.getPrincipal();
+        return principal == null ? null : principal.getSecurityInfo();
+    }
+}
@@ -42,12 +42,23 @@ public class IdolRelatedConceptsService implements RelatedConceptsService<QsElem
     public List<QsElement> findRelatedConcepts(final RelatedConceptsRequest<String> relatedConceptsRequest) throws AciErrorException {
         final AciParameters parameters = new AciParameters(QueryActions.Query.name());
         parameterHandler.addSearchRestrictions(parameters, relatedConceptsRequest.getQueryRestrictions());
+        addQuerySummaryParameters(parameters, relatedConceptsRequest.getQuerySummaryLength());
+
+        final QueryResponseData responseData = contentAciService.executeAction(parameters, queryResponseProcessor);
+        return getQuerySummaryElements(responseData);
+    }
+
+    /**
+     * Adds the parameters for a query which only returns related concepts
+     */
+    public static void addQuerySummaryParameters(final AciParameters parameters, final int querySummaryLength) {
         parameters.add(QueryParams.MaxResults.name(), MAX_RESULTS);
         parameters.add(QueryParams.Print.name(), PrintParam.NoResults);
         parameters.add(QueryParams.QuerySummary.name(), true);
-        parameters.add(QueryParams.QuerySummaryLength.name(), relatedConceptsRequest.getQuerySummaryLength());
+        parameters.add(QueryParams.QuerySummaryLength.name(), querySummaryLength);
+    }
 
-        final QueryResponseData responseData = contentAciService.executeAction(parameters, queryResponseProcessor);
+    public static List<QsElement> getQuerySummaryElements(final QueryResponseData responseData) {
         return responseData.getQs() != null ? responseData.getQs().getElement() : Collections.<QsElement>emptyList();
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.autonomy.aci.client.services.AciErrorException;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.hp.autonomy.searchcomponents.core.languages.LanguagesService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricValuesService;
+import com.hp.autonomy.searchcomponents.core.search.AbstractSearchPageService;
+import com.hp.autonomy.searchcomponents.core.search.DocumentsService;
+import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsRequest;
+import com.hp.autonomy.searchcomponents.core.search.RelatedConceptsService;
+import com.hp.autonomy.searchcomponents.core.search.SearchPageRequest;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.searchcomponents.idol.parametricvalues.IdolParametricRequest;
+import com.hp.autonomy.types.idol.QsElement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the default language once per search page, so the Query and GetQueryTagValues requests for each section do
+ * not each look it up
+ */
+public class IdolSearchPageService extends AbstractSearchPageService<String, IdolSearchResult, QsElement, IdolParametricRequest, AciErrorException> {
+    private final LanguagesService languagesService;
+
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    public IdolSearchPageService(
+            final DocumentsService<String, IdolSearchResult, AciErrorException> documentsService,
+            final ParametricValuesService<IdolParametricRequest, String, AciErrorException> parametricValuesService,
+            final RelatedConceptsService<QsElement, String, AciErrorException> relatedConceptsService,
+            final LanguagesService languagesService,
+            final ListeningExecutorService executorService,
+            final long timeoutMillis) {
+        super(documentsService, parametricValuesService, relatedConceptsService, executorService, timeoutMillis, TimeUnit.MILLISECONDS);
+        this.languagesService = languagesService;
+    }
+
+    @Override
+    protected QueryRestrictions<String> prepareQueryRestrictions(final QueryRestrictions<String> queryRestrictions) {
+        if (queryRestrictions.isAnyLanguage() || queryRestrictions.getLanguageType() != null) {
+            return queryRestrictions;
+        }
+
+        return new IdolQueryRestrictions.Builder()
+                .setQueryText(queryRestrictions.getQueryText())
+                .setFieldText(queryRestrictions.getFieldText())
+                .setDatabases(queryRestrictions.getDatabases())
+                .setMinDate(queryRestrictions.getMinDate())
+                .setMaxDate(queryRestrictions.getMaxDate())
+                .setLanguageType(languagesService.getDefaultLanguageId())
+                .setStateMatchId(queryRestrictions.getStateMatchId())
+                .setStateDontMatchId(queryRestrictions.getStateDontMatchId())
+                .build();
+    }
+
+    @Override
+    protected IdolParametricRequest createParametricRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+        final IdolParametricRequest.Builder builder = new IdolParametricRequest.Builder()
+                .setFieldNames(searchPageRequest.getParametricFieldNames())
+                .setQueryRestrictions(queryRestrictions)
+                .setModified(searchPageRequest.getQueryType() != SearchRequest.QueryType.RAW);
+
+        if (searchPageRequest.getParametricMaxValues() != null) {
+            builder.setMaxValues(searchPageRequest.getParametricMaxValues());
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    protected RelatedConceptsRequest<String> createRelatedConceptsRequest(final SearchPageRequest<String> searchPageRequest, final QueryRestrictions<String> queryRestrictions) {
+        return new IdolRelatedConceptsRequest.Builder()
+                .setQuerySummaryLength(searchPageRequest.getQuerySummaryLength())
+                .setQueryRestrictions(queryRestrictions)
+                .build();
+    }
+}
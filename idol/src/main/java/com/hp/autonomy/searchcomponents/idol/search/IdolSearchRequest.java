@@ -0,0 +1,29 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Search request with IDOL specific options
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@NoArgsConstructor
+public class IdolSearchRequest extends SearchRequest<String> {
+    private static final long serialVersionUID = 7624335624816218870L;
+
+    /**
+     * Whether to return the related concepts of the results as {@link IdolDocuments#getQuerySummaryElements()}
+     */
+    private boolean querySummary;
+    private int querySummaryLength;
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.autonomy.aci.client.services.AciErrorException;
+import com.hp.autonomy.searchcomponents.core.search.DocumentWindowSource;
+import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.searchcomponents.core.search.StateTokenAndResultCount;
+import com.hp.autonomy.types.requests.Documents;
+
+import java.util.Collections;
+
+/**
+ * Pages through the documents stored in a state token, in fixed windows. Each window matches the stored documents
+ * only, so IDOL does not evaluate the original query again however deep the window is.
+ */
+class IdolStateTokenWindowSource implements DocumentWindowSource<IdolSearchResult, AciErrorException> {
+    private static final String MATCH_ALL_TEXT = "*";
+
+    private final IdolDocumentService documentService;
+    private final SearchRequest<String> searchRequest;
+    private final QueryRestrictions<String> windowQueryRestrictions;
+    private final int resultCount;
+    private final int windowSize;
+
+    private int start = 1;
+    private boolean exhausted;
+
+    IdolStateTokenWindowSource(final IdolDocumentService documentService, final SearchRequest<String> searchRequest, final StateTokenAndResultCount stateTokenAndResultCount, final int windowSize) {
+        this.documentService = documentService;
+        this.searchRequest = searchRequest;
+        resultCount = (int) Math.min(stateTokenAndResultCount.getResultCount(), searchRequest.getMaxResults());
+        this.windowSize = Math.max(1, windowSize);
+
+        // the other restrictions of the query were applied when the state token was stored
+        final QueryRestrictions<String> queryRestrictions = searchRequest.getQueryRestrictions();
+        windowQueryRestrictions = new IdolQueryRestrictions.Builder()
+                .setQueryText(MATCH_ALL_TEXT)
+                .setDatabases(queryRestrictions.getDatabases())
+                .setLanguageType(queryRestrictions.getLanguageType())
+                .setAnyLanguage(queryRestrictions.isAnyLanguage())
+                .setStateMatchId(Collections.singletonList(stateTokenAndResultCount.getStateToken()))
+                .build();
+    }
+
+    @Override
+    public Documents<IdolSearchResult> nextWindow() throws AciErrorException {
+        final SearchRequest<String> windowRequest = nextWindowRequest();
+        if (windowRequest == null) {
+            return null;
+        }
+
+        final Documents<IdolSearchResult> documents = documentService.queryTextIndex(windowRequest);
+        windowRead(documents.getDocuments().size());
+
+        return new Documents<>(documents.getDocuments(), resultCount, null, null, null, documents.getWarnings());
+    }
+
+    /**
+     * @return the request for the next window, or null if there are no more documents
+     */
+    SearchRequest<String> nextWindowRequest() {
+        if (exhausted || start > resultCount) {
+            return null;
+        }
+
+        final int maxResults = Math.min(start + windowSize - 1, resultCount);
+
+        // stored state is not supported by QMS, so the window is always sent to the content engine
+        final SearchRequest<String> windowRequest = new SearchRequest<>(windowQueryRestrictions, start, maxResults, searchRequest.getSummary(), searchRequest.getSummaryCharacters(), searchRequest.getSort(), searchRequest.isHighlight(), false, SearchRequest.QueryType.RAW);
+        start = maxResults + 1;
+        return windowRequest;
+    }
+
+    /**
+     * @param documentCount the number of documents returned for the last window requested
+     */
+    void windowRead(final int documentCount) {
+        // an empty window means the stored state has expired or its documents have been deleted
+        exhausted = documentCount == 0;
+    }
+}
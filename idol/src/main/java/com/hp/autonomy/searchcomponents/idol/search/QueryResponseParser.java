@@ -7,6 +7,7 @@ package com.hp.autonomy.searchcomponents.idol.search;
 
 import com.autonomy.aci.client.util.AciParameters;
 import com.hp.autonomy.searchcomponents.core.search.AciSearchRequest;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
 import com.hp.autonomy.types.idol.Hit;
 import com.hp.autonomy.types.idol.QueryResponseData;
 import com.hp.autonomy.types.requests.Documents;
@@ -20,5 +21,19 @@ import java.util.List;
 public interface QueryResponseParser {
     Documents<IdolSearchResult> parseQueryResults(AciSearchRequest<String> searchRequest, AciParameters aciParameters, QueryResponseData responseData, IdolDocumentService.QueryExecutor queryExecutor);
 
+    /**
+     * Completes the processing of results read by {@link QueryResultsProcessor}
+     */
+    Documents<IdolSearchResult> parseQueryResults(AciSearchRequest<String> searchRequest, AciParameters aciParameters, QueryResults queryResults, IdolDocumentService.QueryResultsExecutor queryResultsExecutor);
+
+    /**
+     * Runs a query which requested auto correct, checking the spelling of the query text in parallel with the query so
+     * that a corrected query can be started without waiting for the original query to complete.
+     *
+     * @return the parsed results, or null if speculation is not enabled or not currently available; the query should
+     * then be run as normal
+     */
+    Documents<IdolSearchResult> parseSpeculativeQueryResults(SearchRequest<String> searchRequest, AciParameters aciParameters, IdolDocumentService.QueryExecutor queryExecutor);
+
     List<IdolSearchResult> parseQueryHits(Collection<Hit> hits);
 }
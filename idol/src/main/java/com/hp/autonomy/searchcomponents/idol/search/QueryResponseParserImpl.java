@@ -5,22 +5,21 @@
 
 package com.hp.autonomy.searchcomponents.idol.search;
 
-import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.util.AciParameters;
 import com.hp.autonomy.aci.content.database.Databases;
-import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestException;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.core.search.AciSearchRequest;
-import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabasesRequest;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabaseCatalogue;
 import com.hp.autonomy.searchcomponents.idol.search.fields.FieldsParser;
-import com.hp.autonomy.types.idol.Database;
 import com.hp.autonomy.types.idol.Hit;
 import com.hp.autonomy.types.idol.QueryResponseData;
 import com.hp.autonomy.types.requests.Documents;
 import com.hp.autonomy.types.requests.Spelling;
 import com.hp.autonomy.types.requests.Warnings;
+import com.hp.autonomy.types.requests.idol.actions.query.params.PrintParam;
 import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,24 +27,33 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
  * Default implementation of Idol QueryResponseParser
  */
-@Component
 public class QueryResponseParserImpl implements QueryResponseParser {
     private static final Pattern SPELLING_SEPARATOR_PATTERN = Pattern.compile(", ");
 
     static final String MISSING_DATABASE_WARNING = "At least one of the databases provided in the query does not exist";
 
     private final FieldsParser fieldsParser;
-    private final DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService;
+    private final IdolDatabaseCatalogue databaseCatalogue;
+    private final SpeculativeAutoCorrect speculativeAutoCorrect;
 
-    @Autowired
-    public QueryResponseParserImpl(final FieldsParser fieldsParser, final DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService) {
+    public QueryResponseParserImpl(final FieldsParser fieldsParser, final IdolDatabaseCatalogue databaseCatalogue) {
+        this(fieldsParser, databaseCatalogue, null);
+    }
+
+    /**
+     * @param speculativeAutoCorrect if not null, auto corrected queries are run speculatively
+     */
+    public QueryResponseParserImpl(final FieldsParser fieldsParser, final IdolDatabaseCatalogue databaseCatalogue, final SpeculativeAutoCorrect speculativeAutoCorrect) {
         this.fieldsParser = fieldsParser;
-        this.databasesService = databasesService;
+        this.databaseCatalogue = databaseCatalogue;
+        this.speculativeAutoCorrect = speculativeAutoCorrect;
     }
 
     @Override
@@ -68,16 +76,103 @@ public class QueryResponseParserImpl implements QueryResponseParser {
         return documents;
     }
 
+    @Override
+    public Documents<IdolSearchResult> parseQueryResults(final AciSearchRequest<String> searchRequest, final AciParameters aciParameters, final QueryResults queryResults, final IdolDocumentService.QueryResultsExecutor queryResultsExecutor) {
+        final Warnings warnings = parseWarnings(searchRequest, aciParameters, queryResults.getWarnings());
+
+        final String spellingQuery = queryResults.getSpellingQuery();
+
+        // If IDOL has a spelling suggestion, retry query for auto correct
+        final Documents<IdolSearchResult> documents;
+        if (spellingQuery != null) {
+            final AciParameters correctedParameters = new AciParameters(aciParameters);
+            correctedParameters.put(QueryParams.Text.name(), spellingQuery);
+
+            final QueryResults correctedResults = queryResultsExecutor.execute(correctedParameters);
+            final Spelling spelling = new Spelling(parseCorrections(queryResults.getSpelling()), spellingQuery, aciParameters.get(QueryParams.Text.name()));
+
+            documents = new Documents<>(correctedResults.getDocuments(), correctedResults.getTotalHits(), null, null, spelling, warnings);
+        } else {
+            documents = new Documents<>(queryResults.getDocuments(), queryResults.getTotalHits(), null, null, null, warnings);
+        }
+
+        return documents;
+    }
+
+    @Override
+    public Documents<IdolSearchResult> parseSpeculativeQueryResults(final SearchRequest<String> searchRequest, final AciParameters aciParameters, final IdolDocumentService.QueryExecutor queryExecutor) {
+        final SearchRequest.QueryType queryType = searchRequest.getQueryType();
+        if (speculativeAutoCorrect == null || !speculativeAutoCorrect.tryAcquire(queryType)) {
+            return null;
+        }
+
+        try {
+            final ParallelRequestExecutor parallelRequestExecutor = speculativeAutoCorrect.getParallelRequestExecutor();
+
+            // The query gets its own parameters as the database restriction may be adjusted while it is running
+            final AciParameters queryParameters = new AciParameters(aciParameters);
+            final Future<QueryResponseData> query;
+
+            try {
+                query = parallelRequestExecutor.submit(new Callable<QueryResponseData>() {
+                    @Override
+                    public QueryResponseData call() {
+                        return queryExecutor.execute(queryParameters);
+                    }
+                });
+            } catch (final ParallelRequestException ignored) {
+                // the pool is saturated, so run the query without speculation
+                return null;
+            }
+
+            try {
+                final QueryResponseData spellCheckResponseData = queryExecutor.execute(createSpellCheckParameters(aciParameters));
+                final String spellingQuery = spellCheckResponseData.getSpellingquery();
+
+                if (spellingQuery != null) {
+                    // The original results will not be used
+                    query.cancel(true);
+
+                    final Warnings warnings = parseWarnings(searchRequest, aciParameters, spellCheckResponseData);
+                    return rerunQueryWithAdjustedSpelling(aciParameters, spellCheckResponseData, spellingQuery, warnings, queryExecutor);
+                }
+
+                return parseQueryResults(searchRequest, aciParameters, parallelRequestExecutor.get(query), queryExecutor);
+            } finally {
+                query.cancel(true);
+            }
+        } finally {
+            speculativeAutoCorrect.release(queryType);
+        }
+    }
+
+    /**
+     * Parameters for a query which only returns the spelling suggestion and warnings for the given query
+     */
+    protected AciParameters createSpellCheckParameters(final AciParameters aciParameters) {
+        final AciParameters spellCheckParameters = new AciParameters(aciParameters);
+        spellCheckParameters.put(QueryParams.Print.name(), PrintParam.NoResults);
+        spellCheckParameters.put(QueryParams.Start.name(), 1);
+        spellCheckParameters.put(QueryParams.MaxResults.name(), 1);
+        spellCheckParameters.put(QueryParams.TotalResults.name(), false);
+        spellCheckParameters.put(QueryParams.SpellCheck.name(), true);
+        return spellCheckParameters;
+    }
+
     protected Warnings parseWarnings(final AciSearchRequest<String> searchRequest, final AciParameters aciParameters, final QueryResponseData responseData) {
+        return parseWarnings(searchRequest, aciParameters, responseData.getWarning());
+    }
+
+    protected Warnings parseWarnings(final AciSearchRequest<String> searchRequest, final AciParameters aciParameters, final Collection<String> warningMessages) {
         Warnings warnings = null;
-        for (final String warning : responseData.getWarning()) {
+        for (final String warning : warningMessages) {
             if (MISSING_DATABASE_WARNING.equals(warning.trim())) {
-                final Set<Database> updatedDatabases = databasesService.getDatabases(new IdolDatabasesRequest());
                 final List<String> oldQueryRestrictionDatabases = searchRequest.getQueryRestrictions().getDatabases();
-                final Set<String> badDatabases = new LinkedHashSet<>(oldQueryRestrictionDatabases);
-                for (final Database database : updatedDatabases) {
-                    final String databaseName = database.getName();
-                    badDatabases.remove(databaseName);
+                final Set<String> badDatabases = new LinkedHashSet<>();
+                for (final String databaseName : oldQueryRestrictionDatabases) {
+                    if (!databaseCatalogue.contains(databaseName)) {
+                        badDatabases.add(databaseName);
+                    }
                 }
 
                 warnings = new Warnings(badDatabases);
@@ -94,14 +189,18 @@ public class QueryResponseParserImpl implements QueryResponseParser {
         final AciParameters correctedParameters = new AciParameters(aciParameters);
         correctedParameters.put(QueryParams.Text.name(), spellingQuery);
 
-        final QueryResponseData correctedResponseData = queryExecutor.execute(aciParameters);
+        final QueryResponseData correctedResponseData = queryExecutor.execute(correctedParameters);
         final List<IdolSearchResult> correctedResults = parseQueryHits(correctedResponseData.getHit());
 
-        final Spelling spelling = new Spelling(Arrays.asList(SPELLING_SEPARATOR_PATTERN.split(responseData.getSpelling())), spellingQuery, aciParameters.get(QueryParams.Text.name()));
+        final Spelling spelling = new Spelling(parseCorrections(responseData.getSpelling()), spellingQuery, aciParameters.get(QueryParams.Text.name()));
 
         return new Documents<>(correctedResults, correctedResponseData.getTotalhits(), null, null, spelling, warnings);
     }
 
+    private List<String> parseCorrections(final String spelling) {
+        return spelling == null ? null : Arrays.asList(SPELLING_SEPARATOR_PATTERN.split(spelling));
+    }
+
     @Override
     public List<IdolSearchResult> parseQueryHits(final Collection<Hit> hits) {
         final List<IdolSearchResult> results = new ArrayList<>(hits.size());
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Query results as read by {@link QueryResultsProcessor}, holding IDOL's spelling suggestion and warnings as returned.
+ * These are turned into a {@link com.hp.autonomy.types.requests.Documents} by {@link QueryResponseParser}.
+ */
+@Data
+public class QueryResults {
+    private final List<IdolSearchResult> documents;
+    private final Integer totalHits;
+
+    /**
+     * The corrected terms, separated by ", ", or null
+     */
+    private final String spelling;
+
+    /**
+     * The query with corrected spelling, or null if IDOL has no suggestion
+     */
+    private final String spellingQuery;
+
+    private final Set<String> warnings;
+}
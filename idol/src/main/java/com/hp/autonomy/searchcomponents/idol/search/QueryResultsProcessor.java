@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.autonomy.aci.client.services.ProcessorException;
+import com.autonomy.aci.client.services.impl.AbstractStAXProcessor;
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
+import com.hp.autonomy.searchcomponents.idol.search.fields.FieldInfoLookup;
+import com.hp.autonomy.searchcomponents.idol.search.fields.FieldValuesCollector;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads Query responses with a pull parser, building {@link IdolSearchResult}s and their field maps directly instead of
+ * going through JAXB and a DOM tree per hit.
+ * <p>
+ * The spelling suggestion and warnings are returned as IDOL reports them. They are resolved by
+ * {@link QueryResponseParser#parseQueryResults(com.hp.autonomy.searchcomponents.core.search.AciSearchRequest, com.autonomy.aci.client.util.AciParameters, QueryResults, IdolDocumentService.QueryResultsExecutor)}.
+ * <p>
+ * If a {@link DocumentSink} is given, each hit is written to it as soon as it has been read and the returned documents
+ * are empty, so an export holds only one hit in memory at a time.
+ */
+public class QueryResultsProcessor extends AbstractStAXProcessor<QueryResults> {
+    private static final long serialVersionUID = -2771587403524617312L;
+
+    private static final DateTimeFormatter DATE_STRING_FORMAT = DateTimeFormat.forPattern("HH:mm:ss dd/MM/yyyy");
+
+    private final transient IdolCompiledConfigService compiledConfigService;
+    private final transient DocumentSink<? super IdolSearchResult> sink;
+
+    public QueryResultsProcessor(final IdolCompiledConfigService compiledConfigService) {
+        this(compiledConfigService, null);
+    }
+
+    public QueryResultsProcessor(final IdolCompiledConfigService compiledConfigService, final DocumentSink<? super IdolSearchResult> sink) {
+        this.compiledConfigService = compiledConfigService;
+        this.sink = sink;
+
+        setNamespaceAware(true);
+        setCoalescing(true);
+    }
+
+    @Override
+    public QueryResults process(final XMLStreamReader xmlStreamReader) {
+        try {
+            if (isErrorResponse(xmlStreamReader)) {
+                processErrorResponse(xmlStreamReader);
+            }
+
+            // look up the field configuration once per response rather than once per hit
+            final FieldInfoLookup fieldInfoLookup = compiledConfigService.getCompiledConfig().getFieldInfoLookup();
+
+            final List<IdolSearchResult> results = new ArrayList<>();
+            final Set<String> warnings = new LinkedHashSet<>();
+            Integer totalHits = null;
+            String spelling = null;
+            String spellingQuery = null;
+
+            forwardToNamedStartElement("responsedata", xmlStreamReader);
+
+            while (nextChildElement(xmlStreamReader)) {
+                switch (xmlStreamReader.getLocalName()) {
+                    case "hit":
+                        final IdolSearchResult result = parseHit(xmlStreamReader, fieldInfoLookup);
+                        if (sink == null) {
+                            results.add(result);
+                        } else {
+                            sink.write(result);
+                        }
+                        break;
+                    case "totalhits":
+                        totalHits = Integer.valueOf(readText(xmlStreamReader));
+                        break;
+                    case "warning":
+                        warnings.add(readText(xmlStreamReader));
+                        break;
+                    case "spelling":
+                        spelling = readText(xmlStreamReader);
+                        break;
+                    case "spellingquery":
+                        spellingQuery = readText(xmlStreamReader);
+                        break;
+                    default:
+                        skipElement(xmlStreamReader);
+                }
+            }
+
+            return new QueryResults(results, totalHits, spelling, spellingQuery, warnings);
+        } catch (final XMLStreamException e) {
+            throw new ProcessorException("Error reading Query response", e);
+        } catch (final IOException e) {
+            throw new ProcessorException("Error writing Query results", e);
+        } catch (final NumberFormatException e) {
+            throw new ProcessorException("Error reading Query response", e);
+        }
+    }
+
+    private IdolSearchResult parseHit(final XMLStreamReader xmlStreamReader, final FieldInfoLookup fieldInfoLookup) throws XMLStreamException {
+        final IdolSearchResult.Builder builder = new IdolSearchResult.Builder();
+        FieldValuesCollector fieldValues = null;
+        String promotionName = null;
+        String database = null;
+
+        while (nextChildElement(xmlStreamReader)) {
+            switch (xmlStreamReader.getLocalName()) {
+                case "reference":
+                    builder.setReference(readText(xmlStreamReader));
+                    break;
+                case "database":
+                    database = readText(xmlStreamReader);
+                    builder.setIndex(database);
+                    break;
+                case "title":
+                    builder.setTitle(readText(xmlStreamReader));
+                    break;
+                case "summary":
+                    builder.setSummary(readText(xmlStreamReader));
+                    break;
+                case "datestring":
+                    builder.setDate(DATE_STRING_FORMAT.parseDateTime(readText(xmlStreamReader)).toDate());
+                    break;
+                case "weight":
+                    builder.setWeight(Double.valueOf(readText(xmlStreamReader)));
+                    break;
+                case "promotionname":
+                    promotionName = readText(xmlStreamReader);
+                    builder.setPromotionName(promotionName);
+                    break;
+                case "content":
+                    fieldValues = parseContent(xmlStreamReader, fieldInfoLookup);
+                    break;
+                default:
+                    skipElement(xmlStreamReader);
+            }
+        }
+
+        if (fieldValues == null) {
+            builder.setFieldMap(Collections.<String, FieldInfo<?>>emptyMap());
+        } else {
+            builder.setFieldMap(fieldValues.getFieldMap())
+                    .setQmsId(fieldValues.getQmsId())
+                    .setPromotionCategory(fieldValues.getPromotionCategory(promotionName, database));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Reads the first document in a hit's content, returning null if it is missing or empty
+     */
+    private FieldValuesCollector parseContent(final XMLStreamReader xmlStreamReader, final FieldInfoLookup fieldInfoLookup) throws XMLStreamException {
+        if (!nextChildElement(xmlStreamReader)) {
+            return null;
+        }
+
+        final FieldValuesCollector fieldValues = new FieldValuesCollector(fieldInfoLookup);
+        final Deque<String> elementNames = new ArrayDeque<>();
+        elementNames.push(xmlStreamReader.getLocalName());
+        boolean hasChildren = false;
+
+        while (!elementNames.isEmpty()) {
+            switch (xmlStreamReader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    elementNames.push(xmlStreamReader.getLocalName());
+                    hasChildren = true;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    elementNames.pop();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    hasChildren = true;
+                    fieldValues.addValue(elementNames.peek(), xmlStreamReader.getText());
+                    break;
+            }
+        }
+
+        // any further documents in the content are ignored
+        while (nextChildElement(xmlStreamReader)) {
+            skipElement(xmlStreamReader);
+        }
+
+        return hasChildren ? fieldValues : null;
+    }
+
+    /**
+     * Moves to the next child of the current element, returning false when the end of the current element is reached
+     */
+    private boolean nextChildElement(final XMLStreamReader xmlStreamReader) throws XMLStreamException {
+        while (xmlStreamReader.hasNext()) {
+            final int event = xmlStreamReader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads all the text within the current element, leaving the reader on its end tag
+     */
+    private String readText(final XMLStreamReader xmlStreamReader) throws XMLStreamException {
+        final StringBuilder text = new StringBuilder();
+        int depth = 1;
+
+        while (depth > 0) {
+            switch (xmlStreamReader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    text.append(xmlStreamReader.getText());
+                    break;
+            }
+        }
+
+        return text.toString();
+    }
+
+    private void skipElement(final XMLStreamReader xmlStreamReader) throws XMLStreamException {
+        int depth = 1;
+
+        while (depth > 0) {
+            final int event = xmlStreamReader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
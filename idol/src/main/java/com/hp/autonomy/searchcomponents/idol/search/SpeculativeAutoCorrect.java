@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
+import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Enables speculative auto correct in {@link QueryResponseParserImpl}: the spelling of the query text is checked in
+ * parallel with the query, so a corrected query can be started without waiting for the original query.
+ * <p>
+ * Speculation costs an extra request to the content engine, so the number of speculative queries in flight is capped
+ * separately for each query type. Queries over the cap are run without speculation.
+ */
+public class SpeculativeAutoCorrect {
+    private final ParallelRequestExecutor parallelRequestExecutor;
+    private final Map<SearchRequest.QueryType, Semaphore> permits = new EnumMap<>(SearchRequest.QueryType.class);
+
+    /**
+     * @param parallelRequestExecutor   executor for the original query; this should be backed by a pool
+     * @param maxConcurrentPerQueryType maximum number of speculative queries in flight for each query type
+     */
+    public SpeculativeAutoCorrect(final ParallelRequestExecutor parallelRequestExecutor, final int maxConcurrentPerQueryType) {
+        this.parallelRequestExecutor = parallelRequestExecutor;
+
+        for (final SearchRequest.QueryType queryType : SearchRequest.QueryType.values()) {
+            permits.put(queryType, new Semaphore(maxConcurrentPerQueryType));
+        }
+    }
+
+    public ParallelRequestExecutor getParallelRequestExecutor() {
+        return parallelRequestExecutor;
+    }
+
+    /**
+     * @param queryType type of the query
+     * @return true if the query may be run speculatively, in which case {@link #release} must be called once it completes
+     */
+    public boolean tryAcquire(final SearchRequest.QueryType queryType) {
+        return getPermits(queryType).tryAcquire();
+    }
+
+    public void release(final SearchRequest.QueryType queryType) {
+        getPermits(queryType).release();
+    }
+
+    private Semaphore getPermits(final SearchRequest.QueryType queryType) {
+        // queries without a type are run as modified queries
+        return permits.get(queryType == null ? SearchRequest.QueryType.MODIFIED : queryType);
+    }
+}
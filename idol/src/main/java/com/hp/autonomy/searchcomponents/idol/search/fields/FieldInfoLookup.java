@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search.fields;
+
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.config.FieldType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves document element names to field configuration. Built once for each configuration version and shared between
+ * requests, so unconfigured fields do not need a new default {@link FieldInfo} for every value.
+ */
+public class FieldInfoLookup {
+    // bounds the memory used by documents with many distinct unconfigured fields
+    private static final int MAX_DEFAULT_FIELD_INFOS = 1000;
+
+    private final Map<String, FieldInfo<?>> fieldConfigByName;
+    private final ConcurrentMap<String, FieldInfo<?>> defaultFieldInfos = new ConcurrentHashMap<>();
+
+    /**
+     * @param fieldConfigByName configured fields by element name; must not be modified after the lookup is created
+     */
+    public FieldInfoLookup(final Map<String, FieldInfo<?>> fieldConfigByName) {
+        this.fieldConfigByName = fieldConfigByName;
+    }
+
+    /**
+     * @param name element name
+     * @return the configured field, or a string field with the element name as its id if there is none
+     */
+    public FieldInfo<?> get(final String name) {
+        final FieldInfo<?> fieldInfo = fieldConfigByName.get(name);
+        if (fieldInfo != null) {
+            return fieldInfo;
+        }
+
+        final FieldInfo<?> defaultFieldInfo = defaultFieldInfos.get(name);
+        if (defaultFieldInfo != null) {
+            return defaultFieldInfo;
+        }
+
+        final FieldInfo<?> newFieldInfo = new FieldInfo<>(name, Collections.singletonList(name), FieldType.STRING);
+        if (defaultFieldInfos.size() < MAX_DEFAULT_FIELD_INFOS) {
+            defaultFieldInfos.putIfAbsent(name, newFieldInfo);
+        }
+
+        return newFieldInfo;
+    }
+}
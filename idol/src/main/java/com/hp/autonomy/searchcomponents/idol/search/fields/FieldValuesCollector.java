@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search.fields;
+
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.config.FieldType;
+import com.hp.autonomy.searchcomponents.core.search.PromotionCategory;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the field values of a single document in the order they appear in the document content.
+ * <p>
+ * The QMS id and injected promotion flag are picked up from the same values, so the content only needs to be read once.
+ * The {@link FieldInfo}s are only created once all the values have been collected, so that they can store the values
+ * compactly.
+ */
+public class FieldValuesCollector {
+    private static final String QMS_ID_ELEMENT = IdolDocumentFieldsService.QMS_ID_FIELD_INFO.getNames().get(0).toUpperCase();
+    private static final String INJECTED_PROMOTION_ELEMENT = IdolDocumentFieldsService.INJECTED_PROMOTION_FIELD_INFO.getNames().get(0).toUpperCase();
+
+    private final FieldInfoLookup fieldInfoLookup;
+    private final Map<String, CollectedField> collectedFields = new HashMap<>();
+
+    private String qmsId;
+    private Boolean injectedPromotion;
+
+    public FieldValuesCollector(final FieldInfoLookup fieldInfoLookup) {
+        this.fieldInfoLookup = fieldInfoLookup;
+    }
+
+    /**
+     * Adds a value for the named field; blank values are ignored
+     *
+     * @param name  the name of the element containing the value
+     * @param value the unparsed value
+     */
+    public void addValue(final String name, final String value) {
+        if (StringUtils.isBlank(value)) {
+            return;
+        }
+
+        final FieldInfo<?> fieldInfo = fieldInfoLookup.get(name);
+        final String id = fieldInfo.getId();
+        final FieldType fieldType = fieldInfo.getType();
+        final Object parsedValue = fieldType.parseValue(fieldType.getType(), value);
+
+        CollectedField collectedField = collectedFields.get(id);
+        if (collectedField == null) {
+            collectedField = new CollectedField(name, fieldType);
+            collectedFields.put(id, collectedField);
+        }
+
+        collectedField.values.add(parsedValue);
+
+        if (qmsId == null && QMS_ID_ELEMENT.equals(name)) {
+            qmsId = FieldType.STRING.parseValue(String.class, value);
+        } else if (injectedPromotion == null && INJECTED_PROMOTION_ELEMENT.equals(name)) {
+            injectedPromotion = FieldType.BOOLEAN.parseValue(Boolean.class, value);
+        }
+    }
+
+    public Map<String, FieldInfo<?>> getFieldMap() {
+        final Map<String, FieldInfo<?>> fieldMap = new HashMap<>(collectedFields.size() * 4 / 3 + 1);
+        for (final Map.Entry<String, CollectedField> entry : collectedFields.entrySet()) {
+            final CollectedField collectedField = entry.getValue();
+            fieldMap.put(entry.getKey(), FieldInfo.withCompactValues(entry.getKey(), Collections.singletonList(collectedField.name), collectedField.type, collectedField.values));
+        }
+
+        return fieldMap;
+    }
+
+    public String getQmsId() {
+        return qmsId;
+    }
+
+    public PromotionCategory getPromotionCategory(final CharSequence promotionName, final CharSequence database) {
+        final PromotionCategory promotionCategory;
+        if (injectedPromotion != null && injectedPromotion) {
+            promotionCategory = PromotionCategory.CARDINAL_PLACEMENT;
+        } else if (StringUtils.isNotEmpty(promotionName)) {
+            // If the database isn't found, then assume it is a static content promotion
+            promotionCategory = StringUtils.isNotEmpty(database) ? PromotionCategory.SPOTLIGHT : PromotionCategory.STATIC_CONTENT_PROMOTION;
+        } else {
+            promotionCategory = PromotionCategory.NONE;
+        }
+
+        return promotionCategory;
+    }
+
+    private static class CollectedField {
+        // the name of the first element found for the field
+        private final String name;
+        private final FieldType type;
+        private final List<Object> values = new ArrayList<>();
+
+        private CollectedField(final String name, final FieldType type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
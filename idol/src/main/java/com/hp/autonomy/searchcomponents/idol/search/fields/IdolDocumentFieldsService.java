@@ -16,6 +16,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 
 @Component
 public class IdolDocumentFieldsService extends AbstractDocumentFieldsService implements DocumentFieldsService {
@@ -23,6 +24,8 @@ public class IdolDocumentFieldsService extends AbstractDocumentFieldsService imp
     public static final String INJECTED_PROMOTION_FIELD = "injectedpromotion";
     public static final FieldInfo<String> QMS_ID_FIELD_INFO = new FieldInfo<>(QMS_ID_FIELD, FieldType.STRING);
     public static final FieldInfo<Boolean> INJECTED_PROMOTION_FIELD_INFO = new FieldInfo<>(INJECTED_PROMOTION_FIELD, FieldType.BOOLEAN);
+    @SuppressWarnings("CastToConcreteClass")
+    public static final Collection<FieldInfo<?>> HARD_CODED_FIELDS = Collections.unmodifiableList(Arrays.asList((FieldInfo<?>) QMS_ID_FIELD_INFO, INJECTED_PROMOTION_FIELD_INFO));
 
     @SuppressWarnings("TypeMayBeWeakened")
     @Autowired
@@ -30,9 +33,8 @@ public class IdolDocumentFieldsService extends AbstractDocumentFieldsService imp
         super(configService);
     }
 
-    @SuppressWarnings("CastToConcreteClass")
     @Override
     public Collection<FieldInfo<?>> getHardCodedFields() {
-        return Arrays.asList((FieldInfo<?>) QMS_ID_FIELD_INFO, INJECTED_PROMOTION_FIELD_INFO);
+        return HARD_CODED_FIELDS;
     }
 }
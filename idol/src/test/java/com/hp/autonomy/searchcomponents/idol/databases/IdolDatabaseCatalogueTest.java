@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.databases;
+
+import com.autonomy.aci.client.services.AciErrorException;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
+import com.hp.autonomy.types.idol.Database;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IdolDatabaseCatalogueTest {
+    @Mock
+    private DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService;
+
+    private IdolDatabaseCatalogue databaseCatalogue;
+
+    @Test
+    public void getDatabasesLoadsOnce() {
+        createCatalogue(60, 600, 30);
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(mockDatabases("Database1", "Database2"));
+
+        assertThat(databaseCatalogue.getDatabases(), hasSize(2));
+        assertThat(databaseCatalogue.getDatabases(), hasSize(2));
+        verify(databasesService).getDatabases(any(IdolDatabasesRequest.class));
+    }
+
+    @Test
+    public void contains() {
+        createCatalogue(60, 600, 30);
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(mockDatabases("Database1"));
+
+        assertThat(databaseCatalogue.contains("Database1"), is(true));
+        assertThat(databaseCatalogue.contains("Database2"), is(false));
+        verify(databasesService).getDatabases(any(IdolDatabasesRequest.class));
+    }
+
+    @Test
+    public void reloadOnMiss() {
+        createCatalogue(60, 600, 0);
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(mockDatabases("Database1"), mockDatabases("Database1", "Database2"));
+
+        assertThat(databaseCatalogue.contains("Database1"), is(true));
+        assertThat(databaseCatalogue.contains("Database2"), is(true));
+        verify(databasesService, times(2)).getDatabases(any(IdolDatabasesRequest.class));
+    }
+
+    @Test
+    public void refreshInBackground() {
+        createCatalogue(0, 600, 30);
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(mockDatabases("Database1"), mockDatabases("Database1", "Database2"));
+
+        assertThat(databaseCatalogue.getDatabases(), hasSize(1));
+        // the refresh is triggered by this call, which still returns the previous databases
+        assertThat(databaseCatalogue.getDatabases(), hasSize(1));
+        assertThat(databaseCatalogue.getDatabases(), hasSize(2));
+    }
+
+    @Test
+    public void refreshFailureKeepsCurrentDatabases() {
+        createCatalogue(0, 600, 30);
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(mockDatabases("Database1")).thenThrow(new AciErrorException());
+
+        assertThat(databaseCatalogue.getDatabases(), hasSize(1));
+        assertThat(databaseCatalogue.getDatabases(), hasSize(1));
+        assertThat(databaseCatalogue.getDatabases(), hasSize(1));
+    }
+
+    private void createCatalogue(final long refreshAfter, final long expireAfter, final long reloadOnMissAfter) {
+        databaseCatalogue = new IdolDatabaseCatalogue(databasesService, MoreExecutors.newDirectExecutorService(), refreshAfter, expireAfter, reloadOnMissAfter, TimeUnit.SECONDS);
+    }
+
+    private Set<Database> mockDatabases(final String... names) {
+        final Set<Database> databases = new LinkedHashSet<>();
+        for (final String name : names) {
+            final Database database = new Database();
+            database.setName(name);
+            databases.add(database);
+        }
+        return Collections.unmodifiableSet(databases);
+    }
+}
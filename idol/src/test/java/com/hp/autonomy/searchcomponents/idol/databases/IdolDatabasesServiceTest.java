@@ -56,6 +56,22 @@ public class IdolDatabasesServiceTest {
         assertThat(results, hasSize(1));
     }
 
+    @Test
+    public void getDatabasesIncludingInternal() {
+        final GetStatusResponseData responseData = new GetStatusResponseData();
+        final Databases databases = new Databases();
+        final List<Database> databaseList = databases.getDatabase();
+        databaseList.add(mockDatabaseInfo("APublicDatabase", 123, false));
+        databaseList.add(mockDatabaseInfo("AnInternalDatabase", 456, true));
+        responseData.setDatabases(databases);
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+
+        final IdolDatabasesRequest request = new IdolDatabasesRequest();
+        request.setIncludeInternal(true);
+        final Set<Database> results = idolDatabasesService.getDatabases(request);
+        assertThat(results, hasSize(2));
+    }
+
     private Database mockDatabaseInfo(final String name, final long documents, final boolean internal) {
         final Database database = new Database();
         database.setName(name);
@@ -9,8 +9,15 @@ import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.services.AciService;
 import com.autonomy.aci.client.services.Processor;
 import com.autonomy.aci.client.transport.AciParameter;
+import com.autonomy.aci.client.util.AciParameters;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
 import com.hp.autonomy.searchcomponents.core.fields.FieldsService;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.BucketingParams;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.DatePeriod;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.ParametricLevelRequest;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeBucket;
+import com.hp.autonomy.searchcomponents.core.parametricvalues.RangeInfo;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
 import com.hp.autonomy.searchcomponents.idol.fields.IdolFieldsRequest;
 import com.hp.autonomy.searchcomponents.idol.search.HavenSearchAciParameterHandler;
@@ -19,26 +26,39 @@ import com.hp.autonomy.types.idol.FlatField;
 import com.hp.autonomy.types.idol.GetQueryTagValuesResponseData;
 import com.hp.autonomy.types.idol.GetTagNamesResponseData;
 import com.hp.autonomy.types.idol.TagValue;
+import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
 import com.hp.autonomy.types.requests.idol.actions.tags.QueryTagInfo;
+import com.hp.autonomy.types.requests.idol.actions.tags.params.GetQueryTagValuesParams;
+import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -90,6 +110,139 @@ public class IdolParametricValuesServiceTest {
         assertThat(results, is(not(empty())));
     }
 
+    @Test
+    public void getAllParametricValuesInBatches() {
+        final IdolParametricValuesService batchingService = new IdolParametricValuesService(parameterHandler, fieldsService, contentAciService, aciResponseProcessorFactory, ParallelRequestExecutor.serial(), 2);
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Arrays.asList("CATEGORY", "AUTHOR", "TYPE")).setQueryRestrictions(queryRestrictions).build();
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(mockQueryResponse("CATEGORY"), mockQueryResponse("TYPE"));
+
+        final Set<QueryTagInfo> results = batchingService.getAllParametricValues(idolParametricRequest);
+        assertThat(results, hasSize(2));
+        assertThat(results.iterator().next().getName(), is("CATEGORY"));
+        verify(contentAciService, times(2)).executeAction(anySetOf(AciParameter.class), any(Processor.class));
+    }
+
+    @Test
+    public void restrictedValuesAreEncoded() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder()
+                .setFieldNames(Collections.singletonList("AUTHOR"))
+                .setQueryRestrictions(queryRestrictions)
+                .setValueRestrictions(Arrays.asList("Smith, John", "50%", "Jo*"))
+                .build();
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(mockQueryResponse("AUTHOR"));
+        parametricValuesService.getAllParametricValues(idolParametricRequest);
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService).executeAction(parametersCaptor.capture(), any(Processor.class));
+        assertThat(parametersCaptor.getValue().get(GetQueryTagValuesParams.RestrictedValues.name()), is("Smith%2C%20John,50%25,Jo*"));
+    }
+
+    @Test
+    public void getDependentParametricLevel() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Arrays.asList("CATEGORY", "AUTHOR", "YEAR")).setQueryRestrictions(queryRestrictions).build();
+
+        final GetQueryTagValuesResponseData responseData = mockQueryResponse("AUTHOR");
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+
+        final Set<QueryTagInfo> results = parametricValuesService.getDependentParametricLevel(idolParametricRequest, new ParametricLevelRequest(Collections.singletonList("news"), Arrays.asList(10, 5)));
+        assertThat(results.iterator().next().getName(), is("AUTHOR"));
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService).executeAction(parametersCaptor.capture(), any(Processor.class));
+        assertThat(parametersCaptor.getValue().get(GetQueryTagValuesParams.FieldName.name()), is("AUTHOR"));
+        assertThat(parametersCaptor.getValue().get(GetQueryTagValuesParams.MaxValues.name()), is("5"));
+        assertThat(parametersCaptor.getValue().get(QueryParams.FieldText.name()), is("MATCH{news}:CATEGORY"));
+    }
+
+    @Test
+    public void getDependentParametricLevelBeyondLastField() {
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Collections.singletonList("CATEGORY")).build();
+
+        final Set<QueryTagInfo> results = parametricValuesService.getDependentParametricLevel(idolParametricRequest, new ParametricLevelRequest(Collections.singletonList("news"), Collections.<Integer>emptyList()));
+        assertThat(results, is(empty()));
+        verifyZeroInteractions(contentAciService);
+    }
+
+    @Test
+    public void getParametricRanges() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Collections.singletonList("PRICE")).setQueryRestrictions(queryRestrictions).build();
+
+        final GetQueryTagValuesResponseData boundsResponse = new GetQueryTagValuesResponseData();
+        final FlatField boundsField = new FlatField();
+        boundsField.getName().add("DOCUMENT/PRICE");
+        boundsField.getValueOrSubvalueOrValues().add(new JAXBElement<>(new QName("", "valuemin"), Float.class, 0f));
+        boundsField.getValueOrSubvalueOrValues().add(new JAXBElement<>(new QName("", "valuemax"), Float.class, 20f));
+        boundsResponse.getField().add(boundsField);
+
+        final GetQueryTagValuesResponseData rangesResponse = new GetQueryTagValuesResponseData();
+        final FlatField rangesField = new FlatField();
+        rangesField.getName().add("DOCUMENT/PRICE");
+        rangesField.getValueOrSubvalueOrValues().add(tagValueElement("10,20", 4));
+        rangesField.getValueOrSubvalueOrValues().add(tagValueElement("0,10", 2));
+        rangesResponse.getField().add(rangesField);
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(boundsResponse, rangesResponse);
+
+        final List<RangeInfo> results = parametricValuesService.getParametricRanges(idolParametricRequest, new BucketingParams(2, null, null));
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).getName(), is("PRICE"));
+        assertThat(results.get(0).getBuckets(), contains(new RangeBucket("0,10", 0, 10, 2), new RangeBucket("10,20", 10, 20, 4)));
+    }
+
+    @Test
+    public void getParametricRangesIncludesRoundedMaximum() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Collections.singletonList("PRICE")).setQueryRestrictions(queryRestrictions).build();
+
+        // the largest value is 16777217, which is rounded down to the float 16777216
+        final GetQueryTagValuesResponseData boundsResponse = new GetQueryTagValuesResponseData();
+        final FlatField boundsField = new FlatField();
+        boundsField.getName().add("DOCUMENT/PRICE");
+        boundsField.getValueOrSubvalueOrValues().add(new JAXBElement<>(new QName("", "valuemin"), Float.class, 1f));
+        boundsField.getValueOrSubvalueOrValues().add(new JAXBElement<>(new QName("", "valuemax"), Float.class, (float) 16777217));
+        boundsResponse.getField().add(boundsField);
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(boundsResponse, new GetQueryTagValuesResponseData());
+
+        parametricValuesService.getParametricRanges(idolParametricRequest, new BucketingParams(2, null, null));
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService, times(2)).executeAction(parametersCaptor.capture(), any(Processor.class));
+        final String ranges = parametersCaptor.getAllValues().get(1).get(GetQueryTagValuesParams.Ranges.name());
+        final String[] boundaries = StringUtils.split(StringUtils.substringBetween(ranges, "{", "}"), ',');
+        assertThat(Double.parseDouble(boundaries[0]), is(lessThan(1d)));
+        assertThat(Double.parseDouble(boundaries[boundaries.length - 1]), is(greaterThanOrEqualTo(16777217d)));
+    }
+
+    @Test
+    public void getDatePeriods() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).build();
+        final IdolParametricRequest idolParametricRequest = new IdolParametricRequest.Builder().setFieldNames(Collections.singletonList("DATE")).setQueryRestrictions(queryRestrictions).build();
+
+        final TagValue tagValue = new TagValue();
+        tagValue.setValue("2015");
+        tagValue.setCount(3);
+        tagValue.setDate("1420070400");
+
+        final GetQueryTagValuesResponseData responseData = new GetQueryTagValuesResponseData();
+        final FlatField field = new FlatField();
+        field.getName().add("DATE");
+        field.getValueOrSubvalueOrValues().add(new JAXBElement<>(new QName("", "value"), TagValue.class, tagValue));
+        responseData.getField().add(field);
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+
+        final List<RangeInfo> results = parametricValuesService.getParametricRanges(idolParametricRequest, new BucketingParams(DatePeriod.YEAR));
+        assertThat(results.get(0).getBuckets(), contains(new RangeBucket("2015", 1420070400, 1451606400, 3)));
+    }
+
     @Test
     public void parametricValuesNotConfigured() {
         final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setFieldText("").setDatabases(Collections.<String>emptyList()).setMaxDate(DateTime.now()).build();
@@ -101,10 +254,21 @@ public class IdolParametricValuesServiceTest {
         assertThat(results, is(empty()));
     }
 
+    private JAXBElement<TagValue> tagValueElement(final String value, final int count) {
+        final TagValue tagValue = new TagValue();
+        tagValue.setValue(value);
+        tagValue.setCount(count);
+        return new JAXBElement<>(new QName("", "value"), TagValue.class, tagValue);
+    }
+
     private GetQueryTagValuesResponseData mockQueryResponse() {
+        return mockQueryResponse("Some name");
+    }
+
+    private GetQueryTagValuesResponseData mockQueryResponse(final String fieldName) {
         final GetQueryTagValuesResponseData responseData = new GetQueryTagValuesResponseData();
         final FlatField field = new FlatField();
-        field.getName().add("Some name");
+        field.getName().add(fieldName);
         when(element.getName()).thenReturn(new QName("", "value"));
         final TagValue tagValue = new TagValue();
         tagValue.setValue("Some field");
@@ -27,7 +27,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -84,9 +86,14 @@ public class HavenSearchAciParameterHandlerTest {
     @Test
     public void addGetDocumentOutputParameters() {
         final AciParameters aciParameters = new AciParameters();
-        final GetContentRequestIndex<String> indexAndReferences = new GetContentRequestIndex<>("Database1", Collections.singleton("SomeReference"));
+        final GetContentRequestIndex<String> indexAndReferences = new GetContentRequestIndex<>("Database1", new LinkedHashSet<>(Arrays.asList("SomeReference", "SomeOtherReference", "YetAnotherReference")));
         parameterHandler.addGetDocumentOutputParameters(aciParameters, indexAndReferences, PrintParam.Fields);
         assertThat(aciParameters, is(not(empty())));
+        assertThat(aciParameters.get(QueryParams.MaxResults.name()), is("3"));
+
+        final AciParameters noReferenceParameters = new AciParameters();
+        parameterHandler.addGetDocumentOutputParameters(noReferenceParameters, new GetContentRequestIndex<>("Database1", Collections.<String>emptySet()), PrintParam.Fields);
+        assertThat(noReferenceParameters.get(QueryParams.MaxResults.name()), is("1"));
     }
 
     @Test
@@ -5,41 +5,71 @@
 
 package com.hp.autonomy.searchcomponents.idol.search;
 
+import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.services.AciService;
 import com.autonomy.aci.client.services.Processor;
 import com.autonomy.aci.client.transport.AciParameter;
 import com.autonomy.aci.client.util.AciParameters;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hp.autonomy.frontend.configuration.ConfigService;
 import com.hp.autonomy.idolutils.processors.AciResponseJaxbProcessorFactory;
+import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.core.search.AciSearchRequest;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequest;
 import com.hp.autonomy.searchcomponents.core.search.GetContentRequestIndex;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
 import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
 import com.hp.autonomy.searchcomponents.core.search.StateTokenAndResultCount;
 import com.hp.autonomy.searchcomponents.core.search.SuggestRequest;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
 import com.hp.autonomy.searchcomponents.idol.configuration.IdolSearchCapable;
 import com.hp.autonomy.searchcomponents.idol.configuration.QueryManipulation;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabaseCatalogue;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabasesRequest;
+import com.hp.autonomy.types.idol.Database;
 import com.hp.autonomy.types.idol.Hit;
+import com.hp.autonomy.types.idol.Qs;
+import com.hp.autonomy.types.idol.QsElement;
 import com.hp.autonomy.types.idol.QueryResponseData;
 import com.hp.autonomy.types.idol.SuggestResponseData;
 import com.hp.autonomy.types.requests.Documents;
 import com.hp.autonomy.types.requests.idol.actions.query.params.PrintParam;
+import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -69,6 +99,9 @@ public class IdolDocumentServiceTest {
     @Mock
     protected AciResponseJaxbProcessorFactory aciResponseProcessorFactory;
 
+    @Mock
+    private DatabasesService<Database, IdolDatabasesRequest, AciErrorException> databasesService;
+
     protected IdolDocumentService idolDocumentService;
 
     @Before
@@ -98,6 +131,105 @@ public class IdolDocumentServiceTest {
         verify(queryResponseParser).parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class));
     }
 
+    @Test
+    public void queryRemovesInvalidDatabases() {
+        final IdolDatabaseCatalogue databaseCatalogue = mock(IdolDatabaseCatalogue.class);
+        when(databaseCatalogue.contains("Database1")).thenReturn(false);
+        when(databaseCatalogue.contains("Database2")).thenReturn(true);
+        idolDocumentService = new IdolDocumentService(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, ParallelRequestExecutor.serial(), null, new IdolCompiledConfigService(configService), databaseCatalogue);
+
+        final QueryResponseData responseData = new QueryResponseData();
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+        when(queryResponseParser.parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class)))
+                .thenReturn(new Documents<>(Collections.<IdolSearchResult>emptyList(), 0, null, null, null, null));
+
+        final Documents<IdolSearchResult> results = idolDocumentService.queryTextIndex(mockQueryParams());
+        assertEquals(Collections.singleton("Database1"), results.getWarnings().getInvalidDatabases());
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(queryResponseParser).parseQueryResults(Matchers.<AciSearchRequest<String>>any(), parametersCaptor.capture(), eq(responseData), any(IdolDocumentService.QueryExecutor.class));
+        assertThat(parametersCaptor.getValue().get(QueryParams.DatabaseMatch.name()), is("Database2"));
+    }
+
+    @Test
+    public void queryKeepsInternalDatabases() {
+        final Database internalDatabase = new Database();
+        internalDatabase.setName("Database2");
+        internalDatabase.setInternal(true);
+
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(Collections.singleton(internalDatabase));
+        final IdolDatabaseCatalogue databaseCatalogue = new IdolDatabaseCatalogue(databasesService, MoreExecutors.newDirectExecutorService(), 60, 600, 30, TimeUnit.SECONDS);
+        idolDocumentService = new IdolDocumentService(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, ParallelRequestExecutor.serial(), null, new IdolCompiledConfigService(configService), databaseCatalogue);
+
+        final QueryResponseData responseData = new QueryResponseData();
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+        when(queryResponseParser.parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class)))
+                .thenReturn(new Documents<>(Collections.<IdolSearchResult>emptyList(), 0, null, null, null, null));
+
+        final Documents<IdolSearchResult> results = idolDocumentService.queryTextIndex(mockQueryParams());
+        assertEquals(Collections.singleton("Database1"), results.getWarnings().getInvalidDatabases());
+
+        final ArgumentCaptor<IdolDatabasesRequest> databasesRequestCaptor = ArgumentCaptor.forClass(IdolDatabasesRequest.class);
+        verify(databasesService).getDatabases(databasesRequestCaptor.capture());
+        assertThat(databasesRequestCaptor.getValue().isIncludeInternal(), is(true));
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(queryResponseParser).parseQueryResults(Matchers.<AciSearchRequest<String>>any(), parametersCaptor.capture(), eq(responseData), any(IdolDocumentService.QueryExecutor.class));
+        assertThat(parametersCaptor.getValue().get(QueryParams.DatabaseMatch.name()), is("Database2"));
+    }
+
+    @Test
+    public void queryWithQuerySummary() {
+        final QueryResponseData responseData = mockQuerySummaryResponse();
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+        when(queryResponseParser.parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class)))
+                .thenReturn(new Documents<>(Collections.<IdolSearchResult>emptyList(), 0, null, null, null, null));
+
+        final Documents<IdolSearchResult> results = idolDocumentService.queryTextIndex(mockQuerySummaryQueryParams());
+        assertThat(((IdolDocuments) results).getQuerySummaryElements().get(0).getText(), is("cat"));
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService).executeAction(parametersCaptor.capture(), any(Processor.class));
+        assertThat(parametersCaptor.getValue().get(QueryParams.QuerySummary.name()), is("true"));
+    }
+
+    @Test
+    public void queryQmsWithQuerySummary() {
+        when(havenSearchConfig.getQueryManipulation()).thenReturn(new QueryManipulation.Builder().setEnabled(true).build());
+        final QueryResponseData responseData = new QueryResponseData();
+        when(qmsAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(mockQuerySummaryResponse());
+        when(queryResponseParser.parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class)))
+                .thenReturn(new Documents<>(Collections.<IdolSearchResult>emptyList(), 0, null, null, null, null));
+
+        final Documents<IdolSearchResult> results = idolDocumentService.queryTextIndex(mockQuerySummaryQueryParams());
+        assertThat(((IdolDocuments) results).getQuerySummaryElements().get(0).getText(), is("cat"));
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService).executeAction(parametersCaptor.capture(), any(Processor.class));
+        assertThat(parametersCaptor.getValue().get(QueryParams.Print.name()), is(PrintParam.NoResults.name()));
+    }
+
+    @Test
+    public void queryQmsWithQuerySummaryAndNoDatabases() {
+        when(havenSearchConfig.getQueryManipulation()).thenReturn(new QueryManipulation.Builder().setEnabled(true).build());
+        final QueryResponseData responseData = new QueryResponseData();
+        when(qmsAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(mockQuerySummaryResponse());
+        when(queryResponseParser.parseQueryResults(Matchers.<AciSearchRequest<String>>any(), any(AciParameters.class), eq(responseData), any(IdolDocumentService.QueryExecutor.class)))
+                .thenReturn(new Documents<>(Collections.<IdolSearchResult>emptyList(), 0, null, null, null, null));
+
+        final IdolSearchRequest searchRequest = mockQuerySummaryQueryParams();
+        searchRequest.setQueryRestrictions(new IdolQueryRestrictions.Builder().setQueryText("*").setDatabases(Collections.<String>emptyList()).build());
+        idolDocumentService.queryTextIndex(searchRequest);
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(contentAciService).executeAction(parametersCaptor.capture(), any(Processor.class));
+        for (final AciParameter parameter : parametersCaptor.getValue()) {
+            assertThat(parameter.getName(), not(QueryParams.DatabaseMatch.name()));
+        }
+    }
+
     @Test
     public void queryContentForPromotions() {
         final Documents<IdolSearchResult> results = idolDocumentService.queryTextIndexForPromotions(mockQueryParams());
@@ -142,6 +274,31 @@ public class IdolDocumentServiceTest {
         verify(queryResponseParser).parseQueryHits(responseData.getHit());
     }
 
+    @Test
+    public void getContentFromMultipleIndexesInParallel() {
+        final ParallelRequestExecutor parallelRequestExecutor = new ParallelRequestExecutor(Executors.newFixedThreadPool(2), 10, TimeUnit.SECONDS);
+        idolDocumentService = new IdolDocumentService(configService, parameterHandler, queryResponseParser, contentAciService, qmsAciService, aciResponseProcessorFactory, parallelRequestExecutor);
+
+        final QueryResponseData responseData = new QueryResponseData();
+        responseData.setTotalhits(1);
+        responseData.getHit().add(new Hit());
+
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(responseData);
+
+        final Set<GetContentRequestIndex<String>> indexesAndReferences = new LinkedHashSet<>();
+        indexesAndReferences.add(new GetContentRequestIndex<>("Database1", Collections.singleton("Some reference")));
+        indexesAndReferences.add(new GetContentRequestIndex<>("Database2", Collections.singleton("Some other reference")));
+
+        try {
+            idolDocumentService.getDocumentContent(new GetContentRequest<>(indexesAndReferences, PrintParam.Fields.name()));
+        } finally {
+            parallelRequestExecutor.shutdown();
+        }
+
+        verify(contentAciService, times(2)).executeAction(anySetOf(AciParameter.class), any(Processor.class));
+        verify(queryResponseParser, times(2)).parseQueryHits(responseData.getHit());
+    }
+
     @Test
     public void getStateToken() {
         when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenReturn(mockStateTokenResponse());
@@ -159,12 +316,69 @@ public class IdolDocumentServiceTest {
         assertThat(stateTokenAndResultCount.getResultCount(), is((long) MOCK_TOTAL_HITS));
     }
 
+    @Test
+    public void exportDocumentsFromStateToken() throws IOException {
+        // the state token is read with the JAXB processor and each window is streamed through a QueryResultsProcessor
+        when(contentAciService.executeAction(anySetOf(AciParameter.class), any(Processor.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws XMLStreamException {
+                final Object processor = invocation.getArguments()[1];
+                return processor instanceof QueryResultsProcessor ? processSampleResponse((QueryResultsProcessor) processor) : mockStateTokenResponse();
+            }
+        });
+
+        final List<IdolSearchResult> exported = new ArrayList<>();
+        final int exportedCount = idolDocumentService.exportDocuments(mockQueryParams(), 20, new DocumentSink<IdolSearchResult>() {
+            @Override
+            public void write(final IdolSearchResult document) {
+                exported.add(document);
+            }
+        });
+
+        // the sample response has two hits for each of the three windows
+        assertThat(exportedCount, is(6));
+        assertThat(exported, hasSize(6));
+
+        final ArgumentCaptor<AciSearchRequest> requestCaptor = ArgumentCaptor.forClass(AciSearchRequest.class);
+        verify(parameterHandler, times(3)).addSearchOutputParameters(any(AciParameters.class), requestCaptor.capture());
+        final AciSearchRequest<?> lastWindow = requestCaptor.getAllValues().get(2);
+        assertThat(lastWindow.getStart(), is(41));
+        assertThat(lastWindow.getMaxResults(), is(MOCK_TOTAL_HITS));
+        assertThat(lastWindow.getQueryRestrictions().getStateMatchId(), contains(MOCK_STATE_TOKEN));
+    }
+
     // Used in Find's DocumentService test
     protected SearchRequest<String> mockQueryParams() {
         final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
         return new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
     }
 
+    private IdolSearchRequest mockQuerySummaryQueryParams() {
+        final IdolSearchRequest searchRequest = new IdolSearchRequest();
+        searchRequest.setQueryRestrictions(mockQueryParams().getQueryRestrictions());
+        searchRequest.setQuerySummary(true);
+        searchRequest.setQuerySummaryLength(10);
+        return searchRequest;
+    }
+
+    private QueryResponseData mockQuerySummaryResponse() {
+        final QsElement element = new QsElement();
+        element.setText("cat");
+        final Qs qs = new Qs();
+        qs.getElement().add(element);
+
+        final QueryResponseData responseData = new QueryResponseData();
+        responseData.setQs(qs);
+        return responseData;
+    }
+
+    private QueryResults processSampleResponse(final QueryResultsProcessor processor) throws XMLStreamException {
+        final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return processor.process(xmlInputFactory.createXMLStreamReader(getClass().getResourceAsStream("/sampleIdolQueryResponse.xml")));
+    }
+
     protected QueryResponseData mockStateTokenResponse() {
         final QueryResponseData responseData = new QueryResponseData();
         responseData.setState(MOCK_STATE_TOKEN);
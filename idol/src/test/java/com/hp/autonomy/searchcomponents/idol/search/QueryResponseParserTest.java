@@ -7,25 +7,34 @@ package com.hp.autonomy.searchcomponents.idol.search;
 
 import com.autonomy.aci.client.services.AciErrorException;
 import com.autonomy.aci.client.util.AciParameters;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hp.autonomy.searchcomponents.core.databases.DatabasesService;
+import com.hp.autonomy.searchcomponents.core.requests.ParallelRequestExecutor;
 import com.hp.autonomy.searchcomponents.core.search.AciSearchRequest;
 import com.hp.autonomy.searchcomponents.core.search.QueryRestrictions;
 import com.hp.autonomy.searchcomponents.core.search.SearchRequest;
+import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabaseCatalogue;
 import com.hp.autonomy.searchcomponents.idol.databases.IdolDatabasesRequest;
 import com.hp.autonomy.searchcomponents.idol.search.fields.FieldsParser;
 import com.hp.autonomy.types.idol.Database;
 import com.hp.autonomy.types.idol.Hit;
 import com.hp.autonomy.types.idol.QueryResponseData;
 import com.hp.autonomy.types.requests.Documents;
+import com.hp.autonomy.types.requests.idol.actions.query.params.PrintParam;
+import com.hp.autonomy.types.requests.idol.actions.query.params.QueryParams;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
@@ -34,7 +43,10 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -48,11 +60,16 @@ public class QueryResponseParserTest {
     @Mock
     private IdolDocumentService.QueryExecutor queryExecutor;
 
+    @Mock
+    private IdolDocumentService.QueryResultsExecutor queryResultsExecutor;
+
+    private IdolDatabaseCatalogue databaseCatalogue;
     private QueryResponseParser queryResponseParser;
 
     @Before
     public void setUp() {
-        queryResponseParser = new QueryResponseParserImpl(documentFieldsService, databasesService);
+        databaseCatalogue = new IdolDatabaseCatalogue(databasesService, MoreExecutors.newDirectExecutorService(), 60, 600, 30, TimeUnit.SECONDS);
+        queryResponseParser = new QueryResponseParserImpl(documentFieldsService, databaseCatalogue);
     }
 
     @Test
@@ -97,6 +114,154 @@ public class QueryResponseParserTest {
         assertEquals("Database1", results.getWarnings().getInvalidDatabases().iterator().next());
     }
 
+    @Test
+    public void databasesNotCheckedWithoutWarning() {
+        final AciParameters aciParameters = new AciParameters();
+        aciParameters.add(QueryParams.DatabaseMatch.name(), "InternalDatabase");
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setDatabases(Collections.singletonList("InternalDatabase")).setMaxDate(DateTime.now()).build();
+        final AciSearchRequest<String> searchRequest = new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
+        final Documents<IdolSearchResult> results = queryResponseParser.parseQueryResults(searchRequest, aciParameters, mockQueryResponse(), queryExecutor);
+        assertNull(results.getWarnings());
+        assertEquals("InternalDatabase", aciParameters.get(QueryParams.DatabaseMatch.name()));
+        verifyZeroInteractions(databasesService);
+    }
+
+    @Test
+    public void autoCorrectProcessedResults() {
+        final QueryResults queryResults = new QueryResults(Collections.<IdolSearchResult>emptyList(), 0, "mm, mmh", "spelling", Collections.<String>emptySet());
+        final QueryResults correctedResults = new QueryResults(Collections.singletonList(new IdolSearchResult.Builder().setTitle("Some Title").build()), 1, null, null, Collections.<String>emptySet());
+        when(queryResultsExecutor.execute(any(AciParameters.class))).thenReturn(correctedResults);
+
+        final AciParameters aciParameters = new AciParameters();
+        aciParameters.add(QueryParams.Text.name(), "speling");
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("speling").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
+        final AciSearchRequest<String> searchRequest = new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
+        final Documents<IdolSearchResult> results = queryResponseParser.parseQueryResults(searchRequest, aciParameters, queryResults, queryResultsExecutor);
+        assertThat(results.getDocuments(), hasSize(1));
+        assertThat(results.getTotalResults(), is(1));
+        assertEquals(Arrays.asList("mm", "mmh"), results.getAutoCorrection().getCorrections());
+        assertEquals("spelling", results.getAutoCorrection().getCorrectedQuery());
+        assertEquals("speling", results.getAutoCorrection().getOriginalQuery());
+
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(queryResultsExecutor).execute(parametersCaptor.capture());
+        assertEquals("spelling", parametersCaptor.getValue().get(QueryParams.Text.name()));
+    }
+
+    @Test
+    public void noAutoCorrectProcessedResults() {
+        final QueryResults queryResults = new QueryResults(Collections.singletonList(new IdolSearchResult.Builder().setTitle("Some Title").build()), 1, null, null, Collections.<String>emptySet());
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
+        final AciSearchRequest<String> searchRequest = new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
+        final Documents<IdolSearchResult> results = queryResponseParser.parseQueryResults(searchRequest, new AciParameters(), queryResults, queryResultsExecutor);
+        assertThat(results.getDocuments(), hasSize(1));
+        assertNull(results.getAutoCorrection());
+        assertNull(results.getWarnings());
+        verifyZeroInteractions(queryResultsExecutor);
+    }
+
+    @Test
+    public void invalidDatabaseWarningProcessedResults() {
+        final QueryResults queryResults = new QueryResults(Collections.<IdolSearchResult>emptyList(), 0, null, null, Collections.singleton(QueryResponseParserImpl.MISSING_DATABASE_WARNING));
+
+        final Database goodDatabase = new Database();
+        goodDatabase.setName("Database2");
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(Collections.singleton(goodDatabase));
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("*").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
+        final AciSearchRequest<String> searchRequest = new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
+        final Documents<IdolSearchResult> results = queryResponseParser.parseQueryResults(searchRequest, new AciParameters(), queryResults, queryResultsExecutor);
+        assertThat(results.getWarnings().getInvalidDatabases(), hasSize(1));
+        assertEquals("Database1", results.getWarnings().getInvalidDatabases().iterator().next());
+    }
+
+    @Test
+    public void autoCorrectWithInvalidDatabaseProcessedResults() {
+        final QueryResults queryResults = new QueryResults(Collections.<IdolSearchResult>emptyList(), 0, "mm", "spelling", Collections.singleton(QueryResponseParserImpl.MISSING_DATABASE_WARNING));
+        final QueryResults correctedResults = new QueryResults(Collections.singletonList(new IdolSearchResult.Builder().setTitle("Some Title").build()), 1, null, null, Collections.<String>emptySet());
+        when(queryResultsExecutor.execute(any(AciParameters.class))).thenReturn(correctedResults);
+
+        final Database goodDatabase = new Database();
+        goodDatabase.setName("Database2");
+        when(databasesService.getDatabases(any(IdolDatabasesRequest.class))).thenReturn(Collections.singleton(goodDatabase));
+
+        final AciParameters aciParameters = new AciParameters();
+        aciParameters.add(QueryParams.Text.name(), "speling");
+
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("speling").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
+        final AciSearchRequest<String> searchRequest = new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, null);
+        final Documents<IdolSearchResult> results = queryResponseParser.parseQueryResults(searchRequest, aciParameters, queryResults, queryResultsExecutor);
+        assertThat(results.getDocuments(), hasSize(1));
+        assertEquals("spelling", results.getAutoCorrection().getCorrectedQuery());
+        assertEquals(Collections.singleton("Database1"), results.getWarnings().getInvalidDatabases());
+
+        // the corrected query is run against the valid databases only
+        final ArgumentCaptor<AciParameters> parametersCaptor = ArgumentCaptor.forClass(AciParameters.class);
+        verify(queryResultsExecutor).execute(parametersCaptor.capture());
+        assertEquals("Database2", parametersCaptor.getValue().get(QueryParams.DatabaseMatch.name()));
+    }
+
+    @Test
+    public void speculativeAutoCorrectDisabled() {
+        assertNull(queryResponseParser.parseSpeculativeQueryResults(mockSearchRequest(), new AciParameters(), queryExecutor));
+    }
+
+    @Test
+    public void speculativeAutoCorrectLimitReached() {
+        queryResponseParser = new QueryResponseParserImpl(documentFieldsService, databaseCatalogue, new SpeculativeAutoCorrect(ParallelRequestExecutor.serial(), 0));
+        assertNull(queryResponseParser.parseSpeculativeQueryResults(mockSearchRequest(), new AciParameters(), queryExecutor));
+    }
+
+    @Test
+    public void speculativeAutoCorrect() {
+        queryResponseParser = new QueryResponseParserImpl(documentFieldsService, databaseCatalogue, new SpeculativeAutoCorrect(ParallelRequestExecutor.serial(), 1));
+        mockSpellCheck("spelling");
+
+        final AciParameters aciParameters = new AciParameters();
+        aciParameters.add(QueryParams.Text.name(), "speling");
+
+        final Documents<IdolSearchResult> results = queryResponseParser.parseSpeculativeQueryResults(mockSearchRequest(), aciParameters, queryExecutor);
+        assertThat(results.getDocuments(), hasSize(1));
+        assertEquals("spelling", results.getAutoCorrection().getCorrectedQuery());
+        assertEquals("speling", results.getAutoCorrection().getOriginalQuery());
+    }
+
+    @Test
+    public void speculativeAutoCorrectNoSuggestion() {
+        queryResponseParser = new QueryResponseParserImpl(documentFieldsService, databaseCatalogue, new SpeculativeAutoCorrect(ParallelRequestExecutor.serial(), 1));
+        mockSpellCheck(null);
+
+        final Documents<IdolSearchResult> results = queryResponseParser.parseSpeculativeQueryResults(mockSearchRequest(), new AciParameters(), queryExecutor);
+        assertThat(results.getDocuments(), hasSize(1));
+        assertNull(results.getAutoCorrection());
+    }
+
+    private SearchRequest<String> mockSearchRequest() {
+        final QueryRestrictions<String> queryRestrictions = new IdolQueryRestrictions.Builder().setQueryText("speling").setDatabases(Arrays.asList("Database1", "Database2")).setMaxDate(DateTime.now()).build();
+        return new SearchRequest<>(queryRestrictions, 0, 50, null, 250, null, true, true, SearchRequest.QueryType.MODIFIED);
+    }
+
+    private void mockSpellCheck(final String spellingQuery) {
+        when(queryExecutor.execute(any(AciParameters.class))).thenAnswer(new Answer<QueryResponseData>() {
+            @Override
+            public QueryResponseData answer(final InvocationOnMock invocation) {
+                final AciParameters parameters = (AciParameters) invocation.getArguments()[0];
+
+                if (PrintParam.NoResults.name().equals(parameters.get(QueryParams.Print.name()))) {
+                    final QueryResponseData responseData = new QueryResponseData();
+                    responseData.setSpellingquery(spellingQuery);
+                    responseData.setSpelling("spelling");
+                    return responseData;
+                }
+
+                return mockQueryResponse();
+            }
+        });
+    }
+
     protected QueryResponseData mockQueryResponse() {
         final QueryResponseData responseData = new QueryResponseData();
         responseData.setTotalhits(1);
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Hewlett-Packard Development Company, L.P.
+ * Licensed under the MIT License (the "License"); you may not use this file except in compliance with the License.
+ */
+
+package com.hp.autonomy.searchcomponents.idol.search;
+
+import com.hp.autonomy.frontend.configuration.ConfigService;
+import com.hp.autonomy.searchcomponents.core.config.FieldInfo;
+import com.hp.autonomy.searchcomponents.core.config.FieldType;
+import com.hp.autonomy.searchcomponents.core.config.FieldsInfo;
+import com.hp.autonomy.searchcomponents.core.search.DocumentSink;
+import com.hp.autonomy.searchcomponents.core.search.PromotionCategory;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolCompiledConfigService;
+import com.hp.autonomy.searchcomponents.idol.configuration.IdolSearchCapable;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryResultsProcessorTest {
+    @Mock
+    private ConfigService<? extends IdolSearchCapable> configService;
+
+    @Mock
+    private IdolSearchCapable config;
+
+    private IdolCompiledConfigService queryResultsProcessorConfig;
+    private QueryResultsProcessor queryResultsProcessor;
+
+    @Before
+    public void setUp() {
+        final FieldsInfo fieldsInfo = new FieldsInfo.Builder()
+                .populateResponseMap("Custom Date", new FieldInfo<DateTime>("Custom Date", Collections.singletonList("CUSTOM_DATE"), FieldType.DATE))
+                .populateResponseMap("author", new FieldInfo<String>("author", Collections.singletonList("CUSTOM_ARRAY"), FieldType.STRING))
+                .build();
+        when(config.getFieldsInfo()).thenReturn(fieldsInfo);
+        when(configService.getConfig()).thenReturn(config);
+
+        queryResultsProcessorConfig = new IdolCompiledConfigService(configService);
+        queryResultsProcessor = new QueryResultsProcessor(queryResultsProcessorConfig);
+    }
+
+    @Test
+    public void process() throws XMLStreamException {
+        final QueryResults documents = process("/sampleIdolQueryResponse.xml");
+        assertThat(documents.getTotalHits(), is(25));
+        assertThat(documents.getDocuments(), hasSize(2));
+        assertThat(documents.getSpellingQuery(), is("cat"));
+        assertThat(documents.getWarnings(), hasSize(1));
+
+        final IdolSearchResult first = documents.getDocuments().get(0);
+        assertThat(first.getReference(), is("http://example.com/cats/tabby.html"));
+        assertThat(first.getIndex(), is("Wookiepedia"));
+        assertThat(first.getTitle(), is("Tabby & friends"));
+        assertThat(first.getSummary(), is("A <b>tabby</b> is any domestic cat"));
+        assertThat(first.getWeight(), is(88.43));
+        assertThat(first.getDate(), is(new DateTime(2016, 3, 21, 10, 30)));
+        assertThat(first.getQmsId(), is("qms-1"));
+        assertThat(first.getPromotionCategory(), is(PromotionCategory.CARDINAL_PLACEMENT));
+
+        final Map<String, FieldInfo<?>> fieldMap = first.getFieldMap();
+        assertThat(fieldMap.get("Custom Date").getValues().get(0), instanceOf(DateTime.class));
+        assertThat(fieldMap.get("author").getValues(), contains((Object) "Felix", "Tom"));
+        assertThat(fieldMap.get("INNER").getValues(), contains((Object) "nested value"));
+
+        final IdolSearchResult second = documents.getDocuments().get(1);
+        assertThat(second.getTitle(), is("ginger.html"));
+        assertThat(second.getPromotionName(), is("Ginger cats"));
+        assertThat(second.getPromotionCategory(), is(PromotionCategory.SPOTLIGHT));
+        assertThat(second.getFieldMap().get("author").getValues(), contains((Object) "Garfield"));
+    }
+
+    @Test
+    public void hitsAreWrittenToSink() throws XMLStreamException {
+        final List<IdolSearchResult> written = new ArrayList<>();
+        queryResultsProcessor = new QueryResultsProcessor(queryResultsProcessorConfig, new DocumentSink<IdolSearchResult>() {
+            @Override
+            public void write(final IdolSearchResult document) {
+                written.add(document);
+            }
+        });
+
+        final QueryResults documents = process("/sampleIdolQueryResponse.xml");
+        assertThat(documents.getTotalHits(), is(25));
+        assertThat(documents.getDocuments(), is(empty()));
+        assertThat(written, hasSize(2));
+        assertThat(written.get(0).getReference(), is("http://example.com/cats/tabby.html"));
+    }
+
+    private QueryResults process(final String resource) throws XMLStreamException {
+        final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        final InputStream inputStream = getClass().getResourceAsStream(resource);
+        final XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(inputStream);
+        return queryResultsProcessor.process(xmlStreamReader);
+    }
+}
@@ -31,6 +31,8 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -63,6 +65,22 @@ public class FieldsParserTest {
         final Map<String, FieldInfo<?>> fieldMap = idolSearchResult.getFieldMap();
         assertNotNull(fieldMap.get("Custom Date"));
         assertThat(fieldMap.get("author").getValues(), hasSize(2));
+        assertEquals("123", idolSearchResult.getQmsId());
+    }
+
+    @Test
+    public void parseDocumentFieldsInSinglePass() {
+        final Hit hit = mockHit();
+        final Element element = (Element) hit.getContent().getContent().get(0);
+        final NodeList childNodes = element.getChildNodes();
+
+        fieldsParser.parseDocumentFields(hit, new IdolSearchResult.Builder());
+
+        // every child is visited exactly once and the document is never searched again for the QMS or promotion fields
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            verify(childNodes).item(i);
+        }
+        verify(element, never()).getElementsByTagName(anyString());
     }
 
     @Test
@@ -94,28 +112,19 @@ public class FieldsParserTest {
 
         when(element.hasChildNodes()).thenReturn(true);
         final NodeList childNodes = mock(NodeList.class);
-        when(childNodes.getLength()).thenReturn(4);
+        when(childNodes.getLength()).thenReturn(5);
         mockNodeListEntry(childNodes, 0, "CUSTOM_DATE", "2016-02-03T11:42:00");
         mockNodeListEntry(childNodes, 1, "CUSTOM_ARRAY", "a");
         mockNodeListEntry(childNodes, 2, "CUSTOM_ARRAY", "b");
         mockNodeListEntry(childNodes, 3, "UNKNOWN", "c");
+        mockNodeListEntry(childNodes, 4, IdolDocumentFieldsService.QMS_ID_FIELD.toUpperCase(), "123");
         when(element.getChildNodes()).thenReturn(childNodes);
 
-        mockHardCodedField(element, IdolDocumentFieldsService.QMS_ID_FIELD.toUpperCase(), "123");
-        when(element.getElementsByTagName(IdolDocumentFieldsService.INJECTED_PROMOTION_FIELD.toUpperCase())).thenReturn(mock(NodeList.class));
-
         hit.setContent(content);
 
         return hit;
     }
 
-    private void mockHardCodedField(final Element element, final String name, final String value) {
-        final NodeList childNodes = mock(NodeList.class);
-        when(childNodes.getLength()).thenReturn(1);
-        mockNodeListEntry(childNodes, 0, name, value);
-        when(element.getElementsByTagName(name)).thenReturn(childNodes);
-    }
-
     private void mockNodeListEntry(final NodeList nodes, final int i, final String name, final String value) {
         final Element namedNode = mock(Element.class);
         when(namedNode.getNodeName()).thenReturn(name);
@@ -136,14 +145,11 @@ public class FieldsParserTest {
         final DocContent content = new DocContent();
         final Element element = mock(Element.class);
         when(element.hasChildNodes()).thenReturn(true);
-        when(element.getChildNodes()).thenReturn(mock(NodeList.class));
 
         final NodeList childNodes = mock(NodeList.class);
         when(childNodes.getLength()).thenReturn(1);
-        final String name = IdolDocumentFieldsService.INJECTED_PROMOTION_FIELD.toUpperCase();
-        mockNodeListEntry(childNodes, 0, name, "true");
-        when(element.getElementsByTagName(anyString())).thenReturn(mock(NodeList.class));
-        when(element.getElementsByTagName(name)).thenReturn(childNodes);
+        mockNodeListEntry(childNodes, 0, IdolDocumentFieldsService.INJECTED_PROMOTION_FIELD.toUpperCase(), "true");
+        when(element.getChildNodes()).thenReturn(childNodes);
         content.getContent().add(element);
         hit.setContent(content);
 